@@ -1,19 +1,101 @@
+import export.ExportKind;
+import file.MenuWatcher;
+import kitchen.KitchenDispatcher;
 import menu.MenuManager;
+import metrics.MetricsRegistry;
+import server.OrderHttpServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static utils.Constants.KITCHEN_PREP_MILLIS;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        Integer httpPort = null;
+        Integer metricsPeriod = null;
+        int hotDays = 0;
+        boolean watchMenu = false;
+        Integer kitchenPrepMillis = null;
+        Map<String, String> shards = new LinkedHashMap<>();
+        Map<String, ExportKind> exports = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            switch (args[i]) {
+                case "--http" -> httpPort = hasValue ? Integer.parseInt(args[++i]) : 8080;
+                case "--metrics" -> metricsPeriod = hasValue ? Integer.parseInt(args[++i]) : 10;
+                case "--hot-days" -> hotDays = Integer.parseInt(args[++i]);
+                case "--shard" -> {
+                    String[] shard = args[++i].split("=", 2);
+                    if (shard.length != 2) throw new IllegalArgumentException("Expected --shard name=file");
+                    shards.put(shard[0], shard[1]);
+                }
+                case "--export" -> {
+                    String[] export = args[++i].split("=", 2);
+                    if (export.length != 2) throw new IllegalArgumentException("Expected --export kind=file");
+                    exports.put(export[1], ExportKind.parse(export[0]));
+                }
+                case "--watch-menu" -> watchMenu = true;
+                case "--kitchen" -> kitchenPrepMillis = hasValue ? Integer.parseInt(args[++i]) : KITCHEN_PREP_MILLIS;
+                case "--jfr" -> MetricsRegistry.getDefault().setJfrEnabled(true);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
         MenuManager manager = new MenuManager();
 
+        manager.setHotWindow(hotDays);
+
         manager.readInputFiles();
 
+        if (!shards.isEmpty()) manager.loadShards(shards);
+
+        MenuWatcher menuWatcher = watchMenu ? manager.watchMenu() : null;
+
+        KitchenDispatcher kitchen = kitchenPrepMillis != null
+                ? manager.startKitchen(Duration.ofMillis(kitchenPrepMillis)) : null;
+
         manager.addMenuOptions();
 
+        if (metricsPeriod != null) {
+            MetricsRegistry metrics = MetricsRegistry.getDefault();
+            metrics.registerMBean("restaurant:type=Metrics");
+            metrics.startReporter(Duration.ofSeconds(metricsPeriod), Main::writeMetrics);
+        }
+
+        OrderHttpServer server = null;
+        if (httpPort != null) {
+            server = new OrderHttpServer(manager, httpPort);
+            server.start();
+            System.out.println("Listening on http://localhost:" + server.getPort());
+        }
+
         manager.run();
 
+        if (server != null) server.close();
+
+        if (menuWatcher != null) menuWatcher.close();
+
+        if (kitchen != null) kitchen.close();
+
         manager.saveOrders();
 
         manager.saveSalesReport();
 
         manager.saveBestSellers();
+
+        exports.forEach((name, kind) -> manager.export(kind, name));
+
+        if (metricsPeriod != null) writeMetrics(MetricsRegistry.getDefault().toJson());
+    }
+
+    private static void writeMetrics(String json) {
+        try {
+            Files.writeString(Path.of("metrics.json"), json + "\n");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
\ No newline at end of file
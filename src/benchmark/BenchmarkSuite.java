@@ -0,0 +1,103 @@
+package benchmark;
+
+import file.MappedOrdersFile;
+import file.TextFile;
+import menu.MenuManager;
+import models.Order;
+import models.ProductCatalog;
+import reports.ReportMode;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import static utils.Constants.REPORT_CACHE_SIZE;
+
+/**
+ * Benchmarks menu loading, order loading and saving, and report generation on synthetic data,
+ * printing throughput, latency, allocation rate and GC activity for each path.
+ * Usage: {@code java benchmark.BenchmarkSuite [menu sizes] [history sizes]}, where both arguments are
+ * comma-separated lists; the defaults are {@code 50,5000} products and {@code 10000,1000000} orders.
+ */
+public class BenchmarkSuite {
+    public static void main(String[] args) throws IOException {
+        int[] menuSizes = parse(args.length > 0 ? args[0] : "50,5000");
+        int[] historySizes = parse(args.length > 1 ? args[1] : "10000,1000000");
+
+        for (int menuSize : menuSizes) {
+            for (int historySize : historySizes) {
+                System.out.printf("%,d products, %,d orders%n", menuSize, historySize);
+                run(menuSize, historySize);
+            }
+        }
+    }
+
+    /**
+     * Benchmarks every path for one data set.
+     * @param menuSize    the number of products on the menu
+     * @param historySize the number of orders in the history
+     * @throws IOException if the data set cannot be written
+     */
+    private static void run(int menuSize, int historySize) throws IOException {
+        Random random = new Random(31L * menuSize + historySize);
+        File menu = File.createTempFile("menu", ".txt");
+        File orders = File.createTempFile("orders", ".txt");
+        File saved = File.createTempFile("saved", ".txt");
+        File journal = new File(orders.getPath() + ".journal");
+        ProductCatalog products = SyntheticData.writeMenu(menu, menuSize, random);
+        SyntheticData.writeOrders(orders, products, historySize, random);
+        int iterations = (int) Math.max(3, Math.min(50, 10_000_000L / historySize));
+
+        try {
+            TextFile menuFile = new TextFile(menu.getPath());
+            menuFile.open();
+            Measurement.run("TextFile.readMenu", menuSize, 5, 50, menuFile::readMenu);
+
+            TextFile ordersFile = new TextFile(orders.getPath());
+            ordersFile.open();
+            Measurement.run("TextFile.readOrders", historySize, 1, iterations, () -> ordersFile.readOrders(products));
+            MappedOrdersFile mappedFile = new MappedOrdersFile(orders.getPath());
+            Measurement.run("MappedOrdersFile.readOrders", historySize, 1, iterations,
+                    () -> mappedFile.readOrders(products));
+
+            List<Order> history = mappedFile.readOrders(products);
+            TextFile savedFile = new TextFile(saved.getPath());
+            savedFile.open();
+            Measurement.run("TextFile.saveOrders", historySize, 1, iterations, () -> savedFile.saveOrders(history));
+
+            MenuManager manager = new MenuManager();
+            manager.readInputFiles(menu.getPath(), orders.getPath(), journal.getPath());
+            manager.setReportCacheSize(0);
+            for (ReportMode mode : ReportMode.values()) {
+                manager.setReportMode(mode);
+                long operations = mode == ReportMode.INCREMENTAL ? 1 : historySize;
+                Measurement.run("generateSalesReport (" + mode + ")", operations, 3, iterations * 2,
+                        manager::generateSalesReport);
+                Measurement.run("generateBestSellers (" + mode + ")", operations, 3, iterations * 2,
+                        manager::generateBestSellers);
+            }
+            manager.setReportCacheSize(REPORT_CACHE_SIZE);
+            Measurement.run("generateSalesReport (cached)", 1, 3, iterations * 2, manager::generateSalesReport);
+            Measurement.run("generateBestSellers (cached)", 1, 3, iterations * 2, manager::generateBestSellers);
+            manager.saveOrders();
+        } finally {
+            menu.delete();
+            orders.delete();
+            saved.delete();
+            journal.delete();
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of sizes.
+     * @param sizes the list, e.g. {@code 50,5000}
+     * @return the parsed sizes
+     */
+    private static int[] parse(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+        }
+        return parsed;
+    }
+}
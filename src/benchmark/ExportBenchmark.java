@@ -0,0 +1,87 @@
+package benchmark;
+
+import export.ExportFormat;
+import export.ExportKind;
+import export.OrderExporter;
+import file.TextFile;
+import models.Order;
+import models.ProductCatalog;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures the streaming exports of an order history read with {@link TextFile#streamOrders(ProductCatalog)}:
+ * every {@link ExportKind} in CSV, JSON Lines and gzip-compressed JSON Lines, with the records written,
+ * the output size, the throughput and the peak heap. Run it with a small heap, e.g. {@code -Xmx32m},
+ * to check that the exports do not depend on holding the history in memory.
+ * Usage: {@code java benchmark.ExportBenchmark [orders]}, defaulting to 2000000.
+ */
+public class ExportBenchmark {
+    public static void main(String[] args) throws IOException {
+        long lines = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000;
+
+        File menu = File.createTempFile("menu", ".txt");
+        File orders = File.createTempFile("orders", ".txt");
+        File export = File.createTempFile("export", ".out");
+        try {
+            Random random = new Random(1);
+            ProductCatalog products = SyntheticData.writeMenu(menu, 500, random);
+            SyntheticData.writeOrders(orders, products, lines, random);
+            System.out.printf("%,d orders, %,d bytes, max heap %,d MB%n",
+                    lines, orders.length(), Runtime.getRuntime().maxMemory() >> 20);
+            TextFile ordersFile = new TextFile(orders.getPath());
+            ordersFile.open();
+            OrderExporter exporter = new OrderExporter(products);
+            for (ExportKind kind : ExportKind.values()) {
+                run(exporter, kind, ExportFormat.CSV, false, ordersFile, products, export, lines);
+                run(exporter, kind, ExportFormat.JSON_LINES, false, ordersFile, products, export, lines);
+                run(exporter, kind, ExportFormat.JSON_LINES, true, ordersFile, products, export, lines);
+            }
+        } finally {
+            menu.delete();
+            orders.delete();
+            export.delete();
+        }
+    }
+
+    /**
+     * Runs one export and prints the results.
+     * @param exporter   the reused exporter
+     * @param kind       what to export
+     * @param format     the format of the records
+     * @param gzip       whether to compress the output
+     * @param ordersFile the orders file to stream
+     * @param products   the catalog of the orders
+     * @param export     the file to export to
+     * @param lines      the number of orders in the file
+     * @throws IOException if the export cannot be written
+     */
+    private static void run(OrderExporter exporter, ExportKind kind, ExportFormat format, boolean gzip,
+                            TextFile ordersFile, ProductCatalog products, File export, long lines) throws IOException {
+        exporter.setFormat(format, gzip);
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long begin = System.nanoTime();
+        long records;
+        try (OutputStream out = new FileOutputStream(export); Stream<Order> orders = ordersFile.streamOrders(products)) {
+            records = exporter.export(kind, orders.iterator(), out);
+        }
+        long elapsed = System.nanoTime() - begin;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("  %-13s %-10s %-4s %,10d records, %,14d bytes in %6.2f s, %,10.0f orders/s | peak heap %,5d MB%n",
+                kind, format, gzip ? "gzip" : "", records, export.length(), elapsed / 1e9, lines / (elapsed / 1e9),
+                peakHeap >> 20);
+    }
+}
@@ -0,0 +1,126 @@
+package benchmark;
+
+import menu.MenuManager;
+import models.Product;
+import models.ProductCatalog;
+import server.OrderHttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the {@link OrderHttpServer} with an open-loop load: requests are sent at a fixed rate whether or
+ * not earlier ones have completed, so a slow server shows up as growing latency instead of a lower send rate.
+ * The mix is 60% sales reports, 20% best-seller reports, 10% menu listings and 10% new orders.
+ * Latency is measured from the moment each request was scheduled, not sent.
+ * Usage: {@code java benchmark.HttpLoadTest [requests per second] [seconds] [orders]},
+ * defaulting to 2000, 10 and 100000.
+ */
+public class HttpLoadTest {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long orderCount = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+
+        File menu = File.createTempFile("menu", ".txt");
+        File orders = File.createTempFile("orders", ".txt");
+        File journal = new File(orders.getPath() + ".journal");
+        try {
+            Random random = new Random(1);
+            ProductCatalog products = SyntheticData.writeMenu(menu, 50, random);
+            SyntheticData.writeOrders(orders, products, orderCount, random);
+            MenuManager manager = new MenuManager();
+            manager.readInputFiles(menu.getPath(), orders.getPath(), journal.getPath());
+
+            try (OrderHttpServer server = new OrderHttpServer(manager, 0)) {
+                server.start();
+                run(server.getPort(), products, rate, seconds, random);
+            }
+            manager.saveOrders();
+        } finally {
+            menu.delete();
+            orders.delete();
+            journal.delete();
+        }
+    }
+
+    /**
+     * Sends the request mix at a fixed rate and prints the results.
+     * @param port     the port of the server under test
+     * @param products the catalog new orders are drawn from
+     * @param rate     the number of requests scheduled per second
+     * @param seconds  the duration of the run
+     * @param random   the source of randomness for the request mix
+     */
+    private static void run(int port, ProductCatalog products, int rate, int seconds, Random random) {
+        HttpClient client = HttpClient.newHttpClient();
+        String base = "http://localhost:" + port;
+        int total = rate * seconds;
+        long[] latencies = new long[total];
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[total];
+        AtomicInteger errors = new AtomicInteger();
+        long interval = 1_000_000_000L / rate;
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = begin + i * interval;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            int request = i;
+            responses[i] = client.sendAsync(nextRequest(base, products, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[request] = System.nanoTime() - scheduled;
+                        if (failure != null || response.statusCode() >= 400) errors.incrementAndGet();
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(e -> null).join();
+        long elapsed = System.nanoTime() - begin;
+
+        Arrays.sort(latencies);
+        System.out.printf("%,d requests at %,d/s in %.1f s, %,.0f requests/s completed, %,d errors"
+                        + " | latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                total, rate, elapsed / 1e9, total / (elapsed / 1e9), errors.get(),
+                latencies[total / 2] / 1e6, latencies[(int) (total * 0.99)] / 1e6,
+                latencies[(int) (total * 0.999)] / 1e6, latencies[total - 1] / 1e6);
+    }
+
+    /**
+     * Draws the next request of the mix.
+     * @param base     the base URL of the server
+     * @param products the catalog new orders are drawn from
+     * @param random   the source of randomness
+     * @return the request to send
+     */
+    private static HttpRequest nextRequest(String base, ProductCatalog products, Random random) {
+        int kind = random.nextInt(10);
+        if (kind < 6) {
+            int from = random.nextInt(SyntheticData.DAYS);
+            return HttpRequest.newBuilder(URI.create(base + "/reports/sales?from="
+                    + SyntheticData.FIRST_DAY.plusDays(from) + "&to=" + SyntheticData.FIRST_DAY.plusDays(from + 30)))
+                    .build();
+        }
+        if (kind < 8) {
+            String ranking = random.nextBoolean() ? "units" : "revenue";
+            return HttpRequest.newBuilder(URI.create(base + "/reports/best-sellers?ranking=" + ranking)).build();
+        }
+        if (kind < 9) {
+            return HttpRequest.newBuilder(URI.create(base + "/menu")).build();
+        }
+        StringBuilder body = new StringBuilder();
+        int items = 1 + random.nextInt(SyntheticData.MAX_BASKET);
+        for (int i = 0; i < items; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            body.append(i == 0 ? "" : " ").append(product.getName());
+        }
+        return HttpRequest.newBuilder(URI.create(base + "/orders"))
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+    }
+}
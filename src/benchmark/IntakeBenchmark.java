@@ -0,0 +1,116 @@
+package benchmark;
+
+import menu.MenuManager;
+import models.ProductCatalog;
+import service.OrderIntakeService;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of the {@link OrderIntakeService} with thousands of simulated clients, each
+ * submitting orders back to back. The service is measured with a sink that only numbers the orders, with
+ * an {@link OrderWriter} sink that appends every order to a log in forced batches, and with a
+ * {@link MenuManager} sink that journals and aggregates every order. Each run checks that every
+ * submission completed with a distinct id.
+ * Usage: {@code java benchmark.IntakeBenchmark [clients] [orders per client]}, defaulting to 2000 and 50.
+ */
+public class IntakeBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int ordersPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        File menu = File.createTempFile("menu", ".txt");
+        File orders = File.createTempFile("orders", ".txt");
+        File journal = new File(orders.getPath() + ".journal");
+        File log = File.createTempFile("log", ".txt");
+        try {
+            ProductCatalog products = SyntheticData.writeMenu(menu, 50, new Random(1));
+            AtomicLong counted = new AtomicLong();
+            run("numbering only", clients, ordersPerClient, products,
+                    () -> new OrderIntakeService(products, o -> counted.incrementAndGet()));
+
+            try (OrderWriter writer = new OrderWriter(log.getPath())) {
+                run("OrderWriter", clients, ordersPerClient, products,
+                        () -> new OrderIntakeService(products, writer::write));
+                System.out.printf("OrderWriter: %,d batches, mean %.1f orders, max %,d"
+                                + " | write latency mean %.3f ms, max %.3f ms%n",
+                        writer.getBatchCount(), writer.getAverageBatchSize(), writer.getMaxBatchSize(),
+                        writer.getAverageWriteNanos() / 1e6, writer.getMaxWriteNanos() / 1e6);
+            }
+
+            MenuManager manager = new MenuManager();
+            manager.readInputFiles(menu.getPath(), orders.getPath(), journal.getPath());
+            run("MenuManager (journal + aggregates)", clients, ordersPerClient, products, manager::startIntakeService);
+            manager.saveOrders();
+        } finally {
+            menu.delete();
+            orders.delete();
+            journal.delete();
+            log.delete();
+        }
+    }
+
+    /**
+     * Runs the simulated clients against a fresh service and prints the results.
+     * @param label           the label printed with the results
+     * @param clients         the number of concurrent clients
+     * @param ordersPerClient the number of orders each client submits
+     * @param products        the catalog the clients order from
+     * @param services        creates the service under test
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    private static void run(String label, int clients, int ordersPerClient, ProductCatalog products,
+                            Supplier<OrderIntakeService> services) throws InterruptedException {
+        long[] latencies = new long[clients * ordersPerClient];
+        long[] orderIds = new long[clients * ordersPerClient];
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(clients);
+        try (OrderIntakeService service = services.get()) {
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                Thread thread = new Thread(() -> {
+                    Random random = new Random(client);
+                    try {
+                        start.await();
+                        for (int i = 0; i < ordersPerClient; i++) {
+                            int[] ids = new int[1 + random.nextInt(SyntheticData.MAX_BASKET)];
+                            for (int j = 0; j < ids.length; j++) {
+                                ids[j] = random.nextInt(products.size());
+                            }
+                            long begin = System.nanoTime();
+                            orderIds[client * ordersPerClient + i] = service.submit(ids).join();
+                            latencies[client * ordersPerClient + i] = System.nanoTime() - begin;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            done.await();
+            long elapsed = System.nanoTime() - begin;
+
+            Arrays.sort(latencies);
+            Arrays.sort(orderIds);
+            int distinct = 0;
+            for (int i = 0; i < orderIds.length; i++) {
+                if (orderIds[i] != 0 && (i == 0 || orderIds[i] != orderIds[i - 1])) distinct++;
+            }
+            System.out.printf("%s: %,d clients, %,d orders in %.1f ms, %,.0f orders/s"
+                            + " | latency p50 %.3f ms, p99 %.3f ms, max %.3f ms | distinct ids %,d%n",
+                    label, clients, latencies.length, elapsed / 1e6, latencies.length / (elapsed / 1e9),
+                    latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    latencies[latencies.length - 1] / 1e6, distinct);
+        }
+    }
+}
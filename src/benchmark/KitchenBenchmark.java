@@ -0,0 +1,97 @@
+package benchmark;
+
+import kitchen.KitchenDispatcher;
+import kitchen.Priority;
+import kitchen.Station;
+import metrics.Histogram;
+import models.Order;
+import models.ProductCatalog;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates a rush at the {@link KitchenDispatcher}: several tills dispatch orders at a fixed combined rate,
+ * one in ten marked {@link Priority#RUSH} and one in five {@link Priority#LOW}, while the simulated cooks
+ * prepare them. Prints the wait time and throughput of every station and the wait time of every priority.
+ * Usage: {@code java benchmark.KitchenBenchmark [orders per minute] [seconds] [prep ms per item] [aging ms] [tills]},
+ * defaulting to 6000, 20, 4, 500 and 8.
+ */
+public class KitchenBenchmark {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int ordersPerMinute = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int prepMillis = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int agingMillis = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+        int tills = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+
+        File menu = File.createTempFile("menu", ".txt");
+        ProductCatalog products;
+        try {
+            products = SyntheticData.writeMenu(menu, 50, new Random(1));
+        } finally {
+            menu.delete();
+        }
+
+        long total = (long) ordersPerMinute * seconds / 60;
+        long intervalNanos = 60_000_000_000L * tills / ordersPerMinute;
+        AtomicLong orderIds = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(tills);
+        KitchenDispatcher kitchen = new KitchenDispatcher(1024, Duration.ofMillis(agingMillis),
+                Duration.ofMillis(prepMillis));
+        long begin = System.nanoTime();
+        for (int t = 0; t < tills; t++) {
+            int till = t;
+            Thread thread = new Thread(() -> {
+                Random random = new Random(till);
+                long next = begin + intervalNanos * till / tills;
+                try {
+                    for (long i = till; i < total; i += tills) {
+                        LockSupport.parkNanos(next - System.nanoTime());
+                        next += intervalNanos;
+                        Order order = new Order(LocalDate.now());
+                        int items = 1 + random.nextInt(SyntheticData.MAX_BASKET);
+                        for (int j = 0; j < items; j++) {
+                            order.add(products.get(random.nextInt(products.size())));
+                        }
+                        int roll = random.nextInt(10);
+                        Priority priority = roll == 0 ? Priority.RUSH : roll < 3 ? Priority.LOW : Priority.NORMAL;
+                        kitchen.dispatch(orderIds.incrementAndGet(), order, priority);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        long dispatched = System.nanoTime() - begin;
+        kitchen.close();
+        long elapsed = System.nanoTime() - begin;
+
+        System.out.printf("%,d orders from %d tills at %,d orders/min: dispatched in %.1f s, prepared in %.1f s"
+                        + " | %d ms per item, aging every %d ms%n",
+                total, tills, ordersPerMinute, dispatched / 1e9, elapsed / 1e9, prepMillis, agingMillis);
+        for (Station station : Station.values()) {
+            Histogram waits = kitchen.getWaitTimes(station);
+            Histogram throughput = kitchen.getThroughput(station);
+            System.out.printf("%-12s %,7d tickets | wait p50 %8.3f ms, p99 %8.3f ms, max %8.3f ms"
+                            + " | throughput p50 %,5d/s, max %,5d/s%n",
+                    station, kitchen.getCompleted(station), waits.getPercentile(50) / 1e6,
+                    waits.getPercentile(99) / 1e6, waits.getMax() / 1e6,
+                    throughput.getPercentile(50), throughput.getMax());
+        }
+        for (Priority priority : Priority.values()) {
+            Histogram waits = kitchen.getWaitTimes(priority);
+            System.out.printf("%-12s %,7d tickets | wait p50 %8.3f ms, p99 %8.3f ms, max %8.3f ms%n",
+                    priority, waits.getCount(), waits.getPercentile(50) / 1e6,
+                    waits.getPercentile(99) / 1e6, waits.getMax() / 1e6);
+        }
+    }
+}
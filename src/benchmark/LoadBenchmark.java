@@ -0,0 +1,79 @@
+package benchmark;
+
+import file.BinaryOrdersFile;
+import file.MappedOrdersFile;
+import file.TextFile;
+import models.Order;
+import models.OrderTable;
+import models.ProductCatalog;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures how long {@link TextFile#readOrders(ProductCatalog)}, {@link MappedOrdersFile#readOrders(ProductCatalog)}
+ * and {@link BinaryOrdersFile#readOrders(ProductCatalog)} take on synthetic order histories.
+ * Usage: {@code java benchmark.LoadBenchmark [lines...]}, defaulting to 1M and 10M lines.
+ */
+public class LoadBenchmark {
+    /** The number of untimed loads run before measuring. */
+    private static final int WARMUP_RUNS = 1;
+    /** The number of timed loads per file size. */
+    private static final int MEASURED_RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        long[] sizes = args.length == 0 ? new long[] {1_000_000, 10_000_000} : new long[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Long.parseLong(args[i]);
+        }
+
+        TextFile menuFile = new TextFile("menu.txt");
+        menuFile.open();
+        ProductCatalog products = menuFile.readMenu();
+
+        for (long lines : sizes) {
+            File orders = File.createTempFile("orders-" + lines, ".txt");
+            orders.deleteOnExit();
+            SyntheticData.writeOrders(orders, products, lines, new Random(lines));
+            TextFile ordersFile = new TextFile(orders.getPath());
+            ordersFile.open();
+            MappedOrdersFile mappedFile = new MappedOrdersFile(orders.getPath());
+
+            System.out.printf("%,d lines (%,d bytes)%n", lines, Files.size(orders.toPath()));
+            measure("  TextFile", lines, () -> ordersFile.readOrders(products));
+            measure("  MappedOrdersFile", lines, () -> mappedFile.readOrders(products));
+
+            File binary = File.createTempFile("orders-" + lines, ".bin");
+            binary.deleteOnExit();
+            BinaryOrdersFile binaryFile = new BinaryOrdersFile(binary.getPath());
+            binaryFile.saveOrders(new OrderTable(mappedFile.readOrders(products), 1), products);
+            System.out.printf("  binary format: %,d bytes%n", binary.length());
+            measure("  BinaryOrdersFile", lines, () -> binaryFile.readOrders(products));
+            binary.delete();
+            orders.delete();
+        }
+    }
+
+    /**
+     * Runs a loader repeatedly and prints its best time.
+     * @param label  the label printed with the result
+     * @param lines  the expected number of orders
+     * @param loader the loader to measure
+     */
+    private static void measure(String label, long lines, Supplier<List<Order>> loader) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            loader.get();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            List<Order> loaded = loader.get();
+            best = Math.min(best, System.nanoTime() - start);
+            if (loaded.size() != lines) throw new IllegalStateException("Loaded " + loaded.size() + " orders");
+        }
+        System.out.printf("%s: best %.1f ms, %.0f orders/s%n", label, best / 1e6, lines / (best / 1e9));
+    }
+}
@@ -0,0 +1,243 @@
+package benchmark;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import file.TextFile;
+import menu.MenuManager;
+import metrics.Histogram;
+import models.Order;
+import models.ProductCatalog;
+import service.OrderIntakeService;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Replays a synthetic service day through the real code paths to size hardware. A menu and an order
+ * history are generated from a {@link TrafficModel}, the history is written with {@link TextFile}, and a
+ * {@link MenuManager} loads both. The day, from opening to closing, is then compressed into the run:
+ * orders arrive as a Poisson stream whose rate follows the lunch and dinner peaks and averages the target
+ * rate, and are submitted open-loop to the intake service, which builds each {@link Order}, stores it and
+ * journals it. Meanwhile a reporting client asks for sales and best-seller reports at a fixed rate.
+ * <p>
+ * Latency is measured from the moment each order was scheduled, so a backlog shows up as latency rather
+ * than as a lower arrival rate. Prints a line per second, then the sustained throughput, order and report
+ * latency percentiles, the GC pauses and the growth of the orders file and journal.
+ * Usage: {@code java benchmark.LoadSimulator [orders per second] [seconds] [products] [zipf exponent]
+ * [mean basket] [history orders] [reports per second]}, defaulting to 2000, 30, 200, 1.1, 2.5, 100000 and 5.
+ */
+public class LoadSimulator {
+    /** The number of past days the generated history covers. */
+    private static final int HISTORY_DAYS = 90;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int menuSize = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        double skew = args.length > 3 ? Double.parseDouble(args[3]) : 1.1;
+        double meanBasket = args.length > 4 ? Double.parseDouble(args[4]) : 2.5;
+        int historySize = args.length > 5 ? Integer.parseInt(args[5]) : 100_000;
+        int reportRate = args.length > 6 ? Integer.parseInt(args[6]) : 5;
+
+        File menu = File.createTempFile("menu", ".txt");
+        File orders = File.createTempFile("orders", ".txt");
+        File journal = new File(orders.getPath() + ".journal");
+        try {
+            Random random = new Random(1);
+            ProductCatalog products = SyntheticData.writeMenu(menu, menuSize, random);
+            TrafficModel model = new TrafficModel(products, skew, meanBasket, random);
+            writeHistory(orders, model, historySize, random);
+
+            MenuManager manager = new MenuManager();
+            manager.readInputFiles(menu.getPath(), orders.getPath(), journal.getPath());
+            System.out.printf("%,d products (zipf %.2f), %,d orders of history, mean basket %.1f,"
+                            + " %,d orders/s for %d s, %d reports/s%n",
+                    menuSize, skew, historySize, meanBasket, rate, seconds, reportRate);
+            try (OrderIntakeService service = manager.startIntakeService()) {
+                run(manager, service, model, rate, seconds, reportRate, orders, journal);
+            }
+            manager.saveOrders();
+            System.out.printf("After shutdown: orders file %,d bytes, journal %,d bytes%n",
+                    orders.length(), journal.length());
+        } finally {
+            menu.delete();
+            orders.delete();
+            journal.delete();
+        }
+    }
+
+    /**
+     * Writes an order history drawn from the traffic model over the last {@link #HISTORY_DAYS} days.
+     * @param file   the orders file
+     * @param model  the traffic model
+     * @param count  the number of orders
+     * @param random the source of randomness
+     */
+    private static void writeHistory(File file, TrafficModel model, int count, Random random) {
+        LocalDate first = LocalDate.now().minusDays(HISTORY_DAYS);
+        List<Order> history = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            history.add(model.nextOrder(first.plusDays((long) i * HISTORY_DAYS / count), random));
+        }
+        TextFile ordersFile = new TextFile(file.getPath());
+        ordersFile.open();
+        ordersFile.saveOrders(history);
+    }
+
+    /**
+     * Runs the compressed day and prints the results.
+     * @param manager    the manager under test
+     * @param service    the intake service of the manager
+     * @param model      the traffic model
+     * @param rate       the mean number of orders scheduled per second
+     * @param seconds    the duration of the day
+     * @param reportRate the number of reports requested per second
+     * @param orders     the orders file
+     * @param journal    the order journal
+     * @throws InterruptedException if interrupted while waiting for the reporting client
+     */
+    private static void run(MenuManager manager, OrderIntakeService service, TrafficModel model, int rate,
+                            int seconds, int reportRate, File orders, File journal) throws InterruptedException {
+        Histogram latencies = new Histogram();
+        Histogram reportLatencies = new Histogram();
+        Histogram gcPauses = new Histogram();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        List<CompletableFuture<Long>> pending = new ArrayList<>();
+        List<Runnable> unsubscribe = watchGcPauses(gcPauses);
+        long startBytes = orders.length() + journal.length();
+        long duration = seconds * 1_000_000_000L;
+        Random random = new Random(2);
+
+        long begin = System.nanoTime();
+        Thread reporter = startReporter(manager, reportRate, begin + duration, reportLatencies);
+        long scheduled = begin;
+        long second = 1;
+        long scheduledInSecond = 0;
+        long completedBefore = 0;
+        long maxBytes = startBytes;
+        System.out.printf("%4s %6s %10s %10s %10s %14s%n", "s", "hour", "scheduled", "completed", "in flight", "file bytes");
+        while (true) {
+            double dayFraction = (double) (scheduled - begin) / duration;
+            double interval = 1e9 / (rate * model.rate(Math.min(dayFraction, 1)));
+            scheduled += (long) (-Math.log(1 - random.nextDouble()) * interval);
+            while (scheduled - begin >= second * 1_000_000_000L || scheduled - begin >= duration) {
+                if (second > seconds) break;
+                LockSupport.parkNanos(begin + second * 1_000_000_000L - System.nanoTime());
+                long done = completed.get() + failed.get();
+                long bytes = orders.length() + journal.length();
+                maxBytes = Math.max(maxBytes, bytes);
+                System.out.printf("%4d %6s %,10d %,10d %,10d %,14d%n", second, clock((double) second / seconds),
+                        scheduledInSecond, done - completedBefore, pending.size() - done, bytes);
+                completedBefore = done;
+                scheduledInSecond = 0;
+                second++;
+            }
+            if (scheduled - begin >= duration) break;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            long at = scheduled;
+            pending.add(service.submit(model.nextBasket(random)).whenComplete((id, failure) -> {
+                latencies.record(System.nanoTime() - at);
+                if (failure == null) completed.incrementAndGet(); else failed.incrementAndGet();
+            }));
+            scheduledInSecond++;
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        long elapsed = System.nanoTime() - begin;
+        reporter.join();
+        unsubscribe.forEach(Runnable::run);
+        long endBytes = orders.length() + journal.length();
+
+        System.out.printf("Orders: %,d scheduled, %,d completed, %,d failed in %.1f s, sustained %,.0f orders/s"
+                        + " | latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                pending.size(), completed.get(), failed.get(), elapsed / 1e9, completed.get() / (elapsed / 1e9),
+                latencies.getPercentile(50) / 1e6, latencies.getPercentile(99) / 1e6,
+                latencies.getPercentile(99.9) / 1e6, latencies.getMax() / 1e6);
+        System.out.printf("Reports: %,d | latency p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                reportLatencies.getCount(), reportLatencies.getPercentile(50) / 1e6,
+                reportLatencies.getPercentile(99) / 1e6, reportLatencies.getMax() / 1e6);
+        System.out.printf("GC: %,d pauses, %,.0f ms total | pause p50 %d ms, p99 %d ms, max %d ms%n",
+                gcPauses.getCount(), gcPauses.getMean() * gcPauses.getCount(),
+                gcPauses.getPercentile(50), gcPauses.getPercentile(99), gcPauses.getMax());
+        System.out.printf("Files: %,d -> %,d bytes (peak %,d), %+,.1f bytes/order, %+,.2f MB/min%n",
+                startBytes, endBytes, maxBytes, (double) (endBytes - startBytes) / Math.max(1, completed.get()),
+                (endBytes - startBytes) / (elapsed / 60e9) / (1 << 20));
+    }
+
+    /**
+     * Starts a client that asks for a sales or a best-seller report at a fixed rate until a deadline.
+     * @param manager   the manager under test
+     * @param rate      the number of reports per second, or 0 for none
+     * @param deadline  the {@link System#nanoTime()} at which to stop
+     * @param latencies the histogram the report latencies are recorded in
+     * @return the started thread
+     */
+    private static Thread startReporter(MenuManager manager, int rate, long deadline, Histogram latencies) {
+        Thread thread = new Thread(() -> {
+            if (rate <= 0) return;
+            long interval = 1_000_000_000L / rate;
+            long scheduled = System.nanoTime();
+            for (int i = 0; scheduled < deadline; i++) {
+                LockSupport.parkNanos(scheduled - System.nanoTime());
+                if (i % 2 == 0) manager.generateSalesReport(); else manager.generateBestSellers();
+                latencies.record(System.nanoTime() - scheduled);
+                scheduled += interval;
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Records the duration of every stop-the-world collection, leaving out concurrent cycles.
+     * @param pauses the histogram the pause durations are recorded in, in milliseconds
+     * @return the actions that stop recording
+     */
+    private static List<Runnable> watchGcPauses(Histogram pauses) {
+        List<Runnable> unsubscribe = new ArrayList<>();
+        NotificationListener listener = (Notification notification, Object handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (info.getGcAction().contains("concurrent") || info.getGcName().contains("Cycles")) return;
+            pauses.record(info.getGcInfo().getDuration());
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) continue;
+            NotificationEmitter emitter = (NotificationEmitter) gc;
+            emitter.addNotificationListener(listener, null, null);
+            unsubscribe.add(() -> {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (ListenerNotFoundException e) {
+                    // already removed
+                }
+            });
+        }
+        return unsubscribe;
+    }
+
+    /**
+     * Formats the simulated time of day.
+     * @param dayFraction the elapsed fraction of the opening hours
+     * @return the time as {@code HH:mm}
+     */
+    private static String clock(double dayFraction) {
+        int minutes = (int) Math.round(TrafficModel.hourOf(dayFraction) * 60);
+        return String.format("%02d:%02d", minutes / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * A minimal benchmark harness: runs a task through warm-up and measured iterations and prints its
+ * throughput, latency percentiles, allocation rate and garbage collection activity. Allocation is
+ * summed over all live threads, so work done on pool threads is included.
+ */
+public class Measurement {
+    private Measurement() {}
+
+    /**
+     * Runs and measures a task.
+     * @param label      the label printed with the results
+     * @param operations the number of operations one run of the task performs, e.g. orders read
+     * @param warmups    the number of untimed runs
+     * @param iterations the number of timed runs
+     * @param task       the task to measure
+     */
+    public static void run(String label, long operations, int warmups, int iterations, Runnable task) {
+        for (int i = 0; i < warmups; i++) {
+            task.run();
+        }
+        long[] samples = new long[iterations];
+        long allocatedBefore = allocatedBytes();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        long total = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.run();
+            samples[i] = System.nanoTime() - start;
+            total += samples[i];
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcTime = gcTime() - gcTimeBefore;
+
+        Arrays.sort(samples);
+        System.out.printf("  %-36s %,14.0f ops/s | p50 %9.3f ms, p99 %9.3f ms, max %9.3f ms"
+                        + " | alloc %,9.1f MB/s, %,10.1f B/op | gc %d (%d ms)%n",
+                label, operations * iterations / (total / 1e9),
+                percentile(samples, 0.50) / 1e6, percentile(samples, 0.99) / 1e6, samples[iterations - 1] / 1e6,
+                allocated / (total / 1e9) / (1 << 20), (double) allocated / (operations * iterations),
+                gcCount, gcTime);
+    }
+
+    /**
+     * Returns a percentile of sorted samples using the nearest-rank method.
+     * @param sorted   the samples, in ascending order
+     * @param fraction the percentile as a fraction between 0 and 1
+     * @return the sample at that percentile
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Returns the bytes allocated so far by all live threads.
+     * @return the allocated bytes, or 0 if the JVM does not report them
+     */
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) return 0;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of collections run so far by all collectors.
+     * @return the collection count
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time spent so far in all collectors.
+     * @return the accumulated collection time in milliseconds
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import file.TextFile;
+import models.Order;
+import models.OrderArena;
+import models.ProductCatalog;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap used per order by a list of {@link Order} objects and by an {@link OrderArena}
+ * holding the same orders. Usage: {@code java benchmark.OrderFootprint [orders]}, defaulting to 2M orders.
+ */
+public class OrderFootprint {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        TextFile menuFile = new TextFile("menu.txt");
+        menuFile.open();
+        ProductCatalog products = menuFile.readMenu();
+
+        long baseline = usedHeap();
+        List<Order> orders = SyntheticData.generateOrders(products, count, new Random(count));
+        long listBytes = usedHeap() - baseline;
+
+        OrderArena arena = new OrderArena(products);
+        arena.addAll(orders);
+        orders = null;
+        long arenaBytes = usedHeap() - baseline;
+
+        System.out.printf("%,d orders (%,d items)%n", count, arena.getItemEnd(arena.size() - 1));
+        System.out.printf("  List<Order>: %,d bytes, %.1f bytes/order%n", listBytes, (double) listBytes / count);
+        System.out.printf("  OrderArena:  %,d bytes, %.1f bytes/order%n", arenaBytes, (double) arenaBytes / count);
+    }
+
+    /**
+     * Returns the heap in use after repeated garbage collections.
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
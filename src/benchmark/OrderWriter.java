@@ -0,0 +1,320 @@
+package benchmark;
+
+import file.OrderEncoder;
+import file.OrderJournal;
+import file.TextFile;
+import models.Order;
+import utils.ThreadPools;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistence pipeline that appends completed orders to an orders file in the {@link TextFile} format,
+ * numbering them in submission order. {@link IntakeBenchmark} measures it against the
+ * {@link OrderJournal} group commit the application persists its orders through.
+ * <p>
+ * Producers put orders on a bounded queue and a single writer thread takes them off in batches:
+ * a batch is closed when it reaches the batch size or when the flush latency has passed since its
+ * first order arrived. Each batch is encoded into a reused direct buffer, written through a
+ * {@link FileChannel} and, if requested, forced to disk with a single fsync, so producers that wait
+ * for their order share the cost of one commit. Batch sizes and write latencies are recorded.
+ */
+public class OrderWriter implements AutoCloseable {
+    /** The default maximum number of orders in a batch. */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    /** The default time a batch is held open waiting for more orders. */
+    public static final Duration DEFAULT_FLUSH_LATENCY = Duration.ofMillis(2);
+    /** The initial size of the encoding buffer; it grows if a single order does not fit. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The channel the orders are appended to. */
+    private FileChannel channel;
+    /** Whether every batch is forced to disk before its orders count as written. */
+    private boolean force;
+    /** The maximum number of orders in a batch. */
+    private int batchSize;
+    /** The time a batch is held open waiting for more orders, in nanoseconds. */
+    private long flushLatencyNanos;
+    /** The orders waiting to be written. */
+    private BlockingQueue<Order> queue;
+    /** The batch being written; reused between batches. */
+    private List<Order> batch;
+    /** The encoder of the order lines. */
+    private OrderEncoder encoder = new OrderEncoder();
+    /** The buffer the batches are encoded into; reused between batches. */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The thread that writes the batches. */
+    private Thread writer;
+    /** Whether the writer should stop once the queue is empty. */
+    private volatile boolean closed;
+
+    /** The sequence number of the last submitted order; guarded by {@link #submitLock}. */
+    private long submitted;
+    /** The lock that keeps sequence numbers in queue order. */
+    private final Object submitLock = new Object();
+    /** The sequence number of the last order written; guarded by {@link #writtenLock}. */
+    private long written;
+    /** The failure that stopped the writer, if any; guarded by {@link #writtenLock}. */
+    private IOException failure;
+    /** The lock producers wait on for their orders to be written. */
+    private final Object writtenLock = new Object();
+
+    /** The number of batches written; guarded by {@link #writtenLock}. */
+    private long batchCount;
+    /** The size of the largest batch; guarded by {@link #writtenLock}. */
+    private int maxBatchSize;
+    /** The total time spent encoding, writing and forcing batches, in nanoseconds; guarded by {@link #writtenLock}. */
+    private long totalWriteNanos;
+    /** The longest time spent on a single batch, in nanoseconds; guarded by {@link #writtenLock}. */
+    private long maxWriteNanos;
+
+    /**
+     * Creates a new {@code OrderWriter} with the default batch size and flush latency that forces every batch.
+     * @param name the name of the orders file to append to
+     */
+    public OrderWriter(String name) {
+        this(name, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_LATENCY, true);
+    }
+
+    /**
+     * Creates a new {@code OrderWriter} and starts its writer thread.
+     * @param name         the name of the orders file to append to; created if missing
+     * @param batchSize    the maximum number of orders in a batch
+     * @param flushLatency the time a batch is held open waiting for more orders
+     * @param force        whether every batch is forced to disk before its orders count as written
+     */
+    public OrderWriter(String name, int batchSize, Duration flushLatency, boolean force) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        try {
+            this.channel = FileChannel.open(Path.of(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.force = force;
+        this.batchSize = batchSize;
+        this.flushLatencyNanos = flushLatency.toNanos();
+        this.queue = new ArrayBlockingQueue<>(4 * batchSize);
+        this.batch = new ArrayList<>(batchSize);
+        this.writer = ThreadPools.daemonThreads("order-writer").newThread(this::run);
+        writer.start();
+    }
+
+    /**
+     * Queues an order to be written, blocking while the queue is full.
+     * @param order the order to write
+     * @return the sequence number to pass to {@link #awaitWritten(long)}, which is also the id the order
+     *         is written with
+     */
+    public long submit(Order order) {
+        synchronized (submitLock) {
+            if (closed) throw new IllegalStateException("The order writer is closed");
+            try {
+                queue.put(order);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return ++submitted;
+        }
+    }
+
+    /**
+     * Waits until the order with the given sequence number has been written, and forced if the
+     * writer forces its batches.
+     * @param sequence the sequence number returned when the order was submitted
+     */
+    public void awaitWritten(long sequence) {
+        synchronized (writtenLock) {
+            while (written < sequence && failure == null) {
+                try {
+                    writtenLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            if (written < sequence) throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Writes an order and waits until it is written.
+     * @param order the order to write
+     * @return the id the order was written with
+     */
+    public long write(Order order) {
+        long id = submit(order);
+        awaitWritten(id);
+        return id;
+    }
+
+    /**
+     * Returns the number of batches written.
+     * @return the batch count
+     */
+    public long getBatchCount() {
+        synchronized (writtenLock) {
+            return batchCount;
+        }
+    }
+
+    /**
+     * Returns the number of orders written.
+     * @return the written order count
+     */
+    public long getWrittenCount() {
+        synchronized (writtenLock) {
+            return written;
+        }
+    }
+
+    /**
+     * Returns the average number of orders per batch.
+     * @return the mean batch size, or 0 if nothing was written
+     */
+    public double getAverageBatchSize() {
+        synchronized (writtenLock) {
+            return batchCount == 0 ? 0 : (double) written / batchCount;
+        }
+    }
+
+    /**
+     * Returns the number of orders in the largest batch.
+     * @return the maximum batch size
+     */
+    public int getMaxBatchSize() {
+        synchronized (writtenLock) {
+            return maxBatchSize;
+        }
+    }
+
+    /**
+     * Returns the average time spent encoding, writing and forcing a batch.
+     * @return the mean write latency in nanoseconds, or 0 if nothing was written
+     */
+    public long getAverageWriteNanos() {
+        synchronized (writtenLock) {
+            return batchCount == 0 ? 0 : totalWriteNanos / batchCount;
+        }
+    }
+
+    /**
+     * Returns the longest time spent encoding, writing and forcing a batch.
+     * @return the maximum write latency in nanoseconds
+     */
+    public long getMaxWriteNanos() {
+        synchronized (writtenLock) {
+            return maxWriteNanos;
+        }
+    }
+
+    /** Writes every queued order, stops the writer thread and closes the file. */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            closed = true;
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        synchronized (writtenLock) {
+            if (failure != null) throw new RuntimeException(failure);
+        }
+    }
+
+    /** Takes batches off the queue and writes them until the writer is closed and the queue is empty. */
+    private void run() {
+        try {
+            while (true) {
+                Order first = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushLatencyNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    Order next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                writeBatch();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            synchronized (writtenLock) {
+                failure = e;
+                writtenLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Encodes, writes and optionally forces the current batch, then wakes the producers waiting for it.
+     * The orders are written with their sequence numbers as ids; only the writer thread advances
+     * {@link #written}, so the batch follows it directly.
+     * @throws IOException if the file cannot be written
+     */
+    private void writeBatch() throws IOException {
+        long begin = System.nanoTime();
+        long first;
+        synchronized (writtenLock) {
+            first = written + 1;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Order order = batch.get(i);
+            long id = first + i;
+            if (encoder.encode(order, id, buffer)) continue;
+            drain();
+            if (!encoder.encode(order, id, buffer)) {
+                buffer = ByteBuffer.allocateDirect(Math.max(2 * buffer.capacity(), encoder.length(order, id)));
+                encoder.encode(order, id, buffer);
+            }
+        }
+        drain();
+        if (force) channel.force(false);
+        long elapsed = System.nanoTime() - begin;
+
+        synchronized (writtenLock) {
+            written += batch.size();
+            batchCount++;
+            maxBatchSize = Math.max(maxBatchSize, batch.size());
+            totalWriteNanos += elapsed;
+            maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+            writtenLock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes out the contents of the buffer and clears it.
+     * @throws IOException if the file cannot be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import file.TextFile;
+import models.DrinkItem;
+import models.FoodItem;
+import models.Order;
+import models.OrderArena;
+import models.Product;
+import models.ProductCatalog;
+import reports.ReportEngine;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import static utils.Constants.BEST_SELLERS_LIMIT;
+
+/**
+ * Measures how the {@link ReportEngine} scales from one to all available cores, against the
+ * boxed {@code Collectors.groupingBy} scan it replaces, and likewise its nutrition report over an
+ * {@link OrderArena} against a scan that follows every order to its products' nutritional values.
+ * Usage: {@code java benchmark.ReportBenchmark [orders]}, defaulting to 5M orders.
+ */
+public class ReportBenchmark {
+    /** The number of untimed runs before measuring. */
+    private static final int WARMUP_RUNS = 3;
+    /** The number of timed runs per configuration. */
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        TextFile menuFile = new TextFile("menu.txt");
+        menuFile.open();
+        ProductCatalog products = menuFile.readMenu();
+        List<Order> orders = SyntheticData.generateOrders(products, count, new Random(count));
+        OrderArena arena = new OrderArena(products);
+        arena.addAll(orders);
+        System.out.printf("%,d orders%n", count);
+
+        measure("boxed collectors", () -> {
+            orders.stream().collect(Collectors.groupingBy(Order::getDate, Collectors.summingInt(Order::getValue)));
+            orders.stream().flatMap(o -> o.getProducts().stream())
+                    .collect(Collectors.groupingBy(p -> p.getName(), Collectors.counting()));
+        });
+        ReportEngine sequential = new ReportEngine(products);
+        measure("sequential", () -> {
+            sequential.generateSalesReport(orders, false);
+            sequential.generateBestSellers(orders, BEST_SELLERS_LIMIT, false);
+        });
+        measure("nutrition, object graph", () -> {
+            Map<LocalDate, double[]> daily = new HashMap<>();
+            for (Order order : orders) {
+                double[] totals = daily.computeIfAbsent(order.getDate(), d -> new double[6]);
+                for (Product p : order.getProducts()) {
+                    if (p instanceof FoodItem) {
+                        double[] values = ((FoodItem) p).getNutritionalValues();
+                        for (int n = 0; n < values.length; n++) {
+                            totals[n] += values[n];
+                        }
+                    } else if (p instanceof DrinkItem) {
+                        totals[4]++;
+                        if (!((DrinkItem) p).isAlcoholFree()) totals[5]++;
+                    }
+                }
+            }
+        });
+        measure("nutrition, sequential", () -> sequential.analyzeNutrition(arena, null, null, false));
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ReportEngine engine = new ReportEngine(products, pool, ReportEngine.DEFAULT_PARTITION_SIZE);
+            measure("parallel, " + threads + " thread(s)", () -> {
+                engine.generateSalesReport(orders, true);
+                engine.generateBestSellers(orders, BEST_SELLERS_LIMIT, true);
+            });
+            measure("nutrition, parallel, " + threads + " thread(s)", () -> engine.analyzeNutrition(arena, null, null, true));
+            pool.shutdown();
+            if (threads < cores && threads * 2 > cores) threads = cores / 2;
+        }
+    }
+
+    /**
+     * Runs a task repeatedly and prints its best time.
+     * @param label the label printed with the result
+     * @param task  the task to measure
+     */
+    private static void measure(String label, Runnable task) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %s: best %.1f ms%n", label, best / 1e6);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import menu.MenuManager;
+import models.ProductCatalog;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the time to first prompt, i.e. {@link MenuManager#readInputFiles(String, String, String)}, with the
+ * whole history loaded and with a hot window of recent days, and then the first full sales report, which
+ * pages the history in when it was left on disk. The synthetic history lies entirely outside any recent
+ * window, so the lazy load only indexes it.
+ * Usage: {@code java benchmark.StartupBenchmark [lines...]}, defaulting to 100K, 1M and 4M lines.
+ */
+public class StartupBenchmark {
+    /** The hot window used for the lazy load, in days. */
+    private static final int HOT_DAYS = 30;
+
+    public static void main(String[] args) throws IOException {
+        long[] sizes = args.length == 0 ? new long[] {100_000, 1_000_000, 4_000_000} : new long[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Long.parseLong(args[i]);
+        }
+
+        File menu = File.createTempFile("menu", ".txt");
+        try {
+            ProductCatalog products = SyntheticData.writeMenu(menu, 50, new Random(1));
+            for (long lines : sizes) {
+                File orders = File.createTempFile("orders-" + lines, ".txt");
+                try {
+                    SyntheticData.writeOrders(orders, products, lines, new Random(lines));
+                    System.out.printf("%,d lines (%,d bytes)%n", lines, orders.length());
+                    measure("  eager", menu, orders, 0);
+                    measure("  hot window of " + HOT_DAYS + " days", menu, orders, HOT_DAYS);
+                } finally {
+                    orders.delete();
+                }
+            }
+        } finally {
+            menu.delete();
+        }
+    }
+
+    /**
+     * Loads the input files, then generates a full sales report, and prints how long both took.
+     * @param label   the label printed with the results
+     * @param menu    the menu file
+     * @param orders  the orders file
+     * @param hotDays the hot window in days, or 0 to load everything
+     */
+    private static void measure(String label, File menu, File orders, int hotDays) {
+        File journal = new File(orders.getPath() + ".journal");
+        MenuManager manager = new MenuManager();
+        manager.setHotWindow(hotDays);
+        long begin = System.nanoTime();
+        manager.readInputFiles(menu.getPath(), orders.getPath(), journal.getPath());
+        long loaded = System.nanoTime();
+        int days = manager.generateSalesReport().size();
+        long reported = System.nanoTime();
+        manager.saveOrders();
+        journal.delete();
+        System.out.printf("%s: first prompt after %.1f ms, first full report (%,d days) after %.1f ms more%n",
+                label, (loaded - begin) / 1e6, days, (reported - loaded) / 1e6);
+    }
+}
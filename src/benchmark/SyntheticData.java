@@ -0,0 +1,116 @@
+package benchmark;
+
+import file.TextFile;
+import models.Category;
+import models.Order;
+import models.Product;
+import models.ProductCatalog;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Generates synthetic menus and order histories in the formats read by {@link TextFile}. */
+public class SyntheticData {
+    /** The first day of every generated order history. */
+    public static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    /** The number of days a generated order history spans. */
+    public static final int DAYS = 365;
+    /** The maximum number of products in a generated order. */
+    public static final int MAX_BASKET = 5;
+
+    private SyntheticData() {}
+
+    /**
+     * Writes a menu of alternating food and drink items and reads it back.
+     * @param file     the file to write
+     * @param products the number of products on the menu
+     * @param random   the source of randomness
+     * @return the catalog read from the written file
+     * @throws IOException if the file cannot be written
+     */
+    public static ProductCatalog writeMenu(File file, int products, Random random) throws IOException {
+        Category[] categories = Category.values();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < products; i++) {
+                int price = 10 + random.nextInt(150);
+                if (i % 2 == 0) {
+                    Category category = categories[random.nextInt(categories.length)];
+                    bw.write("food,food_" + i + "," + price + "," + category.name().toLowerCase() + ","
+                            + random.nextInt(800) + " " + random.nextInt(60) + " " + random.nextInt(80) + " "
+                            + random.nextInt(40));
+                } else {
+                    bw.write("drink,drink_" + i + "," + price + "," + random.nextBoolean() + ",250 500");
+                }
+                bw.newLine();
+            }
+        }
+        TextFile menuFile = new TextFile(file.getPath());
+        menuFile.open();
+        return menuFile.readMenu();
+    }
+
+    /**
+     * Writes an order history of random baskets spread evenly over {@link #DAYS} days, in the current
+     * {@code names,value,date,id} format, numbered from 1.
+     * @param file     the file to write
+     * @param products the catalog to draw products from
+     * @param lines    the number of orders to write
+     * @param random   the source of randomness
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeOrders(File file, ProductCatalog products, long lines, Random random) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            String date = null;
+            long day = -1;
+            for (long i = 0; i < lines; i++) {
+                if (i * DAYS / lines != day) {
+                    day = i * DAYS / lines;
+                    date = FIRST_DAY.plusDays(day).toString();
+                }
+                int items = 1 + random.nextInt(MAX_BASKET);
+                int value = 0;
+                for (int j = 0; j < items; j++) {
+                    Product p = products.get(random.nextInt(products.size()));
+                    if (j > 0) bw.write(' ');
+                    bw.write(p.getName());
+                    value += p.getPrice();
+                }
+                bw.write(',');
+                bw.write(Integer.toString(value));
+                bw.write(',');
+                bw.write(date);
+                bw.write(',');
+                bw.write(Long.toString(i + 1));
+                bw.newLine();
+            }
+        }
+    }
+
+    /**
+     * Generates an in-memory order history of random baskets spread evenly over {@link #DAYS} days.
+     * @param products the catalog to draw products from
+     * @param count    the number of orders
+     * @param random   the source of randomness
+     * @return the generated orders, in date order
+     */
+    public static List<Order> generateOrders(ProductCatalog products, int count, Random random) {
+        List<Order> orders = new ArrayList<>(count);
+        LocalDate date = FIRST_DAY;
+        for (int i = 0; i < count; i++) {
+            long day = (long) i * DAYS / count;
+            if (date.toEpochDay() != FIRST_DAY.toEpochDay() + day) date = FIRST_DAY.plusDays(day);
+            Order order = new Order(date);
+            int items = 1 + random.nextInt(MAX_BASKET);
+            for (int j = 0; j < items; j++) {
+                order.add(products.get(random.nextInt(products.size())));
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,153 @@
+package benchmark;
+
+import models.Order;
+import models.Product;
+import models.ProductCatalog;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A model of restaurant traffic used to generate realistic order streams. Product popularity follows a
+ * Zipf distribution over a random ranking of the menu, so the product of rank {@code k} is ordered in
+ * proportion to {@code 1 / k^s}. Basket sizes are one plus a Poisson draw, capped at {@link #MAX_BASKET}.
+ * Over the opening hours the arrival rate follows a base level with a lunch and a dinner peak, scaled
+ * so that the rate averaged over the day is 1.
+ */
+public class TrafficModel {
+    /** The largest basket generated. */
+    public static final int MAX_BASKET = 12;
+    /** The opening time, in hours since midnight. */
+    public static final double OPENING_HOUR = 11;
+    /** The closing time, in hours since midnight. */
+    public static final double CLOSING_HOUR = 23;
+    /** The peaks of the day as (hour, width in hours, height relative to the base level) triples. */
+    private static final double[][] PEAKS = {{12.75, 0.75, 4}, {19.5, 1.0, 5}};
+    /** The number of steps the daily profile is averaged over. */
+    private static final int PROFILE_STEPS = 1000;
+
+    /** The products, by popularity rank. */
+    private Product[] ranked;
+    /** The cumulative Zipf weights, by rank. */
+    private double[] cumulative;
+    /** The mean basket size. */
+    private double meanBasket;
+    /** The mean of the unscaled daily profile. */
+    private double profileMean;
+
+    /**
+     * Creates a new {@code TrafficModel} over the products on a menu.
+     * @param products   the catalog
+     * @param skew       the Zipf exponent; 0 makes every product equally popular
+     * @param meanBasket the mean number of products per order, at least 1
+     * @param random     the source of randomness for the popularity ranking
+     */
+    public TrafficModel(ProductCatalog products, double skew, double meanBasket, Random random) {
+        if (meanBasket < 1) throw new IllegalArgumentException("The mean basket must be at least 1: " + meanBasket);
+        List<Product> menu = new ArrayList<>(products.getProducts());
+        Collections.shuffle(menu, random);
+        ranked = menu.toArray(new Product[0]);
+        cumulative = new double[ranked.length];
+        double total = 0;
+        for (int k = 0; k < ranked.length; k++) {
+            total += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = total;
+        }
+        this.meanBasket = meanBasket;
+        double sum = 0;
+        for (int i = 0; i < PROFILE_STEPS; i++) {
+            sum += profile((i + 0.5) / PROFILE_STEPS);
+        }
+        profileMean = sum / PROFILE_STEPS;
+    }
+
+    /**
+     * Draws a product by popularity.
+     * @param random the source of randomness
+     * @return the product
+     */
+    public Product nextProduct(Random random) {
+        double x = random.nextDouble() * cumulative[cumulative.length - 1];
+        int rank = Arrays.binarySearch(cumulative, x);
+        return ranked[Math.min(rank < 0 ? -rank - 1 : rank, ranked.length - 1)];
+    }
+
+    /**
+     * Draws a basket size.
+     * @param random the source of randomness
+     * @return the number of products, between 1 and {@link #MAX_BASKET}
+     */
+    public int nextBasketSize(Random random) {
+        double limit = Math.exp(-(meanBasket - 1));
+        int extra = 0;
+        for (double p = random.nextDouble(); p > limit; p *= random.nextDouble()) {
+            extra++;
+        }
+        return Math.min(1 + extra, MAX_BASKET);
+    }
+
+    /**
+     * Draws the product ids of a basket.
+     * @param random the source of randomness
+     * @return the ids, possibly repeated
+     */
+    public int[] nextBasket(Random random) {
+        int[] ids = new int[nextBasketSize(random)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nextProduct(random).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Draws an order.
+     * @param date   the date of the order
+     * @param random the source of randomness
+     * @return the order
+     */
+    public Order nextOrder(LocalDate date, Random random) {
+        Order order = new Order(date);
+        int items = nextBasketSize(random);
+        for (int i = 0; i < items; i++) {
+            order.add(nextProduct(random));
+        }
+        return order;
+    }
+
+    /**
+     * Returns the arrival rate at a point of the opening hours relative to the daily mean.
+     * @param dayFraction the elapsed fraction of the opening hours, between 0 and 1
+     * @return the relative rate, averaging 1 over the day
+     */
+    public double rate(double dayFraction) {
+        return profile(dayFraction) / profileMean;
+    }
+
+    /**
+     * Returns the time of day at a point of the opening hours.
+     * @param dayFraction the elapsed fraction of the opening hours, between 0 and 1
+     * @return the time in hours since midnight
+     */
+    public static double hourOf(double dayFraction) {
+        return OPENING_HOUR + dayFraction * (CLOSING_HOUR - OPENING_HOUR);
+    }
+
+    /**
+     * Returns the unscaled arrival rate at a point of the opening hours: a base level of 1 plus a
+     * Gaussian bump for every peak.
+     * @param dayFraction the elapsed fraction of the opening hours
+     * @return the unscaled rate
+     */
+    private static double profile(double dayFraction) {
+        double hour = hourOf(dayFraction);
+        double rate = 1;
+        for (double[] peak : PEAKS) {
+            double z = (hour - peak[0]) / peak[1];
+            rate += peak[2] * Math.exp(-z * z / 2);
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,64 @@
+package export;
+
+/** The formats records can be exported in. */
+public enum ExportFormat {
+    /** Comma-separated values with a header line. */
+    CSV("text/csv"),
+    /** One JSON object per line. */
+    JSON_LINES("application/x-ndjson");
+
+    /** The media type of the format. */
+    private final String contentType;
+
+    /**
+     * Creates a new {@code ExportFormat}.
+     * @param contentType the media type of the format
+     */
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Returns the media type of the format, e.g. for an HTTP response.
+     * @return the content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Returns the format named by a query parameter.
+     * @param name {@code csv} or {@code jsonl}, ignoring case
+     * @return the format
+     * @throws IllegalArgumentException if the name is neither
+     */
+    public static ExportFormat parse(String name) {
+        return switch (name.toLowerCase()) {
+            case "csv" -> CSV;
+            case "jsonl", "ndjson" -> JSON_LINES;
+            default -> throw new IllegalArgumentException("Unknown export format: " + name);
+        };
+    }
+
+    /**
+     * Returns the format of a file from its extension, ignoring a trailing {@code .gz}.
+     * @param name the file name, e.g. {@code sales.csv} or {@code orders.jsonl.gz}
+     * @return the format
+     * @throws IllegalArgumentException if the extension is neither {@code .csv} nor {@code .jsonl}
+     */
+    public static ExportFormat forFile(String name) {
+        String base = isGzip(name) ? name.substring(0, name.length() - 3) : name;
+        int dot = base.lastIndexOf('.');
+        if (dot < 0) throw new IllegalArgumentException("Expected a .csv or .jsonl file: " + name);
+        return parse(base.substring(dot + 1));
+    }
+
+    /**
+     * Returns whether a file should be compressed, i.e. whether its name ends with {@code .gz}.
+     * @param name the file name
+     * @return {@code true} for a gzip file
+     */
+    public static boolean isGzip(String name) {
+        return name.toLowerCase().endsWith(".gz");
+    }
+}
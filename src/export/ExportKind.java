@@ -0,0 +1,54 @@
+package export;
+
+/** The exports an {@link OrderExporter} can produce, each a stream of records with fixed columns. */
+public enum ExportKind {
+    /** Every order: its date, value and products. */
+    ORDERS("orders", "date", "value", "products"),
+    /** The number of orders and the sales of every day. */
+    SALES("sales", "date", "orders", "sales"),
+    /** The best-selling products with their rank. */
+    BEST_SELLERS("best-sellers", "rank", "product", "units", "revenue"),
+    /** The units sold and revenue of every product. */
+    PRODUCTS("products", "product", "units", "revenue");
+
+    /** The name of the export, e.g. in a URL or on the command line. */
+    private final String name;
+    /** The names of the columns. */
+    private final String[] columns;
+
+    /**
+     * Creates a new {@code ExportKind}.
+     * @param name    the name of the export
+     * @param columns the names of the columns
+     */
+    ExportKind(String name, String... columns) {
+        this.name = name;
+        this.columns = columns;
+    }
+
+    /**
+     * Returns the names of the columns.
+     * @return a copy of the column names
+     */
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * Returns the export with a name.
+     * @param name {@code orders}, {@code sales}, {@code best-sellers} or {@code products}
+     * @return the export
+     * @throws IllegalArgumentException if no export has that name
+     */
+    public static ExportKind parse(String name) {
+        for (ExportKind kind : values()) {
+            if (kind.name.equalsIgnoreCase(name)) return kind;
+        }
+        throw new IllegalArgumentException("Unknown export: " + name);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
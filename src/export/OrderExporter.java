@@ -0,0 +1,261 @@
+package export;
+
+import models.Order;
+import models.Product;
+import models.ProductCatalog;
+import reports.ProductRanking;
+import reports.TopK;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import static utils.Constants.BEST_SELLERS_LIMIT;
+
+/**
+ * Exports orders pulled one at a time from an iterator, such as {@link file.TextFile#streamOrders(ProductCatalog)}
+ * or {@link menu.MenuManager#streamOrders()}, as {@link ExportKind raw orders, daily sales, best sellers or
+ * per-product totals}. No collection of orders is built: raw orders are written as they are pulled, and the
+ * reports accumulate into primitive arrays indexed by day or product id, so memory depends on the number of
+ * days and products but not on the number of orders. Orders are pulled only as fast as the output accepts
+ * the records, see {@link RecordWriter}.
+ * <p>
+ * An exporter keeps its writer and arrays between exports and is not thread-safe.
+ */
+public class OrderExporter {
+    /** The catalog the orders' products belong to. */
+    private ProductCatalog products;
+    /** The writer of the records, reused by every export. */
+    private RecordWriter writer = new RecordWriter();
+    /** The format of the records. */
+    private ExportFormat format = ExportFormat.CSV;
+    /** Whether to compress the output. */
+    private boolean gzip;
+    /** The first day of the orders to export, or {@code null} for no lower bound. */
+    private LocalDate from;
+    /** The last day of the orders to export, or {@code null} for no upper bound. */
+    private LocalDate to;
+    /** The maximum number of best sellers. */
+    private int limit = BEST_SELLERS_LIMIT;
+    /** The measure the best sellers are ranked by. */
+    private ProductRanking ranking = ProductRanking.UNITS;
+    /** The units sold of each product. */
+    private long[] units = new long[0];
+    /** The revenue of each product. */
+    private long[] revenue = new long[0];
+    /** The epoch day of the first entry of {@link #dailyOrders} and {@link #dailySales}. */
+    private long firstDay;
+    /** The number of orders of each day from {@link #firstDay}. */
+    private long[] dailyOrders = new long[0];
+    /** The sales of each day from {@link #firstDay}. */
+    private long[] dailySales = new long[0];
+    /** The product names of the order being written. */
+    private StringBuilder names = new StringBuilder();
+
+    /**
+     * Creates a new {@code OrderExporter} writing uncompressed CSV of every order.
+     * @param products the catalog the orders' products belong to
+     */
+    public OrderExporter(ProductCatalog products) {
+        this.products = products;
+    }
+
+    /**
+     * Sets the format of the records and whether to compress them.
+     * @param format the format
+     * @param gzip   whether to compress the output
+     */
+    public void setFormat(ExportFormat format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Restricts the exports to the orders of a date range.
+     * @param from the first day, or {@code null} for no lower bound
+     * @param to   the last day, or {@code null} for no upper bound
+     */
+    public void setRange(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Sets how many best sellers are exported and how they are ranked.
+     * @param limit   the maximum number of products
+     * @param ranking the measure to rank the products by
+     */
+    public void setBestSellers(int limit, ProductRanking ranking) {
+        this.limit = limit;
+        this.ranking = ranking;
+    }
+
+    /**
+     * Exports orders to an output, which stays open.
+     * @param kind   what to export
+     * @param orders the orders, pulled one at a time
+     * @param out    the output
+     * @return the number of records written
+     * @throws IOException if the output cannot be written
+     */
+    public long export(ExportKind kind, Iterator<Order> orders, OutputStream out) throws IOException {
+        writer.begin(out, format, gzip, kind.getColumns());
+        switch (kind) {
+            case ORDERS -> writeOrders(orders);
+            case SALES -> writeSales(orders);
+            case BEST_SELLERS -> writeBestSellers(orders);
+            case PRODUCTS -> writeProducts(orders);
+        }
+        return writer.finish();
+    }
+
+    /**
+     * Writes every order in range as it is pulled.
+     * @param orders the orders
+     * @throws IOException if the output cannot be written
+     */
+    private void writeOrders(Iterator<Order> orders) throws IOException {
+        while (orders.hasNext()) {
+            Order order = orders.next();
+            if (!inRange(order)) continue;
+            names.setLength(0);
+            for (Product p : order.getProducts()) {
+                if (names.length() > 0) names.append(' ');
+                names.append(p.getName());
+            }
+            writer.field(order.getDate());
+            writer.field(order.getValue());
+            writer.field(names);
+            writer.endRecord();
+        }
+    }
+
+    /**
+     * Totals the orders in range by day and writes the days that have orders, in date order.
+     * @param orders the orders
+     * @throws IOException if the output cannot be written
+     */
+    private void writeSales(Iterator<Order> orders) throws IOException {
+        Arrays.fill(dailyOrders, 0);
+        Arrays.fill(dailySales, 0);
+        boolean empty = true;
+        while (orders.hasNext()) {
+            Order order = orders.next();
+            if (!inRange(order)) continue;
+            long day = order.getDate().toEpochDay();
+            if (empty) {
+                firstDay = day;
+                empty = false;
+            }
+            int index = dayIndex(day);
+            dailyOrders[index]++;
+            dailySales[index] += order.getValue();
+        }
+        for (int i = 0; i < dailyOrders.length; i++) {
+            if (dailyOrders[i] == 0) continue;
+            writer.field(LocalDate.ofEpochDay(firstDay + i));
+            writer.field(dailyOrders[i]);
+            writer.field(dailySales[i]);
+            writer.endRecord();
+        }
+    }
+
+    /**
+     * Totals the orders in range by product and writes the best sellers, best first.
+     * @param orders the orders
+     * @throws IOException if the output cannot be written
+     */
+    private void writeBestSellers(Iterator<Order> orders) throws IOException {
+        totalProducts(orders);
+        long[] scores = ranking == ProductRanking.UNITS ? units : revenue;
+        int rank = 0;
+        for (int id : TopK.highestScores(scores, limit)) {
+            writer.field(++rank);
+            writer.field(products.get(id).getName());
+            writer.field(units[id]);
+            writer.field(revenue[id]);
+            writer.endRecord();
+        }
+    }
+
+    /**
+     * Totals the orders in range by product and writes every product on the menu or sold, in id order.
+     * @param orders the orders
+     * @throws IOException if the output cannot be written
+     */
+    private void writeProducts(Iterator<Order> orders) throws IOException {
+        totalProducts(orders);
+        for (int id = 0; id < units.length; id++) {
+            Product product = products.get(id);
+            if (units[id] == 0 && !products.isOnMenu(product)) continue;
+            writer.field(product.getName());
+            writer.field(units[id]);
+            writer.field(revenue[id]);
+            writer.endRecord();
+        }
+    }
+
+    /**
+     * Totals the units sold and revenue of each product over the orders in range.
+     * @param orders the orders
+     */
+    private void totalProducts(Iterator<Order> orders) {
+        int size = products.size();
+        if (units.length != size) {
+            units = new long[size];
+            revenue = new long[size];
+        } else {
+            Arrays.fill(units, 0);
+            Arrays.fill(revenue, 0);
+        }
+        while (orders.hasNext()) {
+            Order order = orders.next();
+            if (!inRange(order)) continue;
+            List<Product> items = order.getProducts();
+            for (int i = 0; i < items.size(); i++) {
+                int id = items.get(i).getId();
+                if (id >= units.length) {
+                    units = Arrays.copyOf(units, Math.max(id + 1, products.size()));
+                    revenue = Arrays.copyOf(revenue, units.length);
+                }
+                units[id]++;
+                revenue[id] += order.getPrice(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a day in the daily arrays, growing them to cover it.
+     * @param day the epoch day
+     * @return the index of the day
+     */
+    private int dayIndex(long day) {
+        if (day < firstDay) {
+            int shift = (int) (firstDay - day);
+            int length = dailyOrders.length + shift;
+            long[] orders = new long[length];
+            long[] sales = new long[length];
+            System.arraycopy(dailyOrders, 0, orders, shift, dailyOrders.length);
+            System.arraycopy(dailySales, 0, sales, shift, dailySales.length);
+            dailyOrders = orders;
+            dailySales = sales;
+            firstDay = day;
+        } else if (day - firstDay >= dailyOrders.length) {
+            int length = (int) Math.max(day - firstDay + 1, 2L * dailyOrders.length);
+            dailyOrders = Arrays.copyOf(dailyOrders, length);
+            dailySales = Arrays.copyOf(dailySales, length);
+        }
+        return (int) (day - firstDay);
+    }
+
+    /**
+     * Returns whether an order falls in the exported date range.
+     * @param order the order
+     * @return {@code true} if the order is in range
+     */
+    private boolean inRange(Order order) {
+        LocalDate date = order.getDate();
+        return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+}
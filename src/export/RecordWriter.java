@@ -0,0 +1,274 @@
+package export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes records of fixed columns as CSV or JSON Lines, optionally gzip-compressed. Fields are encoded
+ * straight into a fixed buffer, without intermediate strings, and the buffer is handed to the output
+ * whenever it fills up. That write blocks until the output accepts the bytes, so a slow consumer such as
+ * a remote client pauses the producer instead of letting records pile up: memory stays bounded by the
+ * buffer however many records are written. A writer is reused across exports through
+ * {@link #begin(OutputStream, ExportFormat, boolean, String...)}, keeping its buffer. A writer is not thread-safe.
+ * <pre>
+ * writer.begin(out, ExportFormat.CSV, false, "date", "sales");
+ * writer.field(date);
+ * writer.field(sales);
+ * writer.endRecord();
+ * writer.finish();
+ * </pre>
+ */
+public class RecordWriter {
+    /** The size of the buffer records are encoded into. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The encoded bytes not yet handed to the output. */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    /** The number of bytes in {@link #buffer}. */
+    private int length;
+    /** The stream the bytes are handed to, compressing them if requested. */
+    private OutputStream out;
+    /** The compressing stream, or {@code null} if the output is not compressed. */
+    private GZIPOutputStream gzip;
+    /** The format of the records. */
+    private ExportFormat format;
+    /** The encoded {@code "column":} prefix of every field in JSON Lines. */
+    private byte[][] keys;
+    /** The position of the next field in the current record. */
+    private int column;
+    /** The number of records written since {@link #begin(OutputStream, ExportFormat, boolean, String...)}. */
+    private long records;
+
+    /**
+     * Starts an export to an output, writing the CSV header line. The output is not closed by the writer.
+     * @param out     the output
+     * @param format  the format of the records
+     * @param gzip    whether to compress the output
+     * @param columns the names of the columns
+     * @throws IOException if the output cannot be written
+     */
+    public void begin(OutputStream out, ExportFormat format, boolean gzip, String... columns) throws IOException {
+        this.gzip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        this.out = gzip ? this.gzip : out;
+        this.format = format;
+        this.length = 0;
+        this.column = 0;
+        this.records = 0;
+        this.keys = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            keys[i] = ("\"" + columns[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                separate();
+                text(columns[i]);
+            }
+            column = 0;
+            newLine();
+        }
+    }
+
+    /**
+     * Writes the next field of the current record as text.
+     * @param value the value
+     * @throws IOException if the output cannot be written
+     */
+    public void field(CharSequence value) throws IOException {
+        separate();
+        text(value);
+    }
+
+    /**
+     * Writes the next field of the current record as a number.
+     * @param value the value
+     * @throws IOException if the output cannot be written
+     */
+    public void field(long value) throws IOException {
+        separate();
+        ensure(20);
+        if (value == Long.MIN_VALUE) {
+            byte[] digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(digits, 0, buffer, length, digits.length);
+            length += digits.length;
+            return;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    /**
+     * Writes the next field of the current record as a {@code yyyy-MM-dd} date.
+     * @param date the date, with a four-digit year
+     * @throws IOException if the output cannot be written
+     */
+    public void field(LocalDate date) throws IOException {
+        separate();
+        ensure(12);
+        boolean json = format == ExportFormat.JSON_LINES;
+        if (json) buffer[length++] = '"';
+        digits(date.getYear(), 4);
+        buffer[length++] = '-';
+        digits(date.getMonthValue(), 2);
+        buffer[length++] = '-';
+        digits(date.getDayOfMonth(), 2);
+        if (json) buffer[length++] = '"';
+    }
+
+    /**
+     * Ends the current record.
+     * @throws IOException if the output cannot be written
+     * @throws IllegalStateException if the record does not have a field for every column
+     */
+    public void endRecord() throws IOException {
+        if (column != keys.length)
+            throw new IllegalStateException("Expected " + keys.length + " fields but got " + column);
+        if (format == ExportFormat.JSON_LINES) {
+            ensure(1);
+            buffer[length++] = '}';
+        }
+        newLine();
+        column = 0;
+        records++;
+    }
+
+    /**
+     * Hands the remaining bytes to the output, ends the compressed stream if any and flushes the output,
+     * which stays open.
+     * @return the number of records written
+     * @throws IOException if the output cannot be written
+     */
+    public long finish() throws IOException {
+        flush();
+        if (gzip != null) gzip.finish();
+        out.flush();
+        out = null;
+        gzip = null;
+        return records;
+    }
+
+    /**
+     * Writes what comes before the next field: a comma, and in JSON Lines the opening brace and the key.
+     * @throws IOException if the output cannot be written
+     * @throws IllegalStateException if the record already has a field for every column
+     */
+    private void separate() throws IOException {
+        if (column >= keys.length) throw new IllegalStateException("Too many fields: " + (column + 1));
+        boolean json = format == ExportFormat.JSON_LINES;
+        byte[] key = json ? keys[column] : null;
+        ensure(1 + (json ? key.length : 0));
+        if (column > 0) buffer[length++] = ',';
+        else if (json) buffer[length++] = '{';
+        if (json) {
+            System.arraycopy(key, 0, buffer, length, key.length);
+            length += key.length;
+        }
+        column++;
+    }
+
+    /**
+     * Writes text as UTF-8, quoted and escaped as the format requires. CSV fields are quoted only if they
+     * hold a comma, a quote or a line break.
+     * @param value the text
+     * @throws IOException if the output cannot be written
+     */
+    private void text(CharSequence value) throws IOException {
+        int n = value.length();
+        ensure(6 * n + 2);
+        boolean json = format == ExportFormat.JSON_LINES;
+        boolean quote = json;
+        for (int i = 0; i < n && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) buffer[length++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer[length++] = json ? (byte) '\\' : (byte) '"';
+                buffer[length++] = '"';
+            } else if (json && c == '\\') {
+                buffer[length++] = '\\';
+                buffer[length++] = '\\';
+            } else if (json && c < 0x20) {
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = (byte) Character.forDigit(c >> 4, 16);
+                buffer[length++] = (byte) Character.forDigit(c & 0xF, 16);
+            } else if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | c >> 6);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                buffer[length++] = (byte) (0xE0 | c >> 12);
+                buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        if (quote) buffer[length++] = '"';
+    }
+
+    /**
+     * Writes a zero-padded number of a date.
+     * @param value the number
+     * @param width the number of digits
+     */
+    private void digits(int value, int width) {
+        for (int i = length + width - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += width;
+    }
+
+    /**
+     * Ends a line.
+     * @throws IOException if the output cannot be written
+     */
+    private void newLine() throws IOException {
+        ensure(1);
+        buffer[length++] = '\n';
+    }
+
+    /**
+     * Makes room for a number of bytes, handing the buffer to the output if it is too full.
+     * @param bytes the number of bytes about to be written
+     * @throws IOException if the output cannot be written
+     */
+    private void ensure(int bytes) throws IOException {
+        if (length + bytes <= buffer.length) return;
+        flush();
+        if (bytes > buffer.length) buffer = new byte[Math.max(bytes, 2 * buffer.length)];
+    }
+
+    /**
+     * Hands the buffered bytes to the output, waiting until it accepts them.
+     * @throws IOException if the output cannot be written
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
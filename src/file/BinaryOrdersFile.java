@@ -0,0 +1,203 @@
+package file;
+
+import models.IdentifiedOrders;
+import models.Order;
+import models.OrderArena;
+import models.Product;
+import models.ProductCatalog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes orders in a compact binary columnar format.
+ * <p>
+ * The file holds, in order: the magic number and format version; a dictionary of product names,
+ * whose positions are the product ids used below; the order and item counts; one epoch-day int
+ * per order; one int per order holding the value that was charged; one long per order holding its id;
+ * {@code orderCount + 1} offsets into the item column; and the item column itself, one product id per
+ * item, stored in 1, 2 or 4 bytes depending on the dictionary size. Older files are still read: version 2
+ * files have no id column, so their orders are numbered by position, and version 1 files have no value
+ * column either, so their orders are also valued at the current prices.
+ * Files are memory-mapped when read, which limits them to 2 GB.
+ */
+public class BinaryOrdersFile {
+    /** The magic number at the start of every file ({@code "ORDB"}). */
+    private static final int MAGIC = 0x4F524442;
+    /** The version of the format written by this class. */
+    private static final int VERSION = 3;
+    /** The size of the buffer used to write the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The path of the binary file. */
+    private Path path;
+
+    /**
+     * Creates a new {@code BinaryOrdersFile} with the specified file name.
+     * @param name the name of the binary file
+     */
+    public BinaryOrdersFile(String name) {
+        this.path = Path.of(name);
+    }
+
+    /**
+     * Saves the given orders with their ids, encoding each product by its catalog id.
+     * @param orders   the orders to save
+     * @param products the catalog the orders' products belong to
+     */
+    public void saveOrders(IdentifiedOrders orders, ProductCatalog products) {
+        int itemCount = 0;
+        for (Order o : orders) {
+            itemCount += o.getProducts().size();
+        }
+        int idWidth = idWidth(products.size());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(products.size());
+            for (int id = 0; id < products.size(); id++) {
+                byte[] name = products.get(id).getName().getBytes(StandardCharsets.UTF_8);
+                ensure(channel, buffer, Short.BYTES + name.length);
+                buffer.putShort((short) name.length).put(name);
+            }
+            ensure(channel, buffer, 2 * Integer.BYTES);
+            buffer.putInt(orders.size()).putInt(itemCount);
+
+            for (Order o : orders) {
+                ensure(channel, buffer, Integer.BYTES);
+                buffer.putInt((int) o.getDate().toEpochDay());
+            }
+            for (Order o : orders) {
+                ensure(channel, buffer, Integer.BYTES);
+                buffer.putInt(o.getValue());
+            }
+            for (int i = 0; i < orders.size(); i++) {
+                ensure(channel, buffer, Long.BYTES);
+                buffer.putLong(orders.getId(i));
+            }
+            int offset = 0;
+            ensure(channel, buffer, Integer.BYTES);
+            buffer.putInt(offset);
+            for (Order o : orders) {
+                offset += o.getProducts().size();
+                ensure(channel, buffer, Integer.BYTES);
+                buffer.putInt(offset);
+            }
+            for (Order o : orders) {
+                for (Product p : o.getProducts()) {
+                    ensure(channel, buffer, idWidth);
+                    if (idWidth == Byte.BYTES) buffer.put((byte) p.getId());
+                    else if (idWidth == Short.BYTES) buffer.putShort((short) p.getId());
+                    else buffer.putInt(p.getId());
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the orders from the binary file.
+     * @param products the catalog used to resolve the product names of the dictionary
+     * @return an {@link OrderArena} holding the orders read from the file
+     */
+    public OrderArena readOrders(ProductCatalog products) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) throw new IllegalArgumentException(path + " is not a binary orders file");
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) throw new IllegalArgumentException("Unsupported orders file version " + version);
+
+            Product[] dictionary = new Product[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                dictionary[i] = products.resolve(new String(name, StandardCharsets.UTF_8));
+            }
+            int orderCount = buffer.getInt();
+            int itemCount = buffer.getInt();
+            int idWidth = idWidth(dictionary.length);
+
+            int[] dates = new int[orderCount];
+            buffer.asIntBuffer().get(dates);
+            buffer.position(buffer.position() + orderCount * Integer.BYTES);
+            int[] values = null;
+            if (version >= 2) {
+                values = new int[orderCount];
+                buffer.asIntBuffer().get(values);
+                buffer.position(buffer.position() + orderCount * Integer.BYTES);
+            }
+            long[] orderIds = null;
+            if (version >= 3) {
+                orderIds = new long[orderCount];
+                buffer.asLongBuffer().get(orderIds);
+                buffer.position(buffer.position() + orderCount * Long.BYTES);
+            }
+            int[] offsets = new int[orderCount + 1];
+            buffer.asIntBuffer().get(offsets);
+            buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+            if (offsets[orderCount] != itemCount) throw new IllegalArgumentException(path + " is corrupt");
+
+            int[] ids = new int[itemCount];
+            for (int j = 0; j < itemCount; j++) {
+                int id;
+                if (idWidth == Byte.BYTES) id = Byte.toUnsignedInt(buffer.get());
+                else if (idWidth == Short.BYTES) id = Short.toUnsignedInt(buffer.getShort());
+                else id = buffer.getInt();
+                ids[j] = dictionary[id].getId();
+            }
+            OrderArena orders = new OrderArena(products);
+            for (int i = 0; i < orderCount; i++) {
+                int value = 0;
+                if (values != null) {
+                    value = values[i];
+                } else {
+                    for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                        value += products.get(ids[j]).getPrice();
+                    }
+                }
+                orders.add(dates[i], value, ids, offsets[i], offsets[i + 1] - offsets[i]);
+                if (orderIds != null) orders.setOrderId(i, orderIds[i]);
+            }
+            return orders;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the number of bytes used to store a product id.
+     * @param dictionarySize the number of products in the dictionary
+     * @return 1, 2 or 4
+     */
+    private static int idWidth(int dictionarySize) {
+        if (dictionarySize <= 1 << 8) return Byte.BYTES;
+        if (dictionarySize <= 1 << 16) return Short.BYTES;
+        return Integer.BYTES;
+    }
+
+    /**
+     * Writes out the buffer if it cannot take the given number of bytes.
+     * @param channel the channel to write to
+     * @param buffer  the write buffer
+     * @param bytes   the number of bytes about to be put
+     * @throws IOException if the file cannot be written
+     */
+    private static void ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) return;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,397 @@
+package file;
+
+import models.Product;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * A reusable cursor over the lines of a comma-separated text file held in a {@link ByteBuffer}, such as
+ * the menu and orders files. Fields are separated by commas and the values inside a field by spaces;
+ * each {@link #nextToken()} moves to the next value, which is then parsed in place as an int, double,
+ * boolean, enum, date or product, without building intermediate strings. Repeated dates are parsed once.
+ * A cursor is not thread-safe.
+ */
+public class CsvCursor {
+    /** The exact powers of ten a decimal mantissa is divided by. */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /** The bytes being read. */
+    private ByteBuffer buffer;
+    /** The offset just past the last byte to read. */
+    private int limit;
+    /** The offset of the next line. */
+    private int next;
+    /** The offset of the current line. */
+    private int lineStart;
+    /** The offset just past the current line, excluding its terminator. */
+    private int lineEnd;
+    /** The offset of the next token in the current line. */
+    private int position;
+    /** The offset of the current token. */
+    private int tokenStart;
+    /** The offset just past the current token. */
+    private int tokenEnd;
+    /** The delimiter after the current token: a comma, a space, or {@code '\n'} at the end of the line. */
+    private byte delimiter;
+    /** The year, month and day of the last parsed date, as {@code yyyyMMdd}. */
+    private int lastDateKey = -1;
+    /** The last parsed date. */
+    private LocalDate lastDate;
+
+    /**
+     * Creates a new {@code CsvCursor} over the remaining bytes of a buffer.
+     * @param buffer the buffer to read
+     */
+    public CsvCursor(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    /**
+     * Moves the cursor to the remaining bytes of another buffer, keeping its date cache.
+     * @param buffer the buffer to read
+     */
+    public void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.next = buffer.position();
+        this.lineStart = next;
+        this.lineEnd = next;
+        this.position = next;
+    }
+
+    /**
+     * Moves to the next non-empty line.
+     * @return {@code false} if there are no more lines
+     */
+    public boolean nextLine() {
+        while (next < limit) {
+            int start = next;
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') end++;
+            next = end + 1;
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+            if (end > start) {
+                position = lineStart = start;
+                lineEnd = end;
+                return true;
+            }
+        }
+        position = lineStart = lineEnd = limit;
+        return false;
+    }
+
+    /**
+     * Moves to the next token of the current line.
+     * @return {@code false} if the line has no more tokens
+     */
+    public boolean nextToken() {
+        if (position > lineEnd) return false;
+        tokenStart = position;
+        int i = position;
+        while (i < lineEnd) {
+            byte b = buffer.get(i);
+            if (b == ',' || b == ' ') break;
+            i++;
+        }
+        tokenEnd = i;
+        delimiter = i < lineEnd ? buffer.get(i) : (byte) '\n';
+        position = i + 1;
+        return true;
+    }
+
+    /**
+     * Returns whether the current token is empty, as between two adjacent delimiters.
+     * @return {@code true} if the token has no bytes
+     */
+    public boolean emptyToken() {
+        return tokenStart == tokenEnd;
+    }
+
+    /**
+     * Returns whether the current token has the {@code yyyy-MM-dd} shape of a date, without parsing it.
+     * @return {@code true} if the token is ten bytes long with dashes in the date positions
+     */
+    public boolean dateToken() {
+        return tokenEnd - tokenStart == 10 && buffer.get(tokenStart + 4) == '-' && buffer.get(tokenStart + 7) == '-';
+    }
+
+    /**
+     * Returns whether the current token is the last value of its field.
+     * @return {@code true} if the token is followed by a comma or the end of the line
+     */
+    public boolean endOfField() {
+        return delimiter != ' ';
+    }
+
+    /**
+     * Returns whether the current token is the last one of the line.
+     * @return {@code true} if the token is followed by the end of the line
+     */
+    public boolean endOfLine() {
+        return delimiter == '\n';
+    }
+
+    /**
+     * Moves to the next token and parses it as an int.
+     * @return the parsed value
+     * @throws IllegalArgumentException if there is no token or it is not an int
+     */
+    public int nextInt() {
+        require();
+        return intValue();
+    }
+
+    /**
+     * Moves to the next token and parses it as a double.
+     * @return the parsed value
+     * @throws IllegalArgumentException if there is no token or it is not a number
+     */
+    public double nextDouble() {
+        require();
+        return doubleValue();
+    }
+
+    /**
+     * Moves to the next token and parses it as a boolean the way {@link Boolean#parseBoolean(String)} does.
+     * @return {@code true} if the token is {@code true}, ignoring case
+     * @throws IllegalArgumentException if there is no token
+     */
+    public boolean nextBoolean() {
+        require();
+        return booleanValue();
+    }
+
+    /**
+     * Moves to the next token and matches it against the names of enum constants, ignoring case.
+     * @param constants the constants to match, e.g. from {@code values()}
+     * @param <E>       the enum type
+     * @return the matching constant
+     * @throws IllegalArgumentException if there is no token or it matches no constant
+     */
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        require();
+        return enumValue(constants);
+    }
+
+    /**
+     * Moves to the next token and parses it as a {@code yyyy-MM-dd} date.
+     * @return the parsed date
+     * @throws IllegalArgumentException if there is no token or it is not a date
+     */
+    public LocalDate nextDate() {
+        require();
+        return dateValue();
+    }
+
+    /**
+     * Moves to the next token and decodes it.
+     * @return the token as a new string
+     * @throws IllegalArgumentException if there is no token
+     */
+    public String nextString() {
+        require();
+        return stringValue();
+    }
+
+    /**
+     * Parses the current token as an int.
+     * @return the parsed value
+     * @throws IllegalArgumentException if the token is not an int
+     */
+    public int intValue() {
+        int i = tokenStart;
+        boolean negative = i < tokenEnd && buffer.get(i) == '-';
+        if (negative || i < tokenEnd && buffer.get(i) == '+') i++;
+        if (i == tokenEnd) throw malformed("int");
+        long value = 0;
+        for (; i < tokenEnd; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) throw malformed("int");
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) throw malformed("int");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) throw malformed("int");
+        return (int) value;
+    }
+
+    /**
+     * Parses the current token as a non-negative long, such as an order id.
+     * @return the parsed value
+     * @throws IllegalArgumentException if the token is not a non-negative long
+     */
+    public long longValue() {
+        if (tokenStart == tokenEnd || tokenEnd - tokenStart > 18) throw malformed("long");
+        long value = 0;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) throw malformed("long");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the current token as a double. Plain decimals of up to 15 significant digits are parsed in
+     * place and rounded exactly as {@link Double#parseDouble(String)} would; other forms fall back to it.
+     * @return the parsed value
+     * @throws IllegalArgumentException if the token is not a number
+     */
+    public double doubleValue() {
+        int i = tokenStart;
+        boolean negative = i < tokenEnd && buffer.get(i) == '-';
+        if (negative || i < tokenEnd && buffer.get(i) == '+') i++;
+        long mantissa = 0;
+        int length = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < tokenEnd; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9') {
+                length++;
+                if (mantissa > 0 || b != '0') digits++;
+                mantissa = mantissa * 10 + (b - '0');
+                if (point) scale++;
+                if (digits > 15) break;
+            } else {
+                break;
+            }
+        }
+        if (i < tokenEnd || length == 0 || scale >= POWERS_OF_TEN.length || digits > 15) {
+            try {
+                return Double.parseDouble(stringValue());
+            } catch (NumberFormatException e) {
+                throw malformed("number");
+            }
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the current token as a boolean the way {@link Boolean#parseBoolean(String)} does.
+     * @return {@code true} if the token is {@code true}, ignoring case
+     */
+    public boolean booleanValue() {
+        return matchesIgnoreCase("true");
+    }
+
+    /**
+     * Matches the current token against the names of enum constants, ignoring case.
+     * @param constants the constants to match, e.g. from {@code values()}
+     * @param <E>       the enum type
+     * @return the matching constant
+     * @throws IllegalArgumentException if the token matches no constant
+     */
+    public <E extends Enum<E>> E enumValue(E[] constants) {
+        for (E constant : constants) {
+            if (matchesIgnoreCase(constant.name())) return constant;
+        }
+        throw malformed("constant");
+    }
+
+    /**
+     * Parses the current token as a {@code yyyy-MM-dd} date, reusing the last date if it is the same.
+     * @return the parsed date
+     * @throws IllegalArgumentException if the token is not a date
+     */
+    public LocalDate dateValue() {
+        if (!dateToken()) throw malformed("date");
+        int key = digits(tokenStart, 4) * 10000 + digits(tokenStart + 5, 2) * 100 + digits(tokenStart + 8, 2);
+        if (key != lastDateKey) {
+            try {
+                lastDate = LocalDate.of(key / 10000, key / 100 % 100, key % 100);
+            } catch (DateTimeException e) {
+                throw malformed("date");
+            }
+            lastDateKey = key;
+        }
+        return lastDate;
+    }
+
+    /**
+     * Looks up the product named by the current token.
+     * @param names the names to look the token up in
+     * @return the matching product, or {@code null} if there is none
+     */
+    public Product productValue(ProductNames names) {
+        return names.get(buffer, tokenStart, tokenEnd - tokenStart);
+    }
+
+    /**
+     * Decodes the current token.
+     * @return the token as a new string
+     */
+    public String stringValue() {
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        buffer.get(tokenStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the current line, for error messages.
+     * @return the line as a new string
+     */
+    public String line() {
+        byte[] bytes = new byte[lineEnd - lineStart];
+        buffer.get(lineStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves to the next token, which must exist.
+     * @throws IllegalArgumentException if the line has no more tokens
+     */
+    private void require() {
+        if (!nextToken()) throw new IllegalArgumentException("Missing field in line: " + line());
+    }
+
+    /**
+     * Compares the current token with ASCII text, ignoring case.
+     * @param text the text
+     * @return {@code true} if they are equal
+     */
+    private boolean matchesIgnoreCase(String text) {
+        if (tokenEnd - tokenStart != text.length()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            int a = buffer.get(tokenStart + i);
+            int b = text.charAt(i);
+            if (a >= 'A' && a <= 'Z') a += 'a' - 'A';
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (a != b) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a run of decimal digits of a date.
+     * @param start  the offset of the first digit
+     * @param length the number of digits
+     * @return the parsed value
+     */
+    private int digits(int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) throw malformed("date");
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Creates the exception for a token that cannot be parsed.
+     * @param expected what the token should have been
+     * @return the exception
+     */
+    private IllegalArgumentException malformed(String expected) {
+        return new IllegalArgumentException("Malformed " + expected + " '" + stringValue() + "' in line: " + line());
+    }
+}
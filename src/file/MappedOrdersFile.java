@@ -0,0 +1,161 @@
+package file;
+
+import models.OrderArena;
+import models.ProductCatalog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads an orders file in the {@link TextFile} format by memory-mapping it, cutting it into
+ * newline-aligned chunks and parsing the chunks in parallel on a {@link ForkJoinPool}.
+ * Each chunk's lines are parsed in place by a {@link CsvCursor}, through the same code {@link TextFile}
+ * reads them with, so no intermediate strings are built per line, and the orders are stored straight
+ * into an {@link OrderArena}.
+ */
+public class MappedOrdersFile {
+    /** The default number of bytes handed to a single parsing task. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** The path of the orders file. */
+    private Path path;
+    /** The target size of a chunk in bytes; chunks are extended to the next line end. */
+    private int chunkSize;
+    /** The pool that parses the chunks. */
+    private ForkJoinPool pool;
+
+    /**
+     * Creates a new {@code MappedOrdersFile} using the default chunk size and the common pool.
+     * @param name the name of the orders file
+     */
+    public MappedOrdersFile(String name) {
+        this(name, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new {@code MappedOrdersFile}.
+     * @param name      the name of the orders file
+     * @param chunkSize the target size of a chunk in bytes
+     * @param pool      the pool that parses the chunks
+     */
+    public MappedOrdersFile(String name, int chunkSize, ForkJoinPool pool) {
+        this.path = Path.of(name);
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+    }
+
+    /**
+     * Reads the orders from the file, in file order.
+     * @param products the catalog used to resolve the product names of each order
+     * @return an {@link OrderArena} holding the orders read from the file
+     */
+    public OrderArena readOrders(ProductCatalog products) {
+        return readOrders(products, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the orders of a byte range of the file, in file order.
+     * @param products the catalog used to resolve the product names of each order
+     * @param from     the offset of the first line to read; must be the start of a line
+     * @param to       the offset just past the last line to read, capped at the file size; must be a line start
+     * @return an {@link OrderArena} holding the orders read from the range
+     */
+    public OrderArena readOrders(ProductCatalog products, long from, long to) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.min(to, channel.size());
+            ProductNames names = new ProductNames(products);
+            List<ChunkTask> tasks = new ArrayList<>();
+            long start = from;
+            while (start < size) {
+                long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                tasks.add(new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), names,
+                        products));
+                start = end;
+            }
+
+            OrderArena orders = new OrderArena(products);
+            if (tasks.size() == 1) {
+                orders.append(tasks.get(0).compute());
+            } else if (!tasks.isEmpty()) {
+                pool.invoke(new RecursiveTask<Void>() {
+                    @Override
+                    protected Void compute() {
+                        invokeAll(tasks);
+                        return null;
+                    }
+                });
+                for (ChunkTask task : tasks) {
+                    orders.append(task.join());
+                }
+            }
+            return orders;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the offset of the first line that starts at or after {@code position}.
+     * @param channel  the channel of the orders file
+     * @param position the tentative chunk boundary
+     * @param size     the size of the file
+     * @return the offset just past the first newline at or after {@code position - 1}, or {@code size}
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) return size;
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return offset + i + 1;
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /** Parses the orders of one newline-aligned chunk of the file. */
+    private static class ChunkTask extends RecursiveTask<OrderArena> {
+        /** The mapped bytes of the chunk. */
+        private MappedByteBuffer buffer;
+        /** The byte-level index of product names. */
+        private ProductNames names;
+        /** The catalog the product ids refer to. */
+        private ProductCatalog products;
+        /** The product ids of the line being parsed. */
+        private int[] ids = new int[16];
+
+        /**
+         * Creates a new {@code ChunkTask}.
+         * @param buffer   the mapped bytes of the chunk
+         * @param names    the byte-level index of product names
+         * @param products the catalog the product ids refer to
+         */
+        ChunkTask(MappedByteBuffer buffer, ProductNames names, ProductCatalog products) {
+            this.buffer = buffer;
+            this.names = names;
+            this.products = products;
+        }
+
+        @Override
+        protected OrderArena compute() {
+            OrderArena orders = new OrderArena(products);
+            CsvCursor cursor = new CsvCursor(buffer);
+            while (cursor.nextLine()) {
+                ids = TextFile.readOrder(cursor, products, names, ids, orders);
+            }
+            return orders;
+        }
+    }
+}
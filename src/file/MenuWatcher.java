@@ -0,0 +1,103 @@
+package file;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import utils.ThreadPools;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Watches a menu file and reloads the menu whenever the file changes. The file's directory is
+ * registered with a {@link WatchService} and the reload runs on the watcher's own daemon thread.
+ * After a change the watcher waits for the file to settle, so an editor that truncates the file and
+ * then writes it triggers a single reload of the finished file. A reload that fails, e.g. on a
+ * malformed line, is counted and the previous menu stays in place.
+ */
+public class MenuWatcher implements AutoCloseable {
+    /** How long to wait after a change for further changes before reloading, in milliseconds. */
+    private static final long SETTLE_MILLIS = 200;
+    /** The number of successful reloads. */
+    private static final Counter RELOADS = MetricsRegistry.getDefault().counter("menu.reloads");
+    /** The number of reloads that failed and left the previous menu in place. */
+    private static final Counter RELOAD_FAILURES = MetricsRegistry.getDefault().counter("menu.reloadFailures");
+
+    /** The absolute path of the menu file. */
+    private Path path;
+    /** The reload to run when the file changes. */
+    private Runnable reload;
+    /** The watch service the file's directory is registered with. */
+    private WatchService service;
+    /** The thread waiting for changes. */
+    private Thread thread;
+
+    /**
+     * Creates a new {@code MenuWatcher} and starts watching.
+     * @param name   the name of the menu file
+     * @param reload the reload to run when the file changes
+     */
+    public MenuWatcher(String name, Runnable reload) {
+        this.path = Path.of(name).toAbsolutePath();
+        this.reload = reload;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        thread = ThreadPools.daemonThreads("menu-watcher").newThread(this::watch);
+        thread.start();
+    }
+
+    /** Waits for changes to the menu file and reloads it, until the watcher is closed. */
+    private void watch() {
+        try {
+            while (true) {
+                if (!changed(service.take())) continue;
+                Thread.sleep(SETTLE_MILLIS);
+                WatchKey key;
+                while ((key = service.poll()) != null) {
+                    changed(key);
+                }
+                try {
+                    reload.run();
+                    RELOADS.increment();
+                } catch (RuntimeException e) {
+                    RELOAD_FAILURES.increment();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Consumes the events of a watch key and re-arms it.
+     * @param key the signalled key
+     * @return {@code true} if any event was about the menu file
+     */
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (path.getFileName().equals(event.context())) changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+
+    /** Stops watching the menu file. */
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,124 @@
+package file;
+
+import models.Order;
+import models.Product;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes orders as UTF-8 lines in the {@link TextFile} format straight into a {@link ByteBuffer}.
+ * The encoded name of each product is cached by product id and dates are written digit by digit,
+ * so encoding an order allocates nothing once every product has been seen.
+ * An encoder is not thread-safe.
+ */
+public class OrderEncoder {
+    /** The encoded product names, by product id. */
+    private byte[][] names = new byte[64][];
+
+    /**
+     * Encodes an order and its id followed by a line terminator, if it fits in the buffer.
+     * @param order  the order to encode
+     * @param id     the order id, or 0 to leave the id field out
+     * @param buffer the buffer to encode into
+     * @return {@code true} if the order was encoded, {@code false} if the buffer did not have room;
+     *         the buffer is left untouched in that case
+     */
+    public boolean encode(Order order, long id, ByteBuffer buffer) {
+        if (buffer.remaining() < length(order, id)) return false;
+        List<Product> products = order.getProducts();
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) buffer.put((byte) ' ');
+            buffer.put(name(products.get(i)));
+        }
+        buffer.put((byte) ',');
+        putDigits(order.getValue(), digits(order.getValue()), buffer);
+        buffer.put((byte) ',');
+        putDate(order.getDate(), buffer);
+        if (id != 0) {
+            buffer.put((byte) ',');
+            putDigits(id, digits(id), buffer);
+        }
+        buffer.put((byte) '\n');
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes {@link #encode(Order, long, ByteBuffer)} needs for an order.
+     * @param order the order to measure
+     * @param id    the order id, or 0 if it is left out
+     * @return the encoded length, including the line terminator
+     */
+    public int length(Order order, long id) {
+        List<Product> products = order.getProducts();
+        int length = 12 + Math.max(1, products.size()) + digits(order.getValue()) + (id == 0 ? 0 : 1 + digits(id));
+        for (int i = 0; i < products.size(); i++) {
+            length += name(products.get(i)).length;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the encoded name of a product, caching it for catalog products.
+     * @param product the product
+     * @return the UTF-8 bytes of its name
+     */
+    private byte[] name(Product product) {
+        int id = product.getId();
+        if (id < 0) return product.getName().getBytes(StandardCharsets.UTF_8);
+        if (id >= names.length) names = Arrays.copyOf(names, Math.max(2 * names.length, id + 1));
+        byte[] name = names[id];
+        if (name == null) {
+            name = product.getName().getBytes(StandardCharsets.UTF_8);
+            names[id] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of decimal digits of an order value or id.
+     * @param value the value, which must not be negative
+     * @return the number of digits, at least 1
+     */
+    private static int digits(long value) {
+        if (value < 0) throw new IllegalArgumentException("Negative order value: " + value);
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes a date in the {@code yyyy-MM-dd} format.
+     * @param date   the date, whose year must have four digits
+     * @param buffer the buffer to write to
+     */
+    private static void putDate(LocalDate date, ByteBuffer buffer) {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) throw new IllegalArgumentException("Unsupported order date: " + date);
+        putDigits(year, 4, buffer);
+        buffer.put((byte) '-');
+        putDigits(date.getMonthValue(), 2, buffer);
+        buffer.put((byte) '-');
+        putDigits(date.getDayOfMonth(), 2, buffer);
+    }
+
+    /**
+     * Writes a zero-padded decimal number.
+     * @param value  the number
+     * @param width  the number of digits
+     * @param buffer the buffer to write to
+     */
+    private static void putDigits(long value, int width, ByteBuffer buffer) {
+        int position = buffer.position();
+        for (int i = width - 1; i >= 0; i--) {
+            buffer.put(position + i, (byte) ('0' + (int) (value % 10)));
+            value /= 10;
+        }
+        buffer.position(position + width);
+    }
+}
@@ -0,0 +1,477 @@
+package file;
+
+import models.IdentifiedOrders;
+import models.Order;
+import models.OrderArena;
+import models.ProductCatalog;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of the orders added and removed since the orders snapshot was last written.
+ * <p>
+ * The journal starts with a header line {@code #length:crc:nextId} identifying the snapshot it applies to
+ * and the id the next order gets, so the ids of orders deleted before the snapshot was written are not
+ * handed out again. One record per line follows: {@code +<order line>} for an added order, with its id,
+ * and {@code -#<id>} for the removal of the order with that id; journals written before ids were stored
+ * hold {@code -<index>} records for the removal of the order at that position, which are still replayed.
+ * Appends are group-committed: a caller returns once its record has been forced to disk, and a single
+ * fsync covers every record appended before it.
+ * <p>
+ * Compaction runs in three steps so that appends carry on while the snapshot is written: {@link #mark()}
+ * notes the end of the journal when the orders to write were captured, {@link #writeSnapshot(Consumer)}
+ * writes them, off any lock, as a new snapshot, and {@link #finishCompaction(long, long)} starts a new
+ * journal on top of it holding only the records appended after the mark.
+ */
+public class OrderJournal {
+    /** The initial size of the buffers records are encoded into. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** The number of bytes at each end of a large snapshot covered by the header checksum. */
+    private static final long HEADER_SAMPLE = 1024 * 1024;
+
+    /** The path of the journal file. */
+    private Path path;
+    /** The path of the orders snapshot the journal applies to. */
+    private Path snapshot;
+    /** The path a new snapshot is written to before it replaces the old one. */
+    private Path pendingSnapshot;
+    /** The path a new journal is written to before it replaces the old one. */
+    private Path pendingJournal;
+    /** The text format used for order records. */
+    private TextFile format = new TextFile(null);
+    /** The channel records are appended to, once the journal has been replayed. */
+    private FileChannel channel;
+    /** The encoder of added orders; guarded by {@code this}. */
+    private OrderEncoder encoder = new OrderEncoder();
+    /** The encoded records that have not been written yet; guarded by {@code this}. */
+    private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The buffer swapped in for {@link #pending} by the next commit; guarded by {@link #commitLock}. */
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /** The sequence number of the last appended record; guarded by {@code this}. */
+    private long appended;
+    /** The sequence number of the last record forced to disk; guarded by {@link #commitLock}. */
+    private long durable;
+    /** The length of the journal in bytes, counting records queued but not written yet; guarded by {@code this}. */
+    private long length;
+    /** The length of the snapshot the journal applies to; guarded by {@code this}. */
+    private long snapshotLength;
+    /** The header identifying the snapshot last written by {@link #writeSnapshot(Consumer)}. */
+    private volatile String pendingHeader;
+    /** The lock held while a batch of records is written and forced. */
+    private final Object commitLock = new Object();
+
+    /**
+     * Creates a new {@code OrderJournal}.
+     * @param name         the name of the journal file
+     * @param snapshotName the name of the orders snapshot the journal applies to
+     */
+    public OrderJournal(String name, String snapshotName) {
+        this.path = Path.of(name);
+        this.snapshot = Path.of(snapshotName);
+        this.pendingSnapshot = Path.of(snapshotName + ".tmp");
+        this.pendingJournal = Path.of(name + ".tmp");
+    }
+
+    /**
+     * Finishes a compaction interrupted by a crash and makes sure the journal exists.
+     * Must be called before the snapshot is loaded.
+     */
+    public void recover() {
+        try {
+            Files.deleteIfExists(pendingJournal);
+            if (!Files.exists(path)) {
+                Files.deleteIfExists(pendingSnapshot);
+                if (!Files.exists(snapshot)) Files.createFile(snapshot);
+                writeJournal(pendingJournal, header(snapshot));
+                Files.move(pendingJournal, path, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            String header = snapshotHeader(readHeader());
+            if (Files.exists(pendingSnapshot)) {
+                if (header.equals(header(pendingSnapshot))) {
+                    Files.move(pendingSnapshot, snapshot,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.delete(pendingSnapshot);
+                }
+            }
+            if (!header.equals(header(snapshot)))
+                throw new IllegalStateException(path + " does not belong to " + snapshot);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies the journalled records to the orders loaded from the snapshot and opens the journal for appends.
+     * Added orders get the ids they were journalled with. A torn record at the end of the journal, left by
+     * a crash during a write, is discarded.
+     * @param orders   the orders loaded from the snapshot; updated in place
+     * @param products the catalog used to resolve product names
+     */
+    public synchronized void replay(IdentifiedOrders orders, ProductCatalog products) {
+        try {
+            byte[] bytes = Files.readAllBytes(path);
+            int start = 0;
+            long valid = 0;
+            boolean headerRead = false;
+            OrderArena added = new OrderArena(products);
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] != '\n') continue;
+                String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+                if (!headerRead) {
+                    headerRead = true;
+                    int nextId = line.indexOf(':', line.indexOf(':') + 1);
+                    if (nextId > 0) orders.reserveIds(Long.parseLong(line.substring(nextId + 1)));
+                } else if (line.startsWith("+")) {
+                    added.clear();
+                    format.readOrder(line.substring(1), added);
+                    orders.reserveIds(added.getOrderId(0));
+                    orders.add(added.get(0));
+                } else if (line.startsWith("-#")) {
+                    int index = orders.positionOf(Long.parseLong(line.substring(2)));
+                    if (index >= 0) orders.remove(index);
+                } else if (line.startsWith("-")) {
+                    orders.remove(Integer.parseInt(line.substring(1)));
+                }
+                start = i + 1;
+                valid = start;
+            }
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(valid);
+            channel.position(valid);
+            length = valid;
+            snapshotLength = Files.size(snapshot);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Durably records that an order was added at the end of the order list.
+     * @param id    the id of the added order
+     * @param order the added order
+     */
+    public void appendAdd(long id, Order order) {
+        awaitDurable(enqueueAdd(id, order));
+    }
+
+    /**
+     * Durably records that the order with the given id was removed.
+     * @param id the id of the removed order
+     */
+    public void appendRemove(long id) {
+        awaitDurable(enqueueRemove(id));
+    }
+
+    /**
+     * Queues the record of an added order without waiting for it to reach the disk. Lets a caller
+     * that orders records under its own lock wait for durability after releasing that lock.
+     * @param id    the id of the added order
+     * @param order the added order
+     * @return the sequence number to pass to {@link #awaitDurable(long)}
+     */
+    public synchronized long enqueueAdd(long id, Order order) {
+        int bytes = 1 + encoder.length(order, id);
+        reserve(bytes);
+        int start = pending.position();
+        try {
+            pending.put((byte) '+');
+            encoder.encode(order, id, pending);
+        } catch (RuntimeException e) {
+            pending.position(start);
+            throw e;
+        }
+        length += bytes;
+        return ++appended;
+    }
+
+    /**
+     * Queues the record of a removed order without waiting for it to reach the disk.
+     * @param id the id of the removed order
+     * @return the sequence number to pass to {@link #awaitDurable(long)}
+     */
+    public synchronized long enqueueRemove(long id) {
+        byte[] record = ("-#" + id + "\n").getBytes(StandardCharsets.UTF_8);
+        reserve(record.length);
+        pending.put(record);
+        length += record.length;
+        return ++appended;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is on disk. Whichever caller takes the
+     * commit lock first writes and forces the records of every caller queued behind it.
+     * @param sequence the sequence number returned when the record was queued
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (commitLock) {
+            if (durable >= sequence) return;
+            try {
+                commit();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the journal, counting records queued but not written yet.
+     * @return the journal size in bytes
+     */
+    public synchronized long size() {
+        return length;
+    }
+
+    /**
+     * Returns the length of the snapshot the journal applies to, as of when it was loaded or last compacted.
+     * @return the snapshot size in bytes
+     */
+    public synchronized long getSnapshotSize() {
+        return snapshotLength;
+    }
+
+    /**
+     * Marks the end of the journal at the moment the orders to compact are captured. The caller must capture
+     * them under the same lock it queues records under, so that every record queued before the mark is in
+     * the captured orders and every record queued after it is not.
+     * @return the mark to pass to {@link #finishCompaction(long, long)}
+     */
+    public synchronized long mark() {
+        return length;
+    }
+
+    /**
+     * Writes and forces the next snapshot. Takes no lock, so records can be appended meanwhile; only one
+     * compaction may run at a time.
+     * @param writer writes the captured orders, with their ids, to the file of the given name
+     */
+    public void writeSnapshot(Consumer<String> writer) {
+        try {
+            writer.accept(pendingSnapshot.toString());
+            try (FileChannel c = FileChannel.open(pendingSnapshot, StandardOpenOption.WRITE)) {
+                c.force(true);
+            }
+            pendingHeader = header(pendingSnapshot);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the one written by {@link #writeSnapshot(Consumer)} and starts a new journal
+     * holding the records appended since the mark. Costs a copy of those records, not of the orders. The
+     * caller must not append concurrently.
+     * @param mark   the end of the journal when the orders in the new snapshot were captured
+     * @param nextId the id the next order got when the orders were captured
+     */
+    public void finishCompaction(long mark, long nextId) {
+        synchronized (commitLock) {
+            synchronized (this) {
+                try {
+                    commit();
+                    length = replaceJournal(pendingHeader + ":" + nextId, mark);
+                    channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    snapshotLength = Files.size(snapshot);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the snapshot with a copy of it in a newer format, holding the same orders under the same ids,
+     * and keeps every journalled record, e.g. to give the orders of a file written before ids were stored
+     * their ids once rather than on every load. Must be called after {@link #recover()} and before the
+     * snapshot is loaded.
+     * @param writer writes the new snapshot to the file of the given name
+     */
+    public void rewriteSnapshot(Consumer<String> writer) {
+        writeSnapshot(writer);
+        synchronized (commitLock) {
+            synchronized (this) {
+                try {
+                    String header = readHeader();
+                    long records = ("#" + header + "\n").getBytes(StandardCharsets.UTF_8).length;
+                    replaceJournal(pendingHeader + header.substring(snapshotHeader(header).length()), records);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the snapshot written by {@link #writeSnapshot(Consumer)} into place along with a new journal that
+     * applies to it, holding a header and the records of the current journal from an offset on. The journal
+     * is moved first, so {@link #recover()} finishes the swap if the snapshot move is lost in a crash. The
+     * channel of the current journal, if open, is closed before the move. The caller must hold both locks.
+     * @param header the header of the new journal, without the leading {@code #}
+     * @param from   the offset of the first record to keep
+     * @return the length of the new journal
+     * @throws IOException if a file cannot be read, written or moved
+     */
+    private long replaceJournal(String header, long from) throws IOException {
+        writeJournal(pendingJournal, header);
+        long length;
+        try (FileChannel previous = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel next = FileChannel.open(pendingJournal, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long position = from;
+            long end = previous.size();
+            while (position < end) {
+                position += previous.transferTo(position, end - position, next);
+            }
+            next.force(true);
+            length = next.size();
+        }
+        if (channel != null) channel.close();
+        Files.move(pendingJournal, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(pendingSnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return length;
+    }
+
+    /** Forces any outstanding records to disk and closes the journal. */
+    public void close() {
+        synchronized (commitLock) {
+            try {
+                commit();
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Makes room in the pending buffer, replacing it with a larger one if needed.
+     * The caller must hold the lock on {@code this}.
+     * @param bytes the number of bytes about to be put
+     */
+    private void reserve(int bytes) {
+        if (pending.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(2 * pending.capacity(), pending.position() + bytes));
+        pending.flip();
+        larger.put(pending);
+        pending = larger;
+    }
+
+    /**
+     * Writes and forces every pending record. The pending buffer is swapped with the spare one, so
+     * records queued while the batch is written go into the other buffer. The caller must hold
+     * {@link #commitLock}.
+     * @throws IOException if the journal cannot be written
+     */
+    private void commit() throws IOException {
+        ByteBuffer batch;
+        long sequence;
+        synchronized (this) {
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            sequence = appended;
+        }
+        if (batch.position() == 0) return;
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+        channel.force(false);
+        durable = sequence;
+    }
+
+    /**
+     * Returns the header line that identifies a snapshot by its length and CRC-32. Snapshots of up to
+     * {@code 2 * HEADER_SAMPLE} bytes are checksummed whole; for larger ones only the first and last
+     * {@code HEADER_SAMPLE} bytes are, so opening the journal takes the same time however long the
+     * order history grows.
+     * @param file the snapshot file
+     * @return the header, without the leading {@code #} and line terminator
+     * @throws IOException if the snapshot cannot be read
+     */
+    private static String header(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel c = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = c.size();
+            if (size <= 2 * HEADER_SAMPLE) {
+                checksum(c, 0, size, crc, buffer);
+            } else {
+                checksum(c, 0, HEADER_SAMPLE, crc, buffer);
+                checksum(c, size - HEADER_SAMPLE, size, crc, buffer);
+            }
+            return size + ":" + Long.toHexString(crc.getValue());
+        }
+    }
+
+    /**
+     * Adds a byte range of a file to a checksum.
+     * @param channel the channel to read
+     * @param from    the offset of the first byte
+     * @param to      the offset just past the last byte
+     * @param crc     the checksum to update
+     * @param buffer  the read buffer
+     * @throws IOException if the file cannot be read
+     */
+    private static void checksum(FileChannel channel, long from, long to, CRC32 crc, ByteBuffer buffer)
+            throws IOException {
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+    }
+
+    /**
+     * Returns the part of a journal header that identifies the snapshot, without the next id.
+     * @param header the header, without the leading {@code #}
+     * @return the {@code length:crc} part
+     */
+    private static String snapshotHeader(String header) {
+        int nextId = header.indexOf(':', header.indexOf(':') + 1);
+        return nextId < 0 ? header : header.substring(0, nextId);
+    }
+
+    /**
+     * Reads the header of the current journal.
+     * @return the header, without the leading {@code #} and line terminator
+     * @throws IOException if the journal cannot be read
+     */
+    private String readHeader() throws IOException {
+        try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+            return lines.findFirst().filter(l -> l.startsWith("#")).map(l -> l.substring(1)).orElse("");
+        }
+    }
+
+    /**
+     * Writes and forces a journal that holds only a header.
+     * @param file   the file to write
+     * @param header the snapshot header
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeJournal(Path file, String header) throws IOException {
+        try (FileChannel c = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(("#" + header + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                c.write(buffer);
+            }
+            c.force(true);
+        }
+    }
+}
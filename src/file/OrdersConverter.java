@@ -0,0 +1,29 @@
+package file;
+
+import models.OrderTable;
+import models.ProductCatalog;
+import java.io.File;
+
+/**
+ * Converts a text orders file into the {@link BinaryOrdersFile} format. Orders keep their ids; lines
+ * written before ids were stored are numbered by position, as when the text file is loaded.
+ * Usage: {@code java file.OrdersConverter [menu.txt] [orders.txt] [orders.bin]}.
+ */
+public class OrdersConverter {
+    public static void main(String[] args) {
+        String menuName = args.length > 0 ? args[0] : "menu.txt";
+        String textName = args.length > 1 ? args[1] : "orders.txt";
+        String binaryName = args.length > 2 ? args[2] : "orders.bin";
+
+        TextFile menuFile = new TextFile(menuName);
+        menuFile.open();
+        ProductCatalog products = menuFile.readMenu();
+        OrderTable orders = new OrderTable(new MappedOrdersFile(textName).readOrders(products), 1);
+        new BinaryOrdersFile(binaryName).saveOrders(orders, products);
+
+        long textSize = new File(textName).length();
+        long binarySize = new File(binaryName).length();
+        System.out.printf("Converted %,d orders: %,d bytes -> %,d bytes (%.1fx smaller)%n",
+                orders.size(), textSize, binarySize, (double) textSize / binarySize);
+    }
+}
@@ -0,0 +1,86 @@
+package file;
+
+import models.Product;
+import models.ProductCatalog;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An open-addressing table that resolves product names straight from their encoded bytes, so parsers
+ * can look products up without decoding a string per name.
+ */
+class ProductNames {
+    /** The encoded names, by slot. */
+    private byte[][] keys;
+    /** The products, by slot. */
+    private Product[] values;
+    /** The slot mask; the table size is a power of two. */
+    private int mask;
+
+    /**
+     * Creates a new {@code ProductNames} holding every product of the catalog, on the menu or not.
+     * @param products the catalog to index
+     */
+    ProductNames(ProductCatalog products) {
+        int count = products.size();
+        int capacity = Integer.highestOneBit(Math.max(2, count * 2) - 1) << 1;
+        keys = new byte[capacity][];
+        values = new Product[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < count; id++) {
+            Product p = products.get(id);
+            byte[] key = p.getName().getBytes(StandardCharsets.UTF_8);
+            int slot = hash(ByteBuffer.wrap(key), 0, key.length) & mask;
+            while (keys[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = p;
+        }
+    }
+
+    /**
+     * Looks up the product whose name is encoded in the given byte range.
+     * @param buffer the buffer holding the name
+     * @param start  the offset of the name
+     * @param length the length of the name in bytes
+     * @return the matching product, or {@code null} if there is none
+     */
+    Product get(ByteBuffer buffer, int start, int length) {
+        int slot = hash(buffer, start, length) & mask;
+        while (keys[slot] != null) {
+            if (matches(keys[slot], buffer, start, length)) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Hashes a byte range.
+     * @param buffer the buffer holding the bytes
+     * @param start  the offset of the first byte
+     * @param length the number of bytes
+     * @return the hash code
+     */
+    private static int hash(ByteBuffer buffer, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Compares a stored key with a byte range.
+     * @param key    the stored key
+     * @param buffer the buffer holding the candidate bytes
+     * @param start  the offset of the candidate
+     * @param length the length of the candidate
+     * @return {@code true} if the bytes are equal
+     */
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int length) {
+        if (key.length != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer.get(start + i)) return false;
+        }
+        return true;
+    }
+}
@@ -1,16 +1,49 @@
 package file;
 
+import metrics.MetricsRegistry;
+import metrics.Timer;
 import models.*;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static utils.Constants.BEST_SELLERS_HEADER;
 import static utils.Constants.SALES_REPORT_HEADER;
 
 /** Represents a text file handler for reading from and writing to text files. */
 public class TextFile {
+    /** The size of the buffer used to write orders. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** The number of orders taken at a time by {@link #saveOrders(IdentifiedOrders)}. */
+    private static final int SAVE_PAGE_SIZE = 4096;
+    /** The size of the windows the orders file is mapped in when read. */
+    private static final int MAP_WINDOW = 64 * 1024 * 1024;
+    /** The food categories, matched by name when the menu is read. */
+    private static final Category[] CATEGORIES = Category.values();
+    /** The item kinds, matched by name against the first token of each menu line. */
+    private static final ItemKind[] ITEM_KINDS = ItemKind.values();
+    /** The latency of {@link #readMenu()}. */
+    private static final Timer READ_MENU = MetricsRegistry.getDefault().timer("textfile.readMenu");
+    /** The latency of {@link #readOrders(ProductCatalog)}. */
+    private static final Timer READ_ORDERS = MetricsRegistry.getDefault().timer("textfile.readOrders");
+    /** The latency of {@link #saveOrders(List)}, {@link #saveOrders(IdentifiedOrders)} and {@link #appendOrders}. */
+    private static final Timer SAVE_ORDERS = MetricsRegistry.getDefault().timer("textfile.saveOrders");
+    /** The latency of {@link #saveSalesReport(Map)} and {@link #saveBestSellers(Map)}. */
+    private static final Timer SAVE_REPORT = MetricsRegistry.getDefault().timer("textfile.saveReport");
+
     /** The name of the text file. */
     private String name;
     /** The {@link File} object associated with the text file. */
@@ -30,123 +63,443 @@ public class TextFile {
     }
 
     /**
-     * Reads a {@link FoodItem} from the given array of words.
-     * @param words an array of strings containing the food item data
+     * Reads the fields of a {@link FoodItem} following the {@code food} token of a menu line.
+     * @param cursor the cursor positioned on the menu line
      * @return a new {@link FoodItem} object
      */
-    public FoodItem readFoodItem(String[] words) {
-        String name = words[1];
-        int price = Integer.parseInt(words[2]);
-        Category category = Category.valueOf(words[3].toUpperCase());
-        String[] nvString = words[4].split(" ");
-        double[] nutritionalValues = new double[nvString.length];
-        for (int i = 0; i < nvString.length; i++) {
-            nutritionalValues[i] = Double.parseDouble(nvString[i]);
-        }
-        return new FoodItem(name, price, category, nutritionalValues);
+    public FoodItem readFoodItem(CsvCursor cursor) {
+        String name = cursor.nextString().intern();
+        int price = cursor.nextInt();
+        Category category = cursor.nextEnum(CATEGORIES);
+        double[] nutritionalValues = new double[4];
+        int count = 0;
+        do {
+            if (count == nutritionalValues.length) nutritionalValues = Arrays.copyOf(nutritionalValues, 2 * count);
+            nutritionalValues[count++] = cursor.nextDouble();
+        } while (!cursor.endOfField());
+        return new FoodItem(name, price, category, Arrays.copyOf(nutritionalValues, count));
     }
 
     /**
-     * Reads a {@link DrinkItem} from the given array of words.
-     * @param words an array of strings containing the drink item data
+     * Reads the fields of a {@link DrinkItem} following the {@code drink} token of a menu line.
+     * @param cursor the cursor positioned on the menu line
      * @return a new {@link DrinkItem} object
      */
-    public DrinkItem readDrinkItem(String[] words) {
-        String name = words[1];
-        int price = Integer.parseInt(words[2]);
-        boolean isAlcoholFree = Boolean.parseBoolean(words[3]);
-        String[] asString = words[4].split(" ");
-        int[] availableSize = new int[asString.length];
-        for (int i = 0; i < asString.length; i++) {
-            availableSize[i] = Integer.parseInt(asString[i]);
-        }
-        return new DrinkItem(name, price, isAlcoholFree, availableSize);
+    public DrinkItem readDrinkItem(CsvCursor cursor) {
+        String name = cursor.nextString().intern();
+        int price = cursor.nextInt();
+        boolean isAlcoholFree = cursor.nextBoolean();
+        int[] availableSize = new int[4];
+        int count = 0;
+        do {
+            if (count == availableSize.length) availableSize = Arrays.copyOf(availableSize, 2 * count);
+            availableSize[count++] = cursor.nextInt();
+        } while (!cursor.endOfField());
+        return new DrinkItem(name, price, isAlcoholFree, Arrays.copyOf(availableSize, count));
     }
 
     /**
-     * Reads the menu items from the text file and returns a list of products.
-     * @return a list of {@link Product} objects read from the file
+     * Reads the menu items from the text file and returns them as an indexed catalog.
+     * @return a {@link ProductCatalog} holding the products read from the file
      */
-    public List<Product> readMenu() {
-        List<Product> products = new ArrayList<>();
+    public ProductCatalog readMenu() {
+        long start = READ_MENU.start();
+        ProductCatalog products = new ProductCatalog();
         try {
-            FileInputStream fis = new FileInputStream(file);
-            InputStreamReader isr = new InputStreamReader(fis);
-            BufferedReader br = new BufferedReader(isr);
-
-            String line = br.readLine();
-            while (line != null) {
-                String[] words = line.split(",");
-                Product p;
-                if (words[0].equals("food")) {
-                    p = readFoodItem(words);
-                } else {
-                    p = readDrinkItem(words);
-                }
-                products.add(p);
-                line = br.readLine();
+            CsvCursor cursor = new CsvCursor(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            while (cursor.nextLine()) {
+                ItemKind kind = cursor.nextEnum(ITEM_KINDS);
+                products.add(kind == ItemKind.FOOD ? readFoodItem(cursor) : readDrinkItem(cursor));
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        READ_MENU.stop(start);
         return products;
     }
 
     /**
-     * Reads the orders from the text file and returns a list of orders.
-     * @param products the list of products to associate with the orders
-     * @return a list of {@link Order} objects read from the file
+     * Reads an {@link Order} from a single {@code name name ...,value,yyyy-MM-dd,id} line. The id is
+     * optional, and lines in the older {@code name name ...,yyyy-MM-dd} format, which do not store the
+     * value either, are valued at the current prices.
+     * @param line     the line to parse
+     * @param products the catalog used to resolve the product names
+     * @return a new {@link Order} object
      */
-    public List<Order> readOrders(List<Product> products) {
-        List<Order> orders = new ArrayList<>();
-        try {
-            FileInputStream fis = new FileInputStream(file);
-            InputStreamReader isr = new InputStreamReader(fis);
-            BufferedReader br = new BufferedReader(isr);
-
-            String line = br.readLine();
-            while (line != null) {
-                String[] words = line.split(",");
-                String[] names = words[0].split(" ");
-                LocalDate date = LocalDate.parse(words[1]);
-                Order order = new Order(date);
-                for (String name : names) {
-                    Product product = products.stream().filter(p ->
-                            p.getName().equals(name)).findFirst().orElse(null);
-                    order.add(product);
+    public Order readOrder(String line, ProductCatalog products) {
+        OrderArena order = new OrderArena(products);
+        readOrder(line, order);
+        return order.get(0);
+    }
+
+    /**
+     * Reads an order from a single line, as {@link #readOrder(String, ProductCatalog)} does, and appends
+     * it to an arena along with the id stored in the line, if any.
+     * @param line   the line to parse
+     * @param orders the arena the order is appended to
+     */
+    public void readOrder(String line, OrderArena orders) {
+        CsvCursor cursor = new CsvCursor(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+        if (!cursor.nextLine()) throw new IllegalArgumentException("Empty order line");
+        readOrder(cursor, orders.getCatalog(), null, new int[16], orders);
+    }
+
+    /**
+     * Formats an {@link Order} as a single line, without the line terminator.
+     * @param order the order to format
+     * @return the order in the {@code name name ...,value,yyyy-MM-dd} format, without an id
+     */
+    public String formatOrder(Order order) {
+        StringBuilder sb = new StringBuilder();
+        for (Product p : order.getProducts()) {
+            sb.append(p.getName()).append(" ");
+        }
+        sb.replace(sb.length() - 1, sb.length(), ",");
+        sb.append(order.getValue()).append(',');
+        sb.append(order.getDate().toString());
+        return sb.toString();
+    }
+
+    /**
+     * Reads the orders from the text file. The file is mapped in windows of whole lines and parsed in
+     * place by a {@link CsvCursor}, so apart from the growth of the arena no memory is allocated per line.
+     * @param products the catalog used to resolve the product names of each order
+     * @return an {@link OrderArena} holding the orders read from the file
+     */
+    public OrderArena readOrders(ProductCatalog products) {
+        long start = READ_ORDERS.start();
+        OrderArena orders = new OrderArena(products);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ProductNames names = new ProductNames(products);
+            CsvCursor cursor = null;
+            int[] ids = new int[16];
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                MappedByteBuffer window = mapWindow(channel, position, size);
+                if (cursor == null) cursor = new CsvCursor(window);
+                else cursor.reset(window);
+                while (cursor.nextLine()) {
+                    ids = readOrder(cursor, products, names, ids, orders);
                 }
-                orders.add(order);
-                line = br.readLine();
+                position += window.limit();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        READ_ORDERS.stop(start);
         return orders;
     }
 
     /**
-     * Saves the given list of orders to the text file.
+     * Streams the orders of the text file in file order, with memory bounded regardless of the file size:
+     * the file is mapped one window of whole lines at a time and its lines are parsed in small batches
+     * as the stream is consumed. The stream should be closed, e.g. with try-with-resources, if it is
+     * not consumed to the end.
+     * @param products the catalog used to resolve the product names of each order
+     * @return a sequential stream of the orders in the file
+     */
+    public Stream<Order> streamOrders(ProductCatalog products) {
+        try {
+            OrderSpliterator orders = new OrderSpliterator(FileChannel.open(file.toPath(), StandardOpenOption.READ), products);
+            return StreamSupport.stream(orders, false).onClose(orders::close);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Maps the window of whole lines that starts at a position of the orders file.
+     * @param channel  the channel of the file
+     * @param position the offset of the window, at the start of a line
+     * @param size     the size of the file
+     * @return the window, limited to the end of its last whole line
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if a line is longer than a window
+     */
+    private static MappedByteBuffer mapWindow(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+        int end = window.limit();
+        if (position + end < size) {
+            while (end > 0 && window.get(end - 1) != '\n') end--;
+            if (end == 0) throw new IllegalArgumentException("Order line longer than " + MAP_WINDOW + " bytes");
+        }
+        window.limit(end);
+        return window;
+    }
+
+    /**
+     * Parses the order on the current line of a cursor into an arena, with its id if the line stores one.
+     * Every loader of order lines goes through here. The value is optional, as in lines of the older
+     * {@code name name ...,yyyy-MM-dd} format, which may have had their id appended when the file was
+     * compacted. Empty product names, left by repeated or trailing spaces, are skipped; the order is
+     * appended only once the whole line has been parsed.
+     * @param cursor   the cursor positioned on the line
+     * @param products the catalog used to resolve names missing from {@code names}
+     * @param names    the byte-level index of product names, or {@code null} to resolve every name by string
+     * @param ids      the buffer the product ids are collected in
+     * @param orders   the arena the order is appended to
+     * @return the id buffer, grown if the order did not fit
+     * @throws IllegalArgumentException if the line has no products, a malformed field or too many fields
+     */
+    static int[] readOrder(CsvCursor cursor, ProductCatalog products, ProductNames names, int[] ids,
+                           OrderArena orders) {
+        int count = 0;
+        int value = 0;
+        do {
+            cursor.nextToken();
+            if (cursor.emptyToken()) continue;
+            Product product = names == null ? null : cursor.productValue(names);
+            if (product == null) product = products.resolve(cursor.stringValue());
+            if (count == ids.length) ids = Arrays.copyOf(ids, 2 * count);
+            ids[count++] = product.getId();
+            value += product.getPrice();
+        } while (!cursor.endOfField());
+        if (count == 0 || cursor.endOfLine())
+            throw new IllegalArgumentException("Malformed order line: " + cursor.line());
+        cursor.nextToken();
+        if (!cursor.endOfLine() && !cursor.dateToken()) {
+            value = cursor.intValue();
+            cursor.nextToken();
+        }
+        int epochDay = (int) cursor.dateValue().toEpochDay();
+        long id = 0;
+        if (!cursor.endOfLine()) {
+            cursor.nextToken();
+            id = cursor.longValue();
+        }
+        if (!cursor.endOfLine()) throw new IllegalArgumentException("Malformed order line: " + cursor.line());
+        orders.add(epochDay, value, ids, 0, count);
+        if (id != 0) orders.setOrderId(orders.size() - 1, id);
+        return ids;
+    }
+
+    /**
+     * Saves the given list of orders to the text file, without ids. The lines are encoded by an
+     * {@link OrderEncoder} into a direct buffer that is written through a {@link FileChannel} whenever it fills up.
      * @param orders the list of {@link Order} objects to save
      */
     public void saveOrders(List<Order> orders) {
-        try {
-            FileOutputStream fos = new FileOutputStream(file);
-            OutputStreamWriter osw = new OutputStreamWriter(fos);
-            BufferedWriter bw = new BufferedWriter(osw);
+        long start = SAVE_ORDERS.start();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OrderEncoder encoder = new OrderEncoder();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
             for (Order o : orders) {
-                StringBuilder sb = new StringBuilder();
-                for (Product p : o.getProducts()) {
-                    sb.append(p.getName()).append(" ");
+                buffer = encode(o, 0, encoder, buffer, channel);
+            }
+            write(channel, buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        SAVE_ORDERS.stop(start);
+    }
+
+    /**
+     * Saves the given orders to the text file along with their ids, so they are read back under the same
+     * ids. The orders are copied out a page at a time, ids included, rather than looked up one by one.
+     * @param orders the orders to save
+     */
+    public void saveOrders(IdentifiedOrders orders) {
+        writeOrders(orders, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Appends the given orders to the end of the text file along with their ids, as
+     * {@link #saveOrders(IdentifiedOrders)} writes them.
+     * @param orders the orders to append
+     */
+    public void appendOrders(IdentifiedOrders orders) {
+        writeOrders(orders, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Writes the given orders to the text file along with their ids, a page at a time.
+     * @param orders the orders to write
+     * @param mode   {@link StandardOpenOption#TRUNCATE_EXISTING} to replace the file's contents or
+     *               {@link StandardOpenOption#APPEND} to add to them
+     */
+    private void writeOrders(IdentifiedOrders orders, StandardOpenOption mode) {
+        long start = SAVE_ORDERS.start();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, mode)) {
+            OrderEncoder encoder = new OrderEncoder();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (int from = 0; from < orders.size(); from += SAVE_PAGE_SIZE) {
+                for (Map.Entry<Long, Order> entry : orders.page(from, SAVE_PAGE_SIZE).entrySet()) {
+                    buffer = encode(entry.getValue(), entry.getKey(), encoder, buffer, channel);
                 }
-                sb.replace(sb.length() - 1, sb.length(), ",");
-                sb.append(o.getDate().toString());
-                bw.write(sb.toString());
-                bw.newLine();
             }
-            bw.close();
+            write(channel, buffer);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        SAVE_ORDERS.stop(start);
+    }
+
+    /**
+     * Returns whether the orders file stores order ids, judging by its first and last orders: a file written
+     * before ids were stored holds none, and every file written since holds one on every line. Reads a
+     * buffer at each end of the file, however long it is.
+     * @return {@code true} if the file stores ids or holds no order
+     */
+    public boolean storesIds() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int length = (int) Math.min(size, BUFFER_SIZE);
+            byte[] head = read(channel, 0, length);
+            int start = 0;
+            int end = 0;
+            while (start < length) {
+                end = start;
+                while (end < length && head[end] != '\n') end++;
+                if (end > start && head[end - 1] == '\r') end--;
+                if (end > start) break;
+                start = end + 1;
+            }
+            if (start >= length) return true;
+            if (idOf(head, start, end) == 0) return false;
+            byte[] tail = read(channel, size - length, length);
+            end = length;
+            while (end > 0 && (tail[end - 1] == '\n' || tail[end - 1] == '\r')) end--;
+            start = end;
+            while (start > 0 && tail[start - 1] != '\n') start--;
+            return idOf(tail, start, end) != 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Copies the orders file to a new file in which every order stores its id. An order written before ids
+     * were stored gets the id after the previous order's, as it does when the file is loaded, so the copy
+     * reads back under the same ids. The lines are copied a buffer at a time without being parsed.
+     * @param target the name of the file to write, which is created or truncated
+     */
+    public void copyWithIds(String target) {
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int length = 0;
+            long previousId = 0;
+            while (true) {
+                if (length == bytes.length) bytes = Arrays.copyOf(bytes, 2 * length);
+                int read = in.read(bytes, length, bytes.length - length);
+                if (read < 0) break;
+                length += read;
+                int complete = length;
+                while (complete > 0 && bytes[complete - 1] != '\n') complete--;
+                previousId = copyLines(bytes, complete, previousId, id -> true, out);
+                System.arraycopy(bytes, complete, bytes, 0, length - complete);
+                length -= complete;
+            }
+            copyLines(bytes, length, previousId, id -> true, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Copies order lines without parsing them, appending its id to each line written before ids were stored,
+     * which gets the id after the previous line's. Blank lines are dropped and every line copied is
+     * terminated with a newline.
+     * @param bytes      the lines
+     * @param length     the number of bytes holding them
+     * @param previousId the id of the order before the first line, or 0 at the start of a file
+     * @param keep       selects by id the orders to copy; the others are skipped
+     * @param out        the stream to write to
+     * @return the id of the last order, copied or not
+     * @throws IOException if the stream cannot be written
+     */
+    public static long copyLines(byte[] bytes, int length, long previousId, LongPredicate keep, OutputStream out)
+            throws IOException {
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && bytes[i] != '\n') continue;
+            int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+            if (end > start) {
+                long id = idOf(bytes, start, end);
+                boolean numbered = id == 0;
+                if (numbered) id = previousId + 1;
+                previousId = id;
+                if (keep.test(id)) {
+                    out.write(bytes, start, end - start);
+                    if (numbered) out.write(("," + id).getBytes(StandardCharsets.US_ASCII));
+                    out.write('\n');
+                }
+            }
+            start = i + 1;
+        }
+        return previousId;
+    }
+
+    /**
+     * Reads the id at the end of an order line.
+     * @param bytes the bytes holding the line
+     * @param start the offset of the first byte of the line
+     * @param end   the offset just past the last byte of the line, without its terminator
+     * @return the id, or 0 if the line ends with its date, as lines written before ids were stored do
+     */
+    private static long idOf(byte[] bytes, int start, int end) {
+        int comma = end - 1;
+        while (comma >= start && bytes[comma] != ',') comma--;
+        if (end - comma - 1 == 10 && bytes[comma + 5] == '-' && bytes[comma + 8] == '-') return 0;
+        long id = 0;
+        for (int i = comma + 1; i < end; i++) {
+            id = id * 10 + bytes[i] - '0';
+        }
+        return id;
+    }
+
+    /**
+     * Reads a byte range of a file.
+     * @param channel  the channel to read
+     * @param position the offset of the range
+     * @param length   the length of the range
+     * @return the bytes read
+     * @throws IOException if the file cannot be read
+     */
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <= 0) break;
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encodes an order into a buffer, writing the buffer out first if the order does not fit.
+     * @param order   the order to encode
+     * @param id      the order id, or 0 to leave it out
+     * @param encoder the encoder
+     * @param buffer  the buffer to encode into
+     * @param channel the channel the full buffer is written to
+     * @return the buffer, replaced by a larger one if the order did not fit in an empty one
+     * @throws IOException if the file cannot be written
+     */
+    private static ByteBuffer encode(Order order, long id, OrderEncoder encoder, ByteBuffer buffer,
+                                     FileChannel channel) throws IOException {
+        if (encoder.encode(order, id, buffer)) return buffer;
+        write(channel, buffer);
+        if (!encoder.encode(order, id, buffer)) {
+            buffer = ByteBuffer.allocateDirect(Math.max(2 * buffer.capacity(), encoder.length(order, id)));
+            encoder.encode(order, id, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes out the contents of a buffer and clears it.
+     * @param channel the channel to write to
+     * @param buffer  the buffer to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
     }
 
     /**
@@ -154,6 +507,7 @@ public class TextFile {
      * @param sales a map of dates to sales amounts
      */
     public void saveSalesReport(Map<LocalDate, Integer> sales) {
+        long start = SAVE_REPORT.start();
         try {
             FileOutputStream fos = new FileOutputStream(file);
             OutputStreamWriter osw = new OutputStreamWriter(fos);
@@ -161,13 +515,17 @@ public class TextFile {
             bw.write(SALES_REPORT_HEADER);
             bw.newLine();
             for (Map.Entry<LocalDate, Integer> entry : sales.entrySet()) {
-                bw.write(entry.getKey() + ": " + entry.getValue() + "RON");
+                bw.write(entry.getKey().toString());
+                bw.write(": ");
+                bw.write(Integer.toString(entry.getValue()));
+                bw.write("RON");
                 bw.newLine();
             }
             bw.close();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        SAVE_REPORT.stop(start);
     }
 
     /**
@@ -175,6 +533,7 @@ public class TextFile {
      * @param bestSellers a map of product names to sales counts
      */
     public void saveBestSellers(Map<String, Long> bestSellers) {
+        long start = SAVE_REPORT.start();
         try {
             FileOutputStream fos = new FileOutputStream(file);
             OutputStreamWriter osw = new OutputStreamWriter(fos);
@@ -182,12 +541,106 @@ public class TextFile {
             bw.write(BEST_SELLERS_HEADER);
             bw.newLine();
             for (Map.Entry<String, Long> entry : bestSellers.entrySet()) {
-                bw.write(entry.getKey() + ": " + entry.getValue());
+                bw.write(entry.getKey());
+                bw.write(": ");
+                bw.write(Long.toString(entry.getValue()));
                 bw.newLine();
             }
             bw.close();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        SAVE_REPORT.stop(start);
+    }
+
+    /** Parses the orders of a file in batches as they are pulled, one mapped window at a time. */
+    private static class OrderSpliterator extends Spliterators.AbstractSpliterator<Order> {
+        /** The number of orders parsed at a time. */
+        private static final int BATCH_SIZE = 1024;
+
+        /** The channel of the orders file. */
+        private FileChannel channel;
+        /** The catalog used to resolve the product names. */
+        private ProductCatalog products;
+        /** The byte-level index of the product names. */
+        private ProductNames names;
+        /** The cursor over the current window, or {@code null} before the first one. */
+        private CsvCursor cursor;
+        /** The buffer the product ids of an order are collected in. */
+        private int[] ids = new int[16];
+        /** The orders parsed but not yet pulled. */
+        private OrderArena batch;
+        /** The position of the next order to pull in {@link #batch}. */
+        private int next;
+        /** The offset of the next window in the file. */
+        private long position;
+        /** The size of the file. */
+        private long size;
+
+        /**
+         * Creates a new {@code OrderSpliterator}.
+         * @param channel  the channel of the orders file, closed once the last order is pulled
+         * @param products the catalog used to resolve the product names
+         * @throws IOException if the size of the file cannot be read
+         */
+        OrderSpliterator(FileChannel channel, ProductCatalog products) throws IOException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.channel = channel;
+            this.products = products;
+            this.names = new ProductNames(products);
+            this.batch = new OrderArena(products);
+            this.size = channel.size();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Order> action) {
+            if (next == batch.size() && !fill()) return false;
+            action.accept(batch.get(next++));
+            return true;
+        }
+
+        /**
+         * Parses the next batch of orders, mapping further windows as needed.
+         * @return {@code false} if the file has no more orders
+         */
+        private boolean fill() {
+            batch.clear();
+            next = 0;
+            try {
+                while (batch.size() < BATCH_SIZE) {
+                    if (cursor != null && cursor.nextLine()) {
+                        ids = readOrder(cursor, products, names, ids, batch);
+                    } else if (position < size) {
+                        MappedByteBuffer window = mapWindow(channel, position, size);
+                        if (cursor == null) cursor = new CsvCursor(window);
+                        else cursor.reset(window);
+                        position += window.limit();
+                    } else {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (batch.isEmpty()) close();
+            return !batch.isEmpty();
+        }
+
+        /** Closes the channel of the orders file. */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /** The kind of item a menu line describes, named by its first token. */
+    private enum ItemKind {
+        /** A {@link FoodItem}. */
+        FOOD,
+        /** A {@link DrinkItem}. */
+        DRINK
     }
 }
@@ -0,0 +1,261 @@
+package kitchen;
+
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import models.Order;
+import models.Product;
+import utils.ThreadPools;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Routes orders to the kitchen and the bar. Every order is split into one {@link Ticket} per station:
+ * food goes to the line of its {@link models.Category} and drinks go to the bar. Each station has a
+ * bounded {@link TicketQueue} filled by any number of dispatching threads and a single worker thread
+ * standing in for its cook, who takes the most urgent ticket, aged by its waiting time, and prepares it
+ * for a simulated time per item. When a station's queue is full the dispatching thread waits for room.
+ * <p>
+ * The time from dispatch to the start of preparation is recorded per station under
+ * {@code kitchen.<station>.wait} and per priority under {@code kitchen.wait.<priority>}, and once a second
+ * the number of tickets each station completed is recorded under {@code kitchen.<station>.throughput}.
+ */
+public class KitchenDispatcher implements AutoCloseable {
+    /** How long a cook with nothing to do sleeps before looking again, in nanoseconds. */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /** How long a dispatching thread waits for room in a full queue before trying again, in nanoseconds. */
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    /** The number of orders dispatched. */
+    private static final Counter ORDERS = MetricsRegistry.getDefault().counter("kitchen.orders");
+    /** The number of times a dispatching thread found a queue full and had to wait. */
+    private static final Counter QUEUE_FULL = MetricsRegistry.getDefault().counter("kitchen.queueFull");
+
+    /** The cook of each station. */
+    private final Map<Station, Cook> cooks = new EnumMap<>(Station.class);
+    /** The time from dispatch to the start of preparation, by priority. */
+    private final Map<Priority, Timer> priorityWaits = new EnumMap<>(Priority.class);
+    /** The simulated preparation time per item, in nanoseconds. */
+    private final long prepNanosPerItem;
+    /** The executor sampling the throughput of the stations. */
+    private final ScheduledExecutorService sampler;
+    /** Whether the dispatcher still accepts orders. */
+    private volatile boolean open = true;
+    /**
+     * The number of dispatches that passed the {@link #open} check and may still be queueing tickets.
+     * A dispatch counts itself before it checks {@link #open}, and a cook of a closed dispatcher looks at
+     * the count before its queue, so either the dispatch sees the dispatcher closed or the cooks wait for
+     * its tickets.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Creates a new {@code KitchenDispatcher} and starts a cook for every station.
+     * @param capacity    the maximum number of waiting tickets of each priority per station
+     * @param aging       the waiting time that promotes a ticket by one priority
+     * @param prepPerItem the simulated preparation time per item
+     */
+    public KitchenDispatcher(int capacity, Duration aging, Duration prepPerItem) {
+        this.prepNanosPerItem = prepPerItem.toNanos();
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        for (Priority priority : Priority.values()) {
+            priorityWaits.put(priority, metrics.timer("kitchen.wait." + priority.name().toLowerCase()));
+        }
+        for (Station station : Station.values()) {
+            Cook cook = new Cook(station, new TicketQueue(capacity, aging.toNanos()));
+            cooks.put(station, cook);
+            metrics.gauge("kitchen." + station.metricName() + ".queued", () -> cook.queue.size());
+        }
+        cooks.values().forEach(cook -> cook.thread.start());
+        sampler = Executors.newSingleThreadScheduledExecutor(ThreadPools.daemonThreads("kitchen-stats"));
+        sampler.scheduleAtFixedRate(() -> cooks.values().forEach(Cook::sample), 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Splits an order into one ticket per station and queues them. Safe to call from any thread;
+     * waits while a station's queue is full. Once the dispatcher has accepted an order, every ticket of
+     * it is prepared, even if the dispatcher is closed meanwhile.
+     * @param orderId  the id of the order
+     * @param order    the order
+     * @param priority how urgently the order should be prepared
+     * @return the number of tickets queued
+     * @throws IllegalStateException if the dispatcher is closed
+     */
+    public int dispatch(long orderId, Order order, Priority priority) {
+        inFlight.incrementAndGet();
+        try {
+            if (!open) throw new IllegalStateException("The kitchen is closed");
+            return queue(orderId, order, priority);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Splits an accepted order into one ticket per station and queues them.
+     * @param orderId  the id of the order
+     * @param order    the order
+     * @param priority how urgently the order should be prepared
+     * @return the number of tickets queued
+     */
+    private int queue(long orderId, Order order, Priority priority) {
+        Map<Station, List<Product>> items = new EnumMap<>(Station.class);
+        for (Product product : order.getProducts()) {
+            Station station = Station.of(product);
+            if (station != null) items.computeIfAbsent(station, s -> new ArrayList<>()).add(product);
+        }
+        for (Map.Entry<Station, List<Product>> entry : items.entrySet()) {
+            Cook cook = cooks.get(entry.getKey());
+            Ticket ticket = new Ticket(orderId, entry.getKey(), priority, entry.getValue());
+            while (!cook.queue.offer(ticket)) {
+                QUEUE_FULL.increment();
+                LockSupport.parkNanos(BACKOFF_NANOS);
+            }
+            cook.wake();
+        }
+        ORDERS.increment();
+        return items.size();
+    }
+
+    /**
+     * Returns the times from dispatch to the start of preparation at a station.
+     * @param station the station
+     * @return the wait times, in nanoseconds
+     */
+    public Histogram getWaitTimes(Station station) {
+        return cooks.get(station).waits;
+    }
+
+    /**
+     * Returns the times from dispatch to the start of preparation of the tickets of a priority.
+     * @param priority the priority
+     * @return the wait times, in nanoseconds
+     */
+    public Histogram getWaitTimes(Priority priority) {
+        return priorityWaits.get(priority);
+    }
+
+    /**
+     * Returns the number of tickets a station completed in each second.
+     * @param station the station
+     * @return the throughput samples, in tickets per second
+     */
+    public Histogram getThroughput(Station station) {
+        return cooks.get(station).throughput;
+    }
+
+    /**
+     * Returns the number of tickets a station has completed.
+     * @param station the station
+     * @return the completed ticket count
+     */
+    public long getCompleted(Station station) {
+        return cooks.get(station).completed;
+    }
+
+    /**
+     * Stops accepting orders, lets the cooks prepare every queued ticket, including those of dispatches
+     * still under way, and waits for them to finish.
+     */
+    @Override
+    public void close() {
+        open = false;
+        for (Cook cook : cooks.values()) {
+            LockSupport.unpark(cook.thread);
+        }
+        try {
+            for (Cook cook : cooks.values()) {
+                cook.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sampler.shutdown();
+    }
+
+    /** The worker preparing the tickets of one station, the only consumer of its queue. */
+    private class Cook implements Runnable {
+        /** The tickets waiting at the station. */
+        private final TicketQueue queue;
+        /** The thread running the cook. */
+        private final Thread thread;
+        /** The time from dispatch to the start of preparation. */
+        private final Timer waits;
+        /** The number of tickets completed in each second. */
+        private final Histogram throughput;
+        /** The number of tickets completed. */
+        private final Counter completedCounter;
+        /** Whether the cook is about to park or parked. */
+        private volatile boolean idle;
+        /** The number of tickets completed, written only by the cook. */
+        private volatile long completed;
+        /** The value of {@link #completed} at the last throughput sample. */
+        private long sampled;
+
+        /**
+         * Creates a new {@code Cook}.
+         * @param station the station
+         * @param queue   the tickets waiting at the station
+         */
+        Cook(Station station, TicketQueue queue) {
+            this.queue = queue;
+            this.thread = ThreadPools.daemonThreads("kitchen-" + station.metricName()).newThread(this);
+            MetricsRegistry metrics = MetricsRegistry.getDefault();
+            this.waits = metrics.timer("kitchen." + station.metricName() + ".wait");
+            this.throughput = metrics.histogram("kitchen." + station.metricName() + ".throughput");
+            this.completedCounter = metrics.counter("kitchen." + station.metricName() + ".completed");
+        }
+
+        /** Prepares tickets until the dispatcher is closed, no dispatch is under way and the queue is empty. */
+        @Override
+        public void run() {
+            while (true) {
+                Ticket ticket = queue.poll();
+                if (ticket != null) {
+                    prepare(ticket);
+                    continue;
+                }
+                if (!open && inFlight.get() == 0 && queue.size() == 0) return;
+                idle = true;
+                if (queue.isEmpty()) LockSupport.parkNanos(this, IDLE_NANOS);
+                idle = false;
+            }
+        }
+
+        /**
+         * Records how long a ticket waited and prepares it.
+         * @param ticket the ticket
+         */
+        private void prepare(Ticket ticket) {
+            waits.stop(ticket.getDispatchedAt());
+            priorityWaits.get(ticket.getPriority()).stop(ticket.getDispatchedAt());
+            long prepNanos = prepNanosPerItem * ticket.getProducts().size();
+            long deadline = System.nanoTime() + prepNanos;
+            for (long left = prepNanos; left > 0; left = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(left);
+            }
+            completedCounter.increment();
+            completed++;
+        }
+
+        /** Unparks the cook if it is idle. */
+        void wake() {
+            if (idle) LockSupport.unpark(thread);
+        }
+
+        /** Records the number of tickets completed since the last sample. */
+        void sample() {
+            long total = completed;
+            throughput.record(total - sampled);
+            sampled = total;
+        }
+    }
+}
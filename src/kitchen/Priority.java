@@ -0,0 +1,8 @@
+package kitchen;
+
+/** Represents how urgently a ticket should be prepared, from the most urgent to the least. */
+public enum Priority {
+    RUSH,
+    NORMAL,
+    LOW
+}
@@ -0,0 +1,41 @@
+package kitchen;
+
+import models.DrinkItem;
+import models.FoodItem;
+import models.Product;
+
+/** Represents a station that prepares part of an order: one kitchen line per food category, and the bar. */
+public enum Station {
+    STARTERS,
+    MAIN_COURSES,
+    DESSERTS,
+    BAR;
+
+    /**
+     * Returns the station that prepares a product: food goes to the line of its category, drinks go to the bar.
+     * @param product the product
+     * @return the station, or {@code null} if the product is neither food nor drink
+     */
+    public static Station of(Product product) {
+        if (product instanceof DrinkItem) return BAR;
+        if (!(product instanceof FoodItem)) return null;
+        return switch (((FoodItem) product).getCategory()) {
+            case STARTER -> STARTERS;
+            case MAIN_COURSE -> MAIN_COURSES;
+            case DESSERT -> DESSERTS;
+        };
+    }
+
+    /**
+     * Returns the name of the station as used in metric names, e.g. {@code mainCourses}.
+     * @return the metric name
+     */
+    String metricName() {
+        String[] words = name().toLowerCase().split("_");
+        StringBuilder sb = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            sb.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+        }
+        return sb.toString();
+    }
+}
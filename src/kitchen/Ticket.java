@@ -0,0 +1,73 @@
+package kitchen;
+
+import models.Product;
+import java.util.List;
+
+/** Represents the part of an order prepared by one station. */
+public class Ticket {
+    /** The id of the order the ticket belongs to. */
+    private final long orderId;
+    /** The station that prepares the ticket. */
+    private final Station station;
+    /** How urgently the ticket should be prepared. */
+    private final Priority priority;
+    /** The products to prepare. */
+    private final List<Product> products;
+    /** The {@link System#nanoTime()} at which the ticket was dispatched. */
+    private final long dispatchedAt;
+
+    /**
+     * Creates a new {@code Ticket} dispatched now.
+     * @param orderId  the id of the order the ticket belongs to
+     * @param station  the station that prepares the ticket
+     * @param priority how urgently the ticket should be prepared
+     * @param products the products to prepare
+     */
+    public Ticket(long orderId, Station station, Priority priority, List<Product> products) {
+        this.orderId = orderId;
+        this.station = station;
+        this.priority = priority;
+        this.products = products;
+        this.dispatchedAt = System.nanoTime();
+    }
+
+    /**
+     * Returns the id of the order the ticket belongs to.
+     * @return the order id
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * Returns the station that prepares the ticket.
+     * @return the station
+     */
+    public Station getStation() {
+        return station;
+    }
+
+    /**
+     * Returns how urgently the ticket should be prepared.
+     * @return the priority
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns the products to prepare.
+     * @return the products
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Returns the time at which the ticket was dispatched.
+     * @return the {@link System#nanoTime()} at dispatch
+     */
+    public long getDispatchedAt() {
+        return dispatchedAt;
+    }
+}
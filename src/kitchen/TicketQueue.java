@@ -0,0 +1,159 @@
+package kitchen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue of tickets with many producers and a single consumer, the station's cook.
+ * Each priority has its own ring buffer: a producer claims a slot by advancing the ring's tail with one
+ * compare-and-set and then publishes the ticket into it, and the consumer takes tickets from the head
+ * without any atomic read-modify-write. The consumer serves the most urgent ring first, but a waiting
+ * ticket is promoted one priority for every aging interval it has waited, so low-priority tickets are
+ * not starved during a rush. Tickets of the same priority are served in dispatch order.
+ */
+class TicketQueue {
+    /** The rings, indexed by priority ordinal. */
+    private final Ring[] rings;
+    /** The waiting time that promotes a ticket by one priority, in nanoseconds. */
+    private final long agingNanos;
+
+    /**
+     * Creates a new, empty {@code TicketQueue}.
+     * @param capacity   the maximum number of tickets of each priority, rounded up to a power of two
+     * @param agingNanos the waiting time that promotes a ticket by one priority, in nanoseconds
+     */
+    TicketQueue(int capacity, long agingNanos) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        if (agingNanos < 1) throw new IllegalArgumentException("Aging interval must be positive: " + agingNanos);
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        rings = new Ring[Priority.values().length];
+        for (int i = 0; i < rings.length; i++) {
+            rings[i] = new Ring(Math.max(1, size));
+        }
+        this.agingNanos = agingNanos;
+    }
+
+    /**
+     * Adds a ticket unless its priority's ring is full. Safe to call from any thread.
+     * @param ticket the ticket
+     * @return {@code false} if the ring is full
+     */
+    boolean offer(Ticket ticket) {
+        return rings[ticket.getPriority().ordinal()].offer(ticket);
+    }
+
+    /**
+     * Removes the ticket to serve next: the head of the ring whose ticket has the highest priority once
+     * promoted for its waiting time, the older of two equal candidates winning. Only the consumer may call this.
+     * @return the ticket, or {@code null} if the queue is empty
+     */
+    Ticket poll() {
+        long now = System.nanoTime();
+        Ring best = null;
+        long bestRank = Long.MAX_VALUE;
+        long bestAge = 0;
+        for (int i = 0; i < rings.length; i++) {
+            Ticket head = rings[i].peek();
+            if (head == null) continue;
+            long age = now - head.getDispatchedAt();
+            long rank = i - age / agingNanos;
+            if (rank < bestRank || rank == bestRank && age > bestAge) {
+                best = rings[i];
+                bestRank = rank;
+                bestAge = age;
+            }
+        }
+        return best == null ? null : best.poll();
+    }
+
+    /**
+     * Returns whether the queue holds no published ticket. Only the consumer may rely on the answer.
+     * @return {@code true} if there is nothing to poll
+     */
+    boolean isEmpty() {
+        for (Ring ring : rings) {
+            if (ring.peek() != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of tickets waiting, which may be stale by the time it is read.
+     * @return the approximate size
+     */
+    int size() {
+        int size = 0;
+        for (Ring ring : rings) {
+            size += ring.size();
+        }
+        return size;
+    }
+
+    /** A bounded ring buffer of the tickets of one priority. */
+    private static class Ring {
+        /** The slots; a slot is {@code null} until the ticket claimed for it is published. */
+        private final AtomicReferenceArray<Ticket> slots;
+        /** The mask that maps a sequence number to its slot. */
+        private final int mask;
+        /** The sequence number of the next slot to claim, advanced by the producers. */
+        private final AtomicLong tail = new AtomicLong();
+        /** The sequence number of the next slot to take, advanced only by the consumer. */
+        private final AtomicLong head = new AtomicLong();
+
+        /**
+         * Creates a new, empty {@code Ring}.
+         * @param capacity the number of slots, a power of two
+         */
+        Ring(int capacity) {
+            slots = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+
+        /**
+         * Claims the next slot and publishes a ticket into it.
+         * @param ticket the ticket
+         * @return {@code false} if the ring is full
+         */
+        boolean offer(Ticket ticket) {
+            while (true) {
+                long sequence = tail.get();
+                if (sequence - head.get() > mask) return false;
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    // a volatile write, so a cook about to park either sees the ticket or is seen parking
+                    slots.set((int) sequence & mask, ticket);
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Returns the ticket at the head without removing it.
+         * @return the ticket, or {@code null} if the ring is empty or the head is claimed but not yet published
+         */
+        Ticket peek() {
+            return slots.get((int) head.get() & mask);
+        }
+
+        /**
+         * Removes the ticket at the head.
+         * @return the ticket, or {@code null} if there is none to take
+         */
+        Ticket poll() {
+            long sequence = head.get();
+            int slot = (int) sequence & mask;
+            Ticket ticket = slots.get(slot);
+            if (ticket == null) return null;
+            slots.lazySet(slot, null);
+            head.lazySet(sequence + 1);
+            return ticket;
+        }
+
+        /**
+         * Returns the number of claimed slots not yet taken.
+         * @return the approximate size
+         */
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get());
+        }
+    }
+}
@@ -2,12 +2,48 @@ package menu;
 
 import exceptions.InvalidOrderIndex;
 import exceptions.InvalidProductIndex;
+import export.ExportFormat;
+import export.ExportKind;
+import export.OrderExporter;
+import file.MappedOrdersFile;
+import file.MenuWatcher;
+import file.OrderJournal;
 import file.TextFile;
+import kitchen.KitchenDispatcher;
+import kitchen.Priority;
+import metrics.MetricsRegistry;
+import metrics.Timer;
+import models.IdentifiedOrders;
 import models.Order;
+import models.OrderTable;
 import models.Product;
+import models.ProductCatalog;
+import reports.BasketAnalytics;
+import reports.DateIndex;
+import reports.NutritionReport;
+import reports.ProductRanking;
+import reports.ReportCache;
+import reports.ReportEngine;
+import reports.ReportMode;
+import reports.SalesAggregates;
+import service.OrderIntakeService;
+import store.OrderHistory;
+import store.OrderShards;
+import store.TieredOrders;
+import utils.ThreadPools;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static utils.Constants.*;
 
 /**
@@ -15,14 +51,61 @@ import static utils.Constants.*;
  * generating sales reports and handling menu options.
  */
 public class MenuManager {
+    /** The latency of loading the orders snapshot and replaying the journal. */
+    private static final Timer LOAD_ORDERS = MetricsRegistry.getDefault().timer("menu.loadOrders");
+    /** The latency of {@link #addOrder(Order)}, including the wait for durability. */
+    private static final Timer ADD_ORDER = MetricsRegistry.getDefault().timer("menu.addOrder");
+    /** The latency of {@link #deleteOrder(int)} and {@link #deleteOrderById(long)}, including the wait for durability. */
+    private static final Timer DELETE_ORDER = MetricsRegistry.getDefault().timer("menu.deleteOrder");
+    /** The latency of {@link #generateSalesReport(LocalDate, LocalDate)}. */
+    private static final Timer SALES_REPORT = MetricsRegistry.getDefault().timer("reports.sales");
+    /** The latency of {@link #generateBestSellers(int, ProductRanking, LocalDate, LocalDate)}. */
+    private static final Timer BEST_SELLERS = MetricsRegistry.getDefault().timer("reports.bestSellers");
+    /** The latency of the full scan that first computes the basket analytics. */
+    private static final Timer ANALYZE_BASKETS = MetricsRegistry.getDefault().timer("reports.analyzeBaskets");
+    /** The latency of {@link #generateNutritionReport(LocalDate, LocalDate)}. */
+    private static final Timer NUTRITION_REPORT = MetricsRegistry.getDefault().timer("reports.nutrition");
+    /** The latency of a journal compaction, from capturing the orders to swapping in the new orders file. */
+    private static final Timer COMPACT_JOURNAL = MetricsRegistry.getDefault().timer("menu.compactJournal");
+
     /** The main menu displayed to the user. */
     private Menu menu;
-    /** The text file handler for orders. */
-    private TextFile ordersFile;
-    /** The list of available products. */
-    private List<Product> products;
-    /** The list of current orders. */
-    private List<Order> orders;
+    /** The journal that makes every order change durable. */
+    private OrderJournal journal;
+    /** The name of the menu file, read again by {@link #reloadMenu()}. */
+    private String menuName;
+    /** The catalog of available products. */
+    private ProductCatalog products;
+    /** The list of current orders, each with a stable id. */
+    private IdentifiedOrders orders;
+    /** The sales aggregates kept in step with {@link #orders}. */
+    private SalesAggregates aggregates;
+    /** The basket analytics of {@link #orders}, kept in step once first asked for; {@code null} until then. */
+    private BasketAnalytics baskets;
+    /** The engine used for full scans of the order history. */
+    private ReportEngine reportEngine;
+    /** How the sales and best-seller reports are produced. */
+    private ReportMode reportMode = ReportMode.INCREMENTAL;
+    /** The number of recent days loaded eagerly, or 0 to load the whole history. */
+    private int hotDays;
+    /** The orders older than the hot window, paged in on demand; {@code null} when everything is loaded. */
+    private OrderHistory history;
+    /** The order files of other locations loaded as read-only shards; {@code null} until any are loaded. */
+    private OrderShards shards;
+    /** The number of order changes and menu reloads so far, used to tell whether cached reports are stale. */
+    private AtomicLong version = new AtomicLong();
+    /** The sales and best-seller reports computed since the last change. */
+    private ReportCache reportCache = new ReportCache("reports.cache", REPORT_CACHE_SIZE);
+    /** The dispatcher every added order is routed to the kitchen and bar through; {@code null} until started. */
+    private volatile KitchenDispatcher kitchen;
+    /** The exporter reused by {@link #export(ExportKind, String)}; guarded by itself. */
+    private OrderExporter exporter;
+    /** The orders passed to {@link #addOrder(Order)} and not yet added, in the order they were passed. */
+    private final Queue<SubmittedOrder> submitted = new ConcurrentLinkedQueue<>();
+    /** The thread journal compactions run on. */
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(ThreadPools.daemonThreads("compactor"));
+    /** The journal compaction under way, or {@code null}; guarded by {@code this}. */
+    private CompletableFuture<Void> compaction;
 
     /** Creates a new {@code MenuManager} and initializes the main menu. */
     public MenuManager() {
@@ -36,27 +119,570 @@ public class MenuManager {
 
     /** Reads the input files for the menu and orders. */
     public void readInputFiles() {
-        TextFile menuFile = new TextFile("menu.txt");
+        readInputFiles("menu.txt", "orders.txt", "orders.journal");
+    }
+
+    /**
+     * Reads the given input files for the menu and orders. An orders file written before order ids were
+     * stored is first rewritten with the ids its orders get by position, once, so later loads read them.
+     * @param menuName    the name of the menu file
+     * @param ordersName  the name of the orders file
+     * @param journalName the name of the order journal
+     */
+    public void readInputFiles(String menuName, String ordersName, String journalName) {
+        this.menuName = menuName;
+        TextFile menuFile = new TextFile(menuName);
         menuFile.open();
         products = menuFile.readMenu();
 
-        ordersFile = new TextFile("orders.txt");
+        journal = new OrderJournal(journalName, ordersName);
+        journal.recover();
+        TextFile ordersFile = new TextFile(ordersName);
         ordersFile.open();
-        orders = ordersFile.readOrders(products);
+        if (!ordersFile.storesIds()) journal.rewriteSnapshot(ordersFile::copyWithIds);
+        long start = LOAD_ORDERS.start();
+        List<Order> hot;
+        if (hotDays > 0) {
+            history = new OrderHistory(ordersName, products, LocalDate.now().minusDays(hotDays - 1));
+            OrderTable hotOrders = new OrderTable(history.readHotOrders(), history.getLastId() + 1);
+            TieredOrders tiered = new TieredOrders(history, hotOrders);
+            orders = tiered;
+            hot = tiered.getHot();
+        } else {
+            orders = new OrderTable(new MappedOrdersFile(ordersName).readOrders(products), 1);
+            hot = orders;
+        }
+        journal.replay(orders, products);
+        LOAD_ORDERS.stop(start);
+        aggregates = new SalesAggregates(products, hot);
+        reportEngine = new ReportEngine(products);
+        exporter = new OrderExporter(products);
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.gauge("orders.count", this::getOrderCount);
+        metrics.gauge("heap.bytesPerOrder", () -> {
+            Runtime runtime = Runtime.getRuntime();
+            int count = getOrderCount();
+            return count == 0 ? 0 : (double) (runtime.totalMemory() - runtime.freeMemory()) / count;
+        });
     }
 
-    /** Saves the current list of orders to the orders file. */
+    /**
+     * Loads only the orders of the last given number of days when the input files are read; older
+     * orders stay on disk and are paged in when a report, listing or deletion needs them.
+     * The orders file must be in date order. Must be called before the input files are read.
+     * @param days the number of days to load eagerly, counting today, or 0 to load the whole history
+     */
+    public void setHotWindow(int days) {
+        this.hotDays = days;
+    }
+
+    /**
+     * Sets how the sales and best-seller reports are produced.
+     * @param reportMode the report mode
+     */
+    public void setReportMode(ReportMode reportMode) {
+        this.reportMode = reportMode;
+    }
+
+    /**
+     * Sets how many sales and best-seller reports are kept until the next change. Repeating a cached
+     * report between changes costs a hash lookup instead of an aggregation.
+     * @param capacity the maximum number of cached reports, or 0 to recompute every report
+     */
+    public void setReportCacheSize(int capacity) {
+        reportCache.setCapacity(capacity);
+    }
+
+    /**
+     * Closes the order journal. Every order change is already durable, so the orders file
+     * is only rewritten if the journal has grown past the compaction threshold; a compaction
+     * already under way is waited for.
+     */
     public void saveOrders() {
-        ordersFile.saveOrders(orders);
+        awaitCompaction();
+        synchronized (this) {
+            compactJournalIfNeeded();
+        }
+        awaitCompaction();
+        synchronized (this) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Adds an order, journals it and updates the aggregates. Safe to call from any thread;
+     * the caller returns once the order is durable and, while the kitchen is running, dispatched to it.
+     * Orders passed concurrently are queued and added in one pass by whichever caller takes the lock
+     * first, so a burst of submissions costs one lock hand-off and, through the journal, one fsync.
+     * @param order the order to add
+     * @return the id of the order
+     */
+    public long addOrder(Order order) {
+        long start = ADD_ORDER.start();
+        SubmittedOrder added = new SubmittedOrder(order);
+        submitted.add(added);
+        synchronized (this) {
+            addSubmitted();
+        }
+        if (added.failure != null) throw added.failure;
+        journal.awaitDurable(added.sequence);
+        ADD_ORDER.stop(start);
+        KitchenDispatcher kitchen = this.kitchen;
+        if (kitchen != null) kitchen.dispatch(added.id, order, Priority.NORMAL);
+        return added.id;
+    }
+
+    /**
+     * Adds and journals every queued order, in the order they were queued. An order that cannot be added
+     * keeps the failure for its own caller to throw. The caller must hold the lock.
+     */
+    private void addSubmitted() {
+        SubmittedOrder next;
+        while ((next = submitted.poll()) != null) {
+            try {
+                next.sequence = journal.enqueueAdd(orders.getNextId(), next.order);
+                orders.add(next.order);
+                next.id = orders.getId(orders.size() - 1);
+                aggregates.add(next.order);
+                if (baskets != null) baskets.add(next.order);
+                version.incrementAndGet();
+            } catch (RuntimeException e) {
+                next.failure = e;
+            }
+        }
+        compactJournalIfNeeded();
+    }
+
+    /**
+     * Deletes the order at the given position, journals the deletion and updates the aggregates.
+     * Safe to call from any thread; the caller returns once the deletion is durable.
+     * @param index the position of the order
+     * @return the deleted order
+     * @throws InvalidOrderIndex if there is no order at that position
+     */
+    public Order deleteOrder(int index) throws InvalidOrderIndex {
+        return delete(index, false);
+    }
+
+    /**
+     * Deletes the order with the given id, journals the deletion and updates the aggregates.
+     * Safe to call from any thread; the caller returns once the deletion is durable.
+     * @param id the order id
+     * @return the deleted order
+     * @throws InvalidOrderIndex if there is no order with that id
+     */
+    public Order deleteOrderById(long id) throws InvalidOrderIndex {
+        return delete(id, true);
+    }
+
+    /**
+     * Deletes an order, journals the deletion by id and updates the aggregates.
+     * @param key  the position or the id of the order
+     * @param byId whether {@code key} is an id
+     * @return the deleted order
+     * @throws InvalidOrderIndex if there is no such order
+     */
+    private Order delete(long key, boolean byId) throws InvalidOrderIndex {
+        long start = DELETE_ORDER.start();
+        long sequence;
+        Order order;
+        synchronized (this) {
+            int index = byId ? orders.positionOf(key) : (int) Math.max(-1, Math.min(key, Integer.MAX_VALUE));
+            if (index < 0 || index >= orders.size())
+                throw new InvalidOrderIndex(byId ? "Please enter a valid order id!" : "Please enter a valid order index!");
+            boolean cold = history != null && ((TieredOrders) orders).isCold(index);
+            long id = orders.getId(index);
+            order = orders.remove(index);
+            sequence = journal.enqueueRemove(id);
+            if (!cold) aggregates.remove(order);
+            if (baskets != null) baskets.remove(order);
+            version.incrementAndGet();
+            compactJournalIfNeeded();
+        }
+        journal.awaitDurable(sequence);
+        DELETE_ORDER.stop(start);
+        return order;
+    }
+
+    /**
+     * Returns the catalog of available products.
+     * @return the product catalog
+     */
+    public ProductCatalog getProducts() {
+        return products;
+    }
+
+    /**
+     * Reads the menu file again and publishes it as the current menu in one step. Products keep their
+     * ids, new products are added and dropped products can no longer be ordered, while orders already
+     * placed keep the value they were charged. The swap costs O(menu) and does not take the manager's
+     * lock, so orders and reports carry on while the menu is reloaded. Counts as a change, so cached
+     * reports are recomputed.
+     * @return the number of products on the new menu
+     * @throws IllegalArgumentException if the menu file has no products or names a product twice
+     */
+    public int reloadMenu() {
+        TextFile menuFile = new TextFile(menuName);
+        menuFile.open();
+        List<Product> menu = menuFile.readMenu().getProducts();
+        if (menu.isEmpty()) throw new IllegalArgumentException(menuName + " has no products");
+        products.reload(menu);
+        version.incrementAndGet();
+        return menu.size();
+    }
+
+    /**
+     * Starts reloading the menu whenever the menu file changes.
+     * @return the watcher, which stops watching when closed
+     */
+    public MenuWatcher watchMenu() {
+        return new MenuWatcher(menuName, this::reloadMenu);
+    }
+
+    /**
+     * Starts routing every added order to the kitchen lines and the bar, whose cooks are simulated.
+     * @param prepPerItem the simulated preparation time per item
+     * @return the dispatcher, which lets the cooks finish the queued tickets when closed
+     */
+    public KitchenDispatcher startKitchen(Duration prepPerItem) {
+        kitchen = new KitchenDispatcher(KITCHEN_QUEUE_CAPACITY, Duration.ofSeconds(KITCHEN_AGING_SECONDS), prepPerItem);
+        return kitchen;
+    }
+
+    /**
+     * Returns the number of orders currently held.
+     * @return the order count
+     */
+    public synchronized int getOrderCount() {
+        return orders.size();
+    }
+
+    /**
+     * Returns a page of the current orders with their ids, oldest first.
+     * @param page     the page number, counting from 0
+     * @param pageSize the number of orders per page
+     * @return a map of ids to orders, in order; empty past the last page
+     */
+    public synchronized Map<Long, Order> getOrderPage(int page, int pageSize) {
+        return orders.page(page * pageSize, pageSize);
+    }
+
+    /**
+     * Returns the number of pages the current orders fill, which is at least one.
+     * @param pageSize the number of orders per page
+     * @return the page count
+     */
+    public synchronized int getPageCount(int pageSize) {
+        return Math.max(1, (orders.size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Returns a counter that increases with every order added or deleted, shard load and menu reload.
+     * @return the current order version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Starts a service that takes orders from concurrent producers and adds them through {@link #addOrder(Order)},
+     * completing each submission with the id of the order.
+     * @return the running intake service
+     */
+    public OrderIntakeService startIntakeService() {
+        return new OrderIntakeService(products, this::addOrder);
+    }
+
+    /**
+     * Starts folding the journal into the orders file in the background once the journal has grown past
+     * half the size of the orders file, so replaying it never costs more than half a load, and the rewrites
+     * cost O(1) amortized per byte journalled. The caller must hold the lock.
+     */
+    private void compactJournalIfNeeded() {
+        if (compaction != null) return;
+        if (journal.size() > Math.max(JOURNAL_COMPACTION_MIN_SIZE, journal.getSnapshotSize() / 2))
+            compaction = startCompaction();
+    }
+
+    /** Folds the journal into the orders file now, waiting for it and for any compaction already under way. */
+    void compactJournal() {
+        awaitCompaction();
+        synchronized (this) {
+            if (compaction == null) compaction = startCompaction();
+        }
+        awaitCompaction();
+    }
+
+    /**
+     * Captures the orders and marks the journal, then writes the orders file on the compaction thread and
+     * swaps it in under the lock. Capturing copies the columns of the in-memory orders and the deletion marks
+     * of the cold ones; the cold lines are copied from the current orders file without being parsed. Orders
+     * added and deleted while the file is written stay in the journal. The caller must hold the lock.
+     * @return the compaction
+     */
+    private CompletableFuture<Void> startCompaction() {
+        long start = COMPACT_JOURNAL.start();
+        long mark = journal.mark();
+        long nextId = orders.getNextId();
+        OrderTable hot = (history == null ? (OrderTable) orders : ((TieredOrders) orders).getHot()).copy();
+        OrderHistory.ColdLines cold = history == null ? null : history.snapshot();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                journal.writeSnapshot(name -> {
+                    TextFile file = new TextFile(name);
+                    file.open();
+                    if (cold == null) {
+                        file.saveOrders(hot);
+                    } else {
+                        cold.copyTo(name);
+                        file.appendOrders(hot);
+                    }
+                });
+                synchronized (this) {
+                    journal.finishCompaction(mark, nextId);
+                    if (history != null) history.reopen(cold);
+                }
+                COMPACT_JOURNAL.stop(start);
+            } finally {
+                synchronized (this) {
+                    compaction = null;
+                }
+            }
+        }, compactor);
+    }
+
+    /** Waits for the journal compaction under way, if any, to finish. */
+    private void awaitCompaction() {
+        CompletableFuture<Void> running;
+        synchronized (this) {
+            running = compaction;
+        }
+        if (running != null) running.join();
+    }
+
+    /**
+     * Loads the order files of other locations, or of past months, as read-only shards whose totals are
+     * merged into the reports. The files are loaded in parallel.
+     * @param files the names of the order files by shard name, which must differ from {@link utils.Constants#LOCAL_SHARD}
+     */
+    public synchronized void loadShards(Map<String, String> files) {
+        if (files.containsKey(LOCAL_SHARD)) throw new IllegalArgumentException(LOCAL_SHARD + " is reserved");
+        if (shards == null) shards = new OrderShards(products);
+        shards.load(files);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Returns the names of the shards the reports can be filtered by: {@link utils.Constants#LOCAL_SHARD}
+     * for the orders managed here, followed by the loaded shards.
+     * @return the shard names
+     */
+    public synchronized Set<String> getShardNames() {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(LOCAL_SHARD);
+        if (shards != null) names.addAll(shards.getNames());
+        return names;
     }
 
     /**
      * Generates a sales report mapping each date to the total sales value.
-     * @return a map of dates to total sales values
+     * @return a map of dates to total sales values, in date order
      */
     public Map<LocalDate, Integer> generateSalesReport() {
-        return orders.stream().collect(
-                Collectors.groupingBy(Order::getDate, Collectors.summingInt(Order::getValue)));
+        return generateSalesReport(null, null);
+    }
+
+    /**
+     * Generates a sales report over a date range and every shard.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return a map of dates to total sales values, in date order
+     */
+    public Map<LocalDate, Integer> generateSalesReport(LocalDate from, LocalDate to) {
+        return generateSalesReport(from, to, null);
+    }
+
+    /**
+     * Generates a sales report over a date range and some shards. The report is cached until the next change.
+     * @param from       the first day of the range, or {@code null} for no lower bound
+     * @param to         the last day of the range, or {@code null} for no upper bound
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return a map of dates to total sales values, in date order
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    public synchronized Map<LocalDate, Integer> generateSalesReport(LocalDate from, LocalDate to,
+                                                                    Collection<String> shardNames) {
+        long start = SALES_REPORT.start();
+        Map<LocalDate, Integer> sales = reportCache.get(Arrays.asList("sales", from, to, shardKey(shardNames)),
+                version.get(), () -> Collections.unmodifiableMap(computeSalesReport(from, to, shardNames)));
+        SALES_REPORT.stop(start);
+        return sales;
+    }
+
+    /**
+     * Computes a sales report over a date range and some shards.
+     * @param from       the first day of the range, or {@code null} for no lower bound
+     * @param to         the last day of the range, or {@code null} for no upper bound
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return a map of dates to total sales values, in date order
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    private Map<LocalDate, Integer> computeSalesReport(LocalDate from, LocalDate to, Collection<String> shardNames) {
+        List<String> others = otherShards(shardNames);
+        Map<LocalDate, Integer> sales;
+        if (shardNames != null && !shardNames.contains(LOCAL_SHARD)) sales = new TreeMap<>();
+        else if (reportMode == ReportMode.INCREMENTAL) sales = aggregates.getSalesReport(from, to, historyTotals(from, to));
+        else sales = reportEngine.generateSalesReport(orders, from, to, reportMode == ReportMode.PARALLEL);
+        if (!others.isEmpty()) shards.addSalesReport(sales, others, from, to);
+        return sales;
+    }
+
+    /**
+     * Returns the part of a report cache key that identifies the shards a report includes.
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return the set of shard names, or {@code null} for every shard
+     */
+    private static Set<String> shardKey(Collection<String> shardNames) {
+        return shardNames == null ? null : new HashSet<>(shardNames);
+    }
+
+    /**
+     * Resolves the loaded shards among the shards a report includes.
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return the names of the loaded shards to include
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    private List<String> otherShards(Collection<String> shardNames) {
+        Set<String> loaded = shards == null ? Set.of() : shards.getNames();
+        if (shardNames == null) return new ArrayList<>(loaded);
+        List<String> others = new ArrayList<>();
+        for (String name : shardNames) {
+            if (loaded.contains(name)) others.add(name);
+            else if (!name.equals(LOCAL_SHARD)) throw new IllegalArgumentException("Unknown shard: " + name);
+        }
+        return others;
+    }
+
+    /**
+     * Returns the daily totals of the orders left on disk that fall in a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the totals of each history segment in the range; empty if the range starts in the hot window
+     */
+    private List<DateIndex> historyTotals(LocalDate from, LocalDate to) {
+        if (history == null || (from != null && !from.isBefore(history.getCutoff()))) return List.of();
+        return history.getDateIndexes(from, to);
+    }
+
+    /**
+     * Returns the index of the daily totals, which answers revenue, order count and
+     * per-product queries over date ranges. With a hot window, it covers only the orders loaded in memory.
+     * While an intake service is running, queries must synchronize on this manager.
+     * @return the date index
+     */
+    public DateIndex getDateIndex() {
+        return aggregates.getDateIndex();
+    }
+
+    /**
+     * Returns the revenue of every product that sold.
+     * @return a map of product names to their revenue, highest first
+     */
+    public synchronized Map<String, Long> getRevenueByProduct() {
+        return baskets().getRevenueByProduct();
+    }
+
+    /**
+     * Returns the average number of items per order.
+     * @return the average basket size
+     */
+    public synchronized double getAverageBasketSize() {
+        return baskets().getAverageBasketSize();
+    }
+
+    /**
+     * Returns the average order value.
+     * @return the average basket value
+     */
+    public synchronized double getAverageBasketValue() {
+        return baskets().getAverageBasketValue();
+    }
+
+    /**
+     * Returns the products most often bought in the same order as a product, e.g. to suggest at the till.
+     * @param productName the name of the product
+     * @param limit       the maximum number of products to return
+     * @return a map of product names to the number of orders holding both products, highest first
+     * @throws IllegalArgumentException if there is no product with that name
+     */
+    public synchronized Map<String, Long> getBoughtTogether(String productName, int limit) {
+        Product product = products.get(productName);
+        if (product == null) throw new IllegalArgumentException("Unknown product: " + productName);
+        return baskets().getBoughtTogether(product, limit);
+    }
+
+    /**
+     * Generates the nutrition and drink totals of the orders over a date range, scanning the history in
+     * parallel partitions unless the report mode is sequential. With a hot window, this pages the older
+     * orders in. The report is cached until the next change.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the nutrition report
+     */
+    public synchronized NutritionReport generateNutritionReport(LocalDate from, LocalDate to) {
+        long start = NUTRITION_REPORT.start();
+        NutritionReport nutrition = reportCache.get(Arrays.asList("nutrition", from, to), version.get(),
+                () -> reportEngine.analyzeNutrition(orders, from, to, reportMode != ReportMode.SEQUENTIAL));
+        NUTRITION_REPORT.stop(start);
+        return nutrition;
+    }
+
+    /**
+     * Returns the basket analytics, computing them over every order on first use; with a hot window,
+     * this pages the whole history in once.
+     * @return the basket analytics
+     */
+    private BasketAnalytics baskets() {
+        if (baskets == null) {
+            long start = ANALYZE_BASKETS.start();
+            baskets = reportEngine.analyzeBaskets(orders, reportMode != ReportMode.SEQUENTIAL);
+            ANALYZE_BASKETS.stop(start);
+        }
+        return baskets;
+    }
+
+    /**
+     * Streams the current orders, oldest first, without holding this manager's lock for the whole stream:
+     * the orders are copied out {@value utils.Constants#EXPORT_PAGE_SIZE} at a time, each page under the
+     * lock, and with a hot window the older orders are paged in through the history's bounded cache.
+     * Orders added while the stream is consumed are included; orders deleted before their page is copied are not.
+     * @return a sequential stream of the orders
+     */
+    public Stream<Order> streamOrders() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new OrderPager(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Exports the current orders, or a report computed from them, to a file while orders keep coming in.
+     * The orders are pulled through {@link #streamOrders()}, so memory stays bounded however long the history.
+     * @param kind what to export
+     * @param name the name of the file; its extension, {@code .csv} or {@code .jsonl}, selects the format,
+     *             and a further {@code .gz} compresses it
+     * @return the number of records written
+     * @throws IllegalArgumentException if the extension is not supported
+     */
+    public long export(ExportKind kind, String name) {
+        ExportFormat format = ExportFormat.forFile(name);
+        synchronized (exporter) {
+            try (OutputStream out = new FileOutputStream(name); Stream<Order> orders = streamOrders()) {
+                exporter.setFormat(format, ExportFormat.isGzip(name));
+                return exporter.export(kind, orders.iterator(), out);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     /** Saves the sales report to a text file. */
@@ -72,21 +698,69 @@ public class MenuManager {
      * @return a map of product names to their sales counts
      */
     public Map<String, Long> generateBestSellers() {
-        List<Product> allProducts = new ArrayList<>();
-        for (Order o : orders) {
-            allProducts.addAll(o.getProducts());
-        }
-        Map<String, Long> bs = allProducts.stream()
-                .collect(Collectors.groupingBy(Product::getName, Collectors.counting()));
-        Map<String, Long> bestSellers = bs.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .limit(BEST_SELLERS_LIMIT)
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new
-                ));
+        return generateBestSellers(BEST_SELLERS_LIMIT, ProductRanking.UNITS, null, null);
+    }
+
+    /**
+     * Generates a list of best-selling products over a date range, e.g. the top 20 by revenue this week.
+     * @param limit   the maximum number of products to return
+     * @param ranking the measure to rank the products by
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @return a map of product names to their units sold or revenue, best seller first
+     */
+    public Map<String, Long> generateBestSellers(int limit, ProductRanking ranking, LocalDate from, LocalDate to) {
+        return generateBestSellers(limit, ranking, from, to, null);
+    }
+
+    /**
+     * Generates a list of best-selling products over a date range and some shards. The list is cached until
+     * the next change.
+     * @param limit      the maximum number of products to return
+     * @param ranking    the measure to rank the products by
+     * @param from       the first day of the range, or {@code null} for no lower bound
+     * @param to         the last day of the range, or {@code null} for no upper bound
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return a map of product names to their units sold or revenue, best seller first
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    public synchronized Map<String, Long> generateBestSellers(int limit, ProductRanking ranking, LocalDate from,
+                                                              LocalDate to, Collection<String> shardNames) {
+        long start = BEST_SELLERS.start();
+        Map<String, Long> bestSellers = reportCache.get(
+                Arrays.asList("best-sellers", limit, ranking, from, to, shardKey(shardNames)), version.get(),
+                () -> Collections.unmodifiableMap(computeBestSellers(limit, ranking, from, to, shardNames)));
+        BEST_SELLERS.stop(start);
         return bestSellers;
     }
 
+    /**
+     * Computes the best-selling products over a date range and some shards.
+     * @param limit      the maximum number of products to return
+     * @param ranking    the measure to rank the products by
+     * @param from       the first day of the range, or {@code null} for no lower bound
+     * @param to         the last day of the range, or {@code null} for no upper bound
+     * @param shardNames the shards to include, or {@code null} for every shard
+     * @return a map of product names to their units sold or revenue, best seller first
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    private Map<String, Long> computeBestSellers(int limit, ProductRanking ranking, LocalDate from, LocalDate to,
+                                                 Collection<String> shardNames) {
+        List<String> others = otherShards(shardNames);
+        if (others.isEmpty() && (shardNames == null || shardNames.contains(LOCAL_SHARD))) {
+            if (reportMode == ReportMode.INCREMENTAL)
+                return aggregates.getBestSellers(limit, ranking, from, to, historyTotals(from, to));
+            return reportEngine.generateBestSellers(orders, limit, ranking, from, to, reportMode == ReportMode.PARALLEL);
+        }
+        long[] scores;
+        if (shardNames != null && !shardNames.contains(LOCAL_SHARD)) scores = new long[products.size()];
+        else if (reportMode == ReportMode.INCREMENTAL)
+            scores = aggregates.getProductScores(ranking, from, to, historyTotals(from, to));
+        else scores = reportEngine.scoreProducts(orders, ranking, from, to, reportMode == ReportMode.PARALLEL);
+        shards.addProductScores(scores, others, ranking, from, to);
+        return aggregates.rank(limit, scores);
+    }
+
     /**  Saves the bestsellers report to a text file. */
     public void saveBestSellers() {
         TextFile bestSellers = new TextFile("best_sellers.txt");
@@ -95,14 +769,28 @@ public class MenuManager {
         bestSellers.saveBestSellers(bs);
     }
 
+    /**
+     * Parses an order id typed at the console.
+     * @param token the token typed
+     * @return the order id, or 0 to finish
+     * @throws InvalidOrderIndex if the token is not a number
+     */
+    private static long parseOrderId(String token) throws InvalidOrderIndex {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new InvalidOrderIndex("Please enter a valid order id!");
+        }
+    }
+
     /**
      * Adds menu options to the main menu, including adding orders,
-     * deleting orders, viewing sales reports, and viewing bestsellers.
+     * deleting orders, viewing sales reports, viewing bestsellers and viewing basket analytics.
      */
     public void addMenuOptions() {
         MenuOption addOrder = new MenuOption(() -> {
             System.out.println(ADD_ORDER_HEADER);
-            products.forEach(p -> System.out.println((products.indexOf(p) + 1) + ". " + p));
+            products.getProducts().forEach(p -> System.out.println((p.getId() + 1) + ". " + p));
             System.out.println(ADD_ORDER_FOOTER);
 
             Scanner scanner = new Scanner(System.in);
@@ -111,13 +799,14 @@ public class MenuManager {
                 try {
                     int choice = scanner.nextInt();
                     if (choice == 0 && !order.getProducts().isEmpty()) {
-                        orders.add(order);
+                        addOrder(order);
                         break;
                     } else if (choice == 0) {
                         break;
                     } else if (choice < 0 || choice > products.size())
                         throw new InvalidProductIndex("Please enter a valid product index!");
-                    Product product = products.get(--choice);
+                    Product product = products.get(choice - 1);
+                    if (!products.isOnMenu(product)) throw new InvalidProductIndex("Please enter a valid product index!");
                     order.add(product);
                     System.out.println(product.getName() + " added");
                 } catch(InvalidProductIndex e) {
@@ -131,17 +820,26 @@ public class MenuManager {
         MenuOption deleteOrder = new MenuOption(() -> {
             System.out.println(DELETE_ORDER_HEADER);
             Scanner scanner = new Scanner(System.in);
+            int page = getPageCount(ORDERS_PAGE_SIZE) - 1;
             while (true) {
                 try {
-                    orders.forEach(o -> System.out.println((orders.indexOf(o) + 1) + ". " + o));
+                    int pages = getPageCount(ORDERS_PAGE_SIZE);
+                    page = Math.min(page, pages - 1);
+                    getOrderPage(page, ORDERS_PAGE_SIZE).forEach((id, o) -> System.out.println(id + ". " + o));
+                    System.out.println("Page " + (page + 1) + " of " + pages);
+                    System.out.println(ORDERS_PAGE_FOOTER);
                     System.out.println(DELETE_ORDER_FOOTER);
-                    int choice = scanner.nextInt();
-                    if (choice == 0) break;
-                    else if (choice < 0 || choice > orders.size())
-                        throw new InvalidOrderIndex("Please enter a valid order index!");
-                    Order order = orders.get(--choice);
-                    orders.remove(order);
-                    System.out.println("models.Order with index " + (++choice) + " deleted");
+                    String choice = scanner.next();
+                    if (choice.equalsIgnoreCase(NEXT_PAGE)) {
+                        page = Math.min(page + 1, pages - 1);
+                    } else if (choice.equalsIgnoreCase(PREVIOUS_PAGE)) {
+                        page = Math.max(page - 1, 0);
+                    } else {
+                        long id = parseOrderId(choice);
+                        if (id == 0) break;
+                        deleteOrderById(id);
+                        System.out.println("models.Order with id " + id + " deleted");
+                    }
                 } catch (InvalidOrderIndex e) {
                     System.out.println(e.getMessage());
                 }
@@ -158,6 +856,17 @@ public class MenuManager {
             System.out.println(LINE_BREAK);
         });
 
+        MenuOption basketAnalytics = new MenuOption(() -> {
+            System.out.println(BASKET_ANALYTICS_HEADER);
+            System.out.printf("Average basket: %.2f items, %.2fRON%n", getAverageBasketSize(), getAverageBasketValue());
+            for (Map.Entry<String, Long> entry : getRevenueByProduct().entrySet()) {
+                Map<String, Long> partners = getBoughtTogether(entry.getKey(), BOUGHT_TOGETHER_LIMIT);
+                System.out.println(entry.getKey() + ": " + entry.getValue() + "RON"
+                        + (partners.isEmpty() ? "" : ", often with " + String.join(", ", partners.keySet())));
+            }
+            System.out.println(LINE_BREAK);
+        });
+
         MenuOption bestSellers = new MenuOption(() -> {
             System.out.println(BEST_SELLERS_HEADER);
             Map<String, Long> bs = generateBestSellers();
@@ -171,5 +880,92 @@ public class MenuManager {
         menu.addOption(deleteOrder);
         menu.addOption(salesReport);
         menu.addOption(bestSellers);
+        menu.addOption(basketAnalytics);
+    }
+
+    /** An order passed to {@link #addOrder(Order)}, with the id and journal sequence it got once added. */
+    private static class SubmittedOrder {
+        /** The order. */
+        private final Order order;
+        /** The id of the order; written under the manager's lock. */
+        private long id;
+        /** The sequence number of the order's journal record; written under the manager's lock. */
+        private long sequence;
+        /** Why the order could not be added, or {@code null}; written under the manager's lock. */
+        private RuntimeException failure;
+
+        /**
+         * Creates a new {@code SubmittedOrder}.
+         * @param order the order
+         */
+        SubmittedOrder(Order order) {
+            this.order = order;
+        }
+    }
+
+    /**
+     * Iterates over the current orders a page at a time. A page starts after the id of the last order
+     * copied, found by binary search over the ids, which grow with the position, unless nothing changed
+     * since the previous page, and is copied with {@link IdentifiedOrders#page(int, int)}, which reads
+     * the history a segment at a time.
+     */
+    private class OrderPager implements Iterator<Order> {
+        /** The orders of the current page. */
+        private List<Order> page = List.of();
+        /** The position of the next order in {@link #page}. */
+        private int next;
+        /** The id of the last order copied, or 0 before the first page. */
+        private long lastId;
+        /** The position after the last order copied, valid while the version is {@link #pageVersion}. */
+        private int nextPosition;
+        /** The version of the orders when the last page was copied. */
+        private long pageVersion = -1;
+
+        @Override
+        public boolean hasNext() {
+            if (next < page.size()) return true;
+            page = nextPage();
+            next = 0;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public Order next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return page.get(next++);
+        }
+
+        /**
+         * Copies the orders after the last one copied.
+         * @return at most a page of orders, empty at the end
+         */
+        private List<Order> nextPage() {
+            synchronized (MenuManager.this) {
+                int from = version.get() == pageVersion ? nextPosition : firstAfter(lastId);
+                Map<Long, Order> copied = orders.page(from, EXPORT_PAGE_SIZE);
+                for (long id : copied.keySet()) {
+                    lastId = id;
+                }
+                nextPosition = from + copied.size();
+                pageVersion = version.get();
+                return new ArrayList<>(copied.values());
+            }
+        }
+
+        /**
+         * Returns the position of the first order with a greater id.
+         * @param id the id
+         * @return the position, or the number of orders if there is none
+         */
+        private int firstAfter(long id) {
+            int low = 0;
+            int high = orders.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (orders.getId(middle) <= id) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
     }
 }
@@ -0,0 +1,30 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A monotonically increasing count that many threads can update without contending. */
+public class Counter {
+    /** The striped sum behind the count. */
+    private LongAdder count = new LongAdder();
+
+    /** Adds one to the count. */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds to the count.
+     * @param amount the amount to add
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     * @return the count
+     */
+    public long get() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,11 @@
+package metrics;
+
+/** A value sampled when a snapshot is taken, such as the number of orders held. */
+@FunctionalInterface
+public interface Gauge {
+    /**
+     * Returns the current value.
+     * @return the sampled value
+     */
+    double get();
+}
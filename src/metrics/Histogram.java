@@ -0,0 +1,111 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values with HDR-style log-linear buckets: values below
+ * {@value #SUB_BUCKETS} get a bucket each, and every power of two above that is split into
+ * {@value #SUB_BUCKETS} equal buckets, which bounds the relative error of a percentile to about 3%
+ * over the whole {@code long} range in under 2,000 counters.
+ */
+public class Histogram {
+    /** The number of sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 32;
+    /** The base-2 logarithm of {@link #SUB_BUCKETS}. */
+    private static final int SUB_BUCKET_BITS = 5;
+    /** The total number of buckets. */
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /** The number of values recorded in each bucket. */
+    private AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /** The number of values recorded. */
+    private LongAdder count = new LongAdder();
+    /** The sum of the values recorded. */
+    private LongAdder sum = new LongAdder();
+    /** The largest value recorded. */
+    private AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     * @param value the value to record; negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     * @return the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Returns the largest value recorded.
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the recorded values fall.
+     * @param percentile the percentage, between 0 and 100
+     * @return the upper bound of the bucket holding that percentile, capped at the maximum
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the bucket a value falls in.
+     * @param value the non-negative value
+     * @return the bucket index
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value that falls in a bucket.
+     * @param bucket the bucket index
+     * @return the inclusive upper bound of the bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long upper = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,63 @@
+package metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import javax.management.*;
+
+/** A dynamic MBean exposing every value of a {@link MetricsRegistry} snapshot as a read-only attribute. */
+class MetricsMBean implements DynamicMBean {
+    /** The registry whose metrics are exposed. */
+    private MetricsRegistry registry;
+
+    /**
+     * Creates a new {@code MetricsMBean}.
+     * @param registry the registry whose metrics are exposed
+     */
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = registry.snapshot().get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+        return value.doubleValue();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        SortedMap<String, Number> snapshot = registry.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = snapshot.get(attribute);
+            if (value != null) list.add(new Attribute(attribute, value.doubleValue()));
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        SortedMap<String, Number> snapshot = registry.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> entry : snapshot.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), "double", entry.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Restaurant metrics", attributes, null, null, null);
+    }
+}
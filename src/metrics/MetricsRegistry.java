@@ -0,0 +1,187 @@
+package metrics;
+
+import utils.ThreadPools;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A registry of named counters, timers, histograms and gauges. Metrics are created on first use and
+ * updated without locks, so they can sit on hot paths. The registry can be read as a flat snapshot,
+ * rendered as text or JSON, reported periodically, exposed as a JMX MBean, and made to emit JFR
+ * events for timed operations.
+ */
+public class MetricsRegistry {
+    /** The registry shared by the application. */
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    /** The counters, by name. */
+    private Map<String, Counter> counters = new ConcurrentHashMap<>();
+    /** The histograms and timers, by name. */
+    private Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    /** The gauges, by name. */
+    private Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    /** Whether timers commit JFR events. */
+    private volatile boolean jfrEnabled;
+    /** The executor running periodic reports, created on first use. */
+    private ScheduledExecutorService reporter;
+
+    /**
+     * Returns the registry shared by the application.
+     * @return the default registry
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     * @param name the metric name
+     * @return the counter
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     * @param name the metric name
+     * @return the histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Returns the timer with the given name, creating it if needed.
+     * @param name the metric name
+     * @return the timer
+     * @throws IllegalArgumentException if a plain histogram already has that name
+     */
+    public Timer timer(String name) {
+        Histogram histogram = histograms.computeIfAbsent(name, n -> new Timer(n, this));
+        if (!(histogram instanceof Timer)) throw new IllegalArgumentException(name + " is not a timer");
+        return (Timer) histogram;
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge with the same name.
+     * @param name  the metric name
+     * @param gauge the gauge
+     */
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Returns whether timers commit JFR events.
+     * @return {@code true} if JFR events are enabled
+     */
+    public boolean isJfrEnabled() {
+        return jfrEnabled;
+    }
+
+    /**
+     * Sets whether timers commit JFR events. The events are recorded only while a JFR recording
+     * that enables {@code restaurant.Operation} is running.
+     * @param jfrEnabled {@code true} to emit JFR events
+     */
+    public void setJfrEnabled(boolean jfrEnabled) {
+        this.jfrEnabled = jfrEnabled;
+    }
+
+    /**
+     * Takes a snapshot of every metric. Histograms contribute their count, mean, p50, p99 and max
+     * under {@code name.count}, {@code name.mean} and so on.
+     * @return the metric values, by name
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.get()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+        histograms.forEach((name, histogram) -> {
+            snapshot.put(name + ".count", histogram.getCount());
+            snapshot.put(name + ".mean", histogram.getMean());
+            snapshot.put(name + ".p50", histogram.getPercentile(50));
+            snapshot.put(name + ".p99", histogram.getPercentile(99));
+            snapshot.put(name + ".max", histogram.getMax());
+        });
+        return snapshot;
+    }
+
+    /**
+     * Renders a snapshot as text, one {@code name value} pair per line.
+     * @return the snapshot as text
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        snapshot().forEach((name, value) -> sb.append(name).append(' ').append(format(value)).append('\n'));
+        return sb.toString();
+    }
+
+    /**
+     * Renders a snapshot as a flat JSON object.
+     * @return the snapshot as JSON
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        snapshot().forEach((name, value) -> {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('"').append(name).append("\":").append(format(value));
+        });
+        return sb.append("}").toString();
+    }
+
+    /**
+     * Hands a JSON snapshot to a consumer at a fixed rate, on a daemon thread.
+     * @param period the time between snapshots
+     * @param sink   the consumer of the snapshots
+     * @return the scheduled report, which can be cancelled
+     */
+    public synchronized ScheduledFuture<?> startReporter(Duration period, Consumer<String> sink) {
+        if (reporter == null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(ThreadPools.daemonThreads("metrics"));
+        }
+        long millis = period.toMillis();
+        return reporter.scheduleAtFixedRate(() -> sink.accept(toJson()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the registry with the platform MBean server, every snapshot value becoming a read-only attribute.
+     * @param name the object name, e.g. {@code restaurant:type=Metrics}
+     */
+    public void registerMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) server.registerMBean(new MetricsMBean(this), objectName);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Formats a metric value, dropping the fraction of integral values.
+     * @param value the value
+     * @return the formatted value
+     */
+    private static String format(Number value) {
+        if (value instanceof Double) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) return "0";
+            return d == Math.rint(d) ? Long.toString((long) d) : String.format("%.3f", d);
+        }
+        return value.toString();
+    }
+}
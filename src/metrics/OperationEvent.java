@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** A JFR event committed for every operation measured by a {@link Timer}. */
+@Name("restaurant.Operation")
+@Label("Restaurant Operation")
+@Category("Restaurant")
+@Description("A timed loading, saving, order or report operation")
+class OperationEvent extends Event {
+    /** The name of the timer that measured the operation. */
+    @Label("Operation")
+    String operation;
+
+    /** The latency of the operation. */
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
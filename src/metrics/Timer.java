@@ -0,0 +1,52 @@
+package metrics;
+
+/**
+ * A histogram of operation latencies in nanoseconds. When the registry has JFR events enabled,
+ * every timed operation is also committed as an {@link OperationEvent}.
+ * <pre>
+ * long start = timer.start();
+ * ...
+ * timer.stop(start);
+ * </pre>
+ */
+public class Timer extends Histogram {
+    /** The name of the timed operation. */
+    private String name;
+    /** The registry the timer belongs to. */
+    private MetricsRegistry registry;
+
+    /**
+     * Creates a new {@code Timer}.
+     * @param name     the name of the timed operation
+     * @param registry the registry the timer belongs to
+     */
+    Timer(String name, MetricsRegistry registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    /**
+     * Marks the start of an operation.
+     * @return the start time to pass to {@link #stop(long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the latency of an operation started at the given time.
+     * @param start the value returned by {@link #start()}
+     */
+    public void stop(long start) {
+        long elapsed = System.nanoTime() - start;
+        record(elapsed);
+        if (registry.isJfrEnabled()) {
+            OperationEvent event = new OperationEvent();
+            if (event.isEnabled()) {
+                event.operation = name;
+                event.latency = elapsed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -23,6 +23,22 @@ public class DrinkItem extends Product {
         this.availableSize = availableSize;
     }
 
+    /**
+     * Returns whether the drink is alcohol-free.
+     * @return {@code true} if the drink is alcohol-free; {@code false} otherwise
+     */
+    public boolean isAlcoholFree() {
+        return isAlcoholFree;
+    }
+
+    /**
+     * Returns the available sizes of the drink.
+     * @return a copy of the sizes in milliliters
+     */
+    public int[] getAvailableSizes() {
+        return availableSize.clone();
+    }
+
     /**
      * Returns a string representation of the drink item.
      * @return a string containing the name, price, alcohol content and available sizes of the drink
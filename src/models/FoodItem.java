@@ -23,6 +23,22 @@ public class FoodItem extends Product {
         this.nutritionalValues = nutritionalValues;
     }
 
+    /**
+     * Returns the category of the food item.
+     * @return the category
+     */
+    public Category getCategory() {
+        return category;
+    }
+
+    /**
+     * Returns the nutritional values of the food item.
+     * @return a copy of the values: calories, proteins, carbohydrates and fats, as read from the menu
+     */
+    public double[] getNutritionalValues() {
+        return nutritionalValues.clone();
+    }
+
     /**
      * Returns a string representation of the food item.
      * @return a string containing the name, price, category and nutritional values of the food item
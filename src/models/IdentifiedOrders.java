@@ -0,0 +1,57 @@
+package models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of orders in which every order also has a stable id: unlike its position, an order's id
+ * does not change when the orders before it are deleted, nor when the orders are written out and read back.
+ * Ids grow with the position.
+ */
+public interface IdentifiedOrders extends List<Order> {
+    /**
+     * Returns the id of the order at a position.
+     * @param index the position of the order
+     * @return the order id
+     * @throws IndexOutOfBoundsException if there is no order at that position
+     */
+    long getId(int index);
+
+    /**
+     * Returns the position of the order with an id.
+     * @param id the order id
+     * @return the position of the order, or -1 if there is no such order
+     */
+    int positionOf(long id);
+
+    /**
+     * Returns the id the next appended order gets.
+     * @return the next id
+     */
+    long getNextId();
+
+    /**
+     * Makes the next appended order get at least the given id, so that the ids of deleted orders are
+     * not handed out again.
+     * @param id the lowest id the next order may get
+     */
+    void reserveIds(long id);
+
+    /**
+     * Returns the order with an id.
+     * @param id the order id
+     * @return the order, or {@code null} if there is no such order
+     */
+    default Order getById(long id) {
+        int index = positionOf(id);
+        return index < 0 ? null : get(index);
+    }
+
+    /**
+     * Returns a page of consecutive orders with their ids.
+     * @param from  the position of the first order of the page
+     * @param count the maximum number of orders on the page
+     * @return a map of ids to orders, in list order
+     */
+    Map<Long, Order> page(int from, int count);
+}
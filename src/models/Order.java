@@ -1,17 +1,27 @@
 package models;
 
+import metrics.Counter;
+import metrics.MetricsRegistry;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /** Represents an order containing a list of products, the date of the order and the total value. */
 public class Order {
+    /** The number of orders created, not counting views of stored orders. */
+    private static final Counter CREATED = MetricsRegistry.getDefault().counter("orders.created");
+    /** The number of products added to orders. */
+    private static final Counter ITEMS_ADDED = MetricsRegistry.getDefault().counter("orders.itemsAdded");
+
     /** The list of products in the order. */
     private List<Product> products = new ArrayList<>();
     /** The date when the order was placed. */
     private LocalDate date;
     /** The total value of the order. */
     private int value;
+    /** The unit price charged for each item, parallel to {@link #products}. */
+    private int[] prices = new int[4];
 
     /**
      * Constructs a new {@code Order} with the specified date.
@@ -19,6 +29,36 @@ public class Order {
      */
     public Order(LocalDate date) {
         this.date = date;
+        CREATED.increment();
+    }
+
+    /**
+     * Constructs an {@code Order} from stored data, keeping the value that was charged. The value is
+     * apportioned over the items by their current prices, see {@link #apportion(int, int[], int, int)}.
+     * @param date     the date of the order
+     * @param products the products in the order
+     * @param value    the total value charged for the order
+     */
+    public Order(LocalDate date, List<Product> products, int value) {
+        this(date, products, value, new int[products.size()]);
+        for (int i = 0; i < products.size(); i++) {
+            prices[i] = products.get(i).getPrice();
+        }
+        apportion(value, prices, 0, products.size());
+    }
+
+    /**
+     * Constructs an {@code Order} from stored data, keeping the value and unit prices that were charged.
+     * @param date     the date of the order
+     * @param products the products in the order
+     * @param value    the total value charged for the order
+     * @param prices   the unit price charged for each item, at least as long as {@code products}
+     */
+    public Order(LocalDate date, List<Product> products, int value, int[] prices) {
+        this.date = date;
+        this.products = products;
+        this.value = value;
+        this.prices = prices;
     }
 
     /**
@@ -46,12 +86,50 @@ public class Order {
     }
 
     /**
-     * Adds a product to the order and updates the total value.
+     * Returns the unit price charged for an item, which stays as charged when the menu is reloaded
+     * with a different price.
+     * @param item the position of the item in {@link #getProducts()}
+     * @return the charged price
+     */
+    public int getPrice(int item) {
+        return prices[item];
+    }
+
+    /**
+     * Adds a product to the order at its current price and updates the total value.
      * @param product the product to add
      */
     public void add(Product product) {
+        if (products.size() == prices.length) prices = Arrays.copyOf(prices, 2 * prices.length + 1);
+        prices[products.size()] = product.getPrice();
         products.add(product);
         value += product.getPrice();
+        ITEMS_ADDED.increment();
+    }
+
+    /**
+     * Splits a stored order value over its items in proportion to their list prices, for orders stored
+     * without per-item prices. The prices are left as they are when they already add up to the value;
+     * otherwise each is scaled and the rounding remainder goes to the last item, so the charged prices
+     * always add up to the value that was charged.
+     * @param value  the value charged for the order
+     * @param prices the list prices of the items, replaced by the charged prices
+     * @param from   the position of the first item in {@code prices}
+     * @param count  the number of items
+     */
+    public static void apportion(int value, int[] prices, int from, int count) {
+        if (count == 0) return;
+        long total = 0;
+        for (int i = from; i < from + count; i++) {
+            total += prices[i];
+        }
+        if (total == value) return;
+        long remaining = value;
+        for (int i = from; i < from + count - 1; i++) {
+            prices[i] = (int) (total == 0 ? value / count : prices[i] * (long) value / total);
+            remaining -= prices[i];
+        }
+        prices[from + count - 1] = (int) remaining;
     }
 
     /**
@@ -0,0 +1,306 @@
+package models;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact list of orders stored column by column in primitive arrays: the id, epoch day, value and
+ * item offset of each order, and flat arrays holding the product id and charged unit price of all items.
+ * An order costs 20 bytes plus 8 bytes per item, instead of an {@link Order}, its product list and
+ * that list's backing array. {@link #get(int)} materializes an {@link Order} view on demand; hot
+ * loops should read the columns through the primitive accessors instead.
+ * <p>
+ * Orders can only be appended at the end; removal shifts the following orders like an {@link ArrayList}.
+ */
+public class OrderArena extends AbstractList<Order> implements RandomAccess {
+    /** The initial capacity of the order columns. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The catalog the product ids refer to. */
+    private ProductCatalog products;
+    /** The number of orders. */
+    private int size;
+    /** The id of each order, or 0 if it has none yet. */
+    private long[] orderIds = new long[INITIAL_CAPACITY];
+    /** The date of each order, as an epoch day. */
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    /** The value of each order, as charged when the order was placed. */
+    private int[] values = new int[INITIAL_CAPACITY];
+    /** The position of each order's first item in {@link #items}; entry {@code size} ends the last order. */
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    /** The product ids of the items of all orders, order after order. */
+    private int[] items = new int[4 * INITIAL_CAPACITY];
+    /** The unit price charged for each item, parallel to {@link #items}. */
+    private int[] prices = new int[4 * INITIAL_CAPACITY];
+
+    /**
+     * Creates a new, empty {@code OrderArena}.
+     * @param products the catalog the orders' products belong to
+     */
+    public OrderArena(ProductCatalog products) {
+        this.products = products;
+    }
+
+    /**
+     * Returns a view of the order at the given position.
+     * @param index the position of the order
+     * @return a newly materialized {@link Order} with the stored date, products, prices and value
+     */
+    @Override
+    public Order get(int index) {
+        checkIndex(index);
+        List<Product> orderProducts = new ArrayList<>(offsets[index + 1] - offsets[index]);
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            orderProducts.add(products.get(items[i]));
+        }
+        int[] orderPrices = Arrays.copyOfRange(prices, offsets[index], offsets[index + 1]);
+        return new Order(LocalDate.ofEpochDay(epochDays[index]), orderProducts, values[index], orderPrices);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends an order without an id.
+     * @param index the position to insert at, which must be {@link #size()}
+     * @param order the order to append
+     * @throws UnsupportedOperationException if {@code index} is not the end of the list
+     */
+    @Override
+    public void add(int index, Order order) {
+        if (index != size) throw new UnsupportedOperationException("Orders can only be appended");
+        List<Product> orderProducts = order.getProducts();
+        ensureItemCapacity(offsets[size] + orderProducts.size());
+        int end = offsets[size];
+        for (int i = 0; i < orderProducts.size(); i++) {
+            items[end] = orderProducts.get(i).getId();
+            prices[end++] = order.getPrice(i);
+        }
+        append((int) order.getDate().toEpochDay(), order.getValue(), end);
+    }
+
+    /**
+     * Appends an order without an id or item prices, given by its columns. The value is apportioned
+     * over the items by their current prices, see {@link Order#apportion(int, int[], int, int)}.
+     * @param epochDay the date of the order, as an epoch day
+     * @param value    the value of the order
+     * @param ids      an array holding the product ids of the order's items
+     * @param from     the position of the first id in {@code ids}
+     * @param count    the number of items
+     */
+    public void add(int epochDay, int value, int[] ids, int from, int count) {
+        int start = offsets[size];
+        ensureItemCapacity(start + count);
+        System.arraycopy(ids, from, items, start, count);
+        for (int i = start; i < start + count; i++) {
+            prices[i] = products.get(items[i]).getPrice();
+        }
+        Order.apportion(value, prices, start, count);
+        append(epochDay, value, start + count);
+    }
+
+    /**
+     * Appends an order without an id, given by its columns.
+     * @param epochDay   the date of the order, as an epoch day
+     * @param value      the value of the order
+     * @param ids        an array holding the product ids of the order's items
+     * @param itemPrices an array holding the charged unit prices of the items, parallel to {@code ids}
+     * @param from       the position of the first item in {@code ids} and {@code itemPrices}
+     * @param count      the number of items
+     */
+    public void add(int epochDay, int value, int[] ids, int[] itemPrices, int from, int count) {
+        ensureItemCapacity(offsets[size] + count);
+        System.arraycopy(ids, from, items, offsets[size], count);
+        System.arraycopy(itemPrices, from, prices, offsets[size], count);
+        append(epochDay, value, offsets[size] + count);
+    }
+
+    /**
+     * Appends every order of another arena over the same catalog.
+     * @param other the arena to copy
+     */
+    public void append(OrderArena other) {
+        int itemBase = offsets[size];
+        ensureItemCapacity(itemBase + other.offsets[other.size]);
+        System.arraycopy(other.items, 0, items, itemBase, other.offsets[other.size]);
+        System.arraycopy(other.prices, 0, prices, itemBase, other.offsets[other.size]);
+        ensureOrderCapacity(size + other.size);
+        System.arraycopy(other.orderIds, 0, orderIds, size, other.size);
+        System.arraycopy(other.epochDays, 0, epochDays, size, other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        for (int i = 1; i <= other.size; i++) {
+            offsets[size + i] = itemBase + other.offsets[i];
+        }
+        size += other.size;
+        modCount++;
+    }
+
+    /**
+     * Removes the order at the given position, shifting the following orders down.
+     * @param index the position of the order
+     * @return a view of the removed order
+     */
+    @Override
+    public Order remove(int index) {
+        Order removed = get(index);
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        System.arraycopy(items, start + length, items, start, offsets[size] - start - length);
+        System.arraycopy(prices, start + length, prices, start, offsets[size] - start - length);
+        System.arraycopy(orderIds, index + 1, orderIds, index, size - index - 1);
+        System.arraycopy(epochDays, index + 1, epochDays, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        for (int i = index; i < size; i++) {
+            offsets[i] = offsets[i + 1] - length;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the id of the order at the given position.
+     * @param index the position of the order
+     * @return the order id, or 0 if it has none
+     */
+    public long getOrderId(int index) {
+        checkIndex(index);
+        return orderIds[index];
+    }
+
+    /**
+     * Sets the id of the order at the given position.
+     * @param index the position of the order
+     * @param id    the order id
+     */
+    public void setOrderId(int index, long id) {
+        checkIndex(index);
+        orderIds[index] = id;
+    }
+
+    /**
+     * Returns the date of the order at the given position.
+     * @param index the position of the order
+     * @return the order date, as an epoch day
+     */
+    public int getEpochDay(int index) {
+        checkIndex(index);
+        return epochDays[index];
+    }
+
+    /**
+     * Returns the value of the order at the given position.
+     * @param index the position of the order
+     * @return the value charged for the order
+     */
+    public int getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * Returns the position in the item column of the first item of an order.
+     * @param index the position of the order
+     * @return the position of its first item
+     */
+    public int getItemStart(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Returns the position in the item column just past the last item of an order.
+     * @param index the position of the order
+     * @return the position just past its last item
+     */
+    public int getItemEnd(int index) {
+        checkIndex(index);
+        return offsets[index + 1];
+    }
+
+    /**
+     * Returns the product id of an item.
+     * @param position the position of the item in the item column
+     * @return the product id
+     */
+    public int getItem(int position) {
+        return items[position];
+    }
+
+    /**
+     * Returns the unit price charged for an item, which stays as charged when the menu is reloaded.
+     * @param position the position of the item in the item column
+     * @return the charged price
+     */
+    public int getPrice(int position) {
+        return prices[position];
+    }
+
+    /**
+     * Returns the catalog the product ids refer to.
+     * @return the product catalog
+     */
+    public ProductCatalog getCatalog() {
+        return products;
+    }
+
+    /**
+     * Stores the scalar columns of an order whose items are already in place.
+     * @param epochDay the date of the order, as an epoch day
+     * @param value    the value of the order
+     * @param itemEnd  the position just past the order's last item
+     */
+    private void append(int epochDay, int value, int itemEnd) {
+        ensureOrderCapacity(size + 1);
+        orderIds[size] = 0;
+        epochDays[size] = epochDay;
+        values[size] = value;
+        offsets[++size] = itemEnd;
+        modCount++;
+    }
+
+    /**
+     * Grows the order columns to hold at least the given number of orders.
+     * @param capacity the required number of orders
+     */
+    private void ensureOrderCapacity(int capacity) {
+        if (capacity <= epochDays.length) return;
+        int grown = Math.max(capacity, epochDays.length + (epochDays.length >> 1));
+        orderIds = Arrays.copyOf(orderIds, grown);
+        epochDays = Arrays.copyOf(epochDays, grown);
+        values = Arrays.copyOf(values, grown);
+        offsets = Arrays.copyOf(offsets, grown + 1);
+    }
+
+    /**
+     * Grows the item column to hold at least the given number of items.
+     * @param capacity the required number of items
+     */
+    private void ensureItemCapacity(int capacity) {
+        if (capacity <= items.length) return;
+        int grown = Math.max(capacity, items.length + (items.length >> 1));
+        items = Arrays.copyOf(items, grown);
+        prices = Arrays.copyOf(prices, grown);
+    }
+
+    /**
+     * Checks that a position refers to an order.
+     * @param index the position to check
+     * @throws IndexOutOfBoundsException if there is no order at that position
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+}
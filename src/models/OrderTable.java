@@ -0,0 +1,314 @@
+package models;
+
+import java.util.*;
+
+/**
+ * A list of orders with stable ids and tombstone-based deletion, stored in an {@link OrderArena}.
+ * <p>
+ * Every order gets the next id when it is appended and keeps it until it is deleted; the ids live in the
+ * arena's id column, so they are written out and read back with the orders. Ids grow with the row, so
+ * lookup by id is a binary search over that column. Deleting an order only marks its row, so no other
+ * order moves; once a quarter of the rows are deleted the arena is compacted, which keeps deletion O(1)
+ * amortized. A Fenwick tree over the live rows maps list positions to rows, and back, in O(log n).
+ */
+public class OrderTable extends AbstractList<Order> implements IdentifiedOrders {
+    /** The orders, deleted ones included until the next compaction. */
+    private OrderArena rows;
+    /** The id the next appended order gets. */
+    private long nextId;
+    /** The deleted rows. */
+    private BitSet deleted = new BitSet();
+    /** The number of deleted rows. */
+    private int deletedCount;
+    /** A Fenwick tree over the rows, counting the live ones; sized to a power of two plus one. */
+    private int[] tree;
+
+    /**
+     * Creates a new, empty {@code OrderTable} whose ids start at 1.
+     * @param products the catalog the orders' products belong to
+     */
+    public OrderTable(ProductCatalog products) {
+        this(new OrderArena(products), 1);
+    }
+
+    /**
+     * Creates a new {@code OrderTable} holding the orders of an arena. Orders keep the ids they were
+     * stored with; an order without one, read from a file written before ids were stored, gets the id
+     * after the previous order's, which is its line number when {@code firstId} is that of the first line.
+     * @param rows    the orders; owned by the table from now on
+     * @param firstId the id of the first order if it has none, and of the next order if there are none
+     * @throws IllegalArgumentException if the ids do not grow with the position
+     */
+    public OrderTable(OrderArena rows, long firstId) {
+        this.rows = rows;
+        long previous = firstId - 1;
+        for (int row = 0; row < rows.size(); row++) {
+            long id = rows.getOrderId(row);
+            if (id == 0) {
+                id = previous + 1;
+                rows.setOrderId(row, id);
+            } else if (id <= previous) {
+                throw new IllegalArgumentException("Order id " + id + " does not follow " + previous);
+            }
+            previous = id;
+        }
+        this.nextId = previous + 1;
+        rebuildTree(Math.max(16, rows.size()));
+    }
+
+    @Override
+    public int size() {
+        return rows.size() - deletedCount;
+    }
+
+    @Override
+    public Order get(int index) {
+        return rows.get(row(index));
+    }
+
+    /**
+     * Appends an order, giving it the next id.
+     * @param order the order to append
+     * @return {@code true}
+     */
+    @Override
+    public boolean add(Order order) {
+        append(order);
+        return true;
+    }
+
+    /**
+     * Appends an order, giving it the next id.
+     * @param order the order to append
+     * @return the id of the order
+     */
+    public long append(Order order) {
+        int row = rows.size();
+        if (row + 1 == tree.length) rebuildTree(2 * row);
+        rows.add(order);
+        rows.setOrderId(row, nextId);
+        for (int i = row + 1; i < tree.length; i += i & -i) {
+            tree[i]++;
+        }
+        modCount++;
+        return nextId++;
+    }
+
+    @Override
+    public long getNextId() {
+        return nextId;
+    }
+
+    @Override
+    public void reserveIds(long id) {
+        nextId = Math.max(nextId, id);
+    }
+
+    /**
+     * Deletes the order at a position, leaving a tombstone in its row.
+     * @param index the position of the order
+     * @return the deleted order
+     */
+    @Override
+    public Order remove(int index) {
+        return removeRow(row(index));
+    }
+
+    /**
+     * Deletes the order with an id, leaving a tombstone in its row.
+     * @param id the order id
+     * @return the deleted order, or {@code null} if there is no such order
+     */
+    public Order removeById(long id) {
+        int row = rowOf(id);
+        return row < 0 ? null : removeRow(row);
+    }
+
+    @Override
+    public long getId(int index) {
+        return rows.getOrderId(row(index));
+    }
+
+    @Override
+    public int positionOf(long id) {
+        int row = rowOf(id);
+        if (row < 0) return -1;
+        int position = 0;
+        for (int i = row; i > 0; i -= i & -i) {
+            position += tree[i];
+        }
+        return position;
+    }
+
+    @Override
+    public Order getById(long id) {
+        int row = rowOf(id);
+        return row < 0 ? null : rows.get(row);
+    }
+
+    @Override
+    public Map<Long, Order> page(int from, int count) {
+        Map<Long, Order> page = new LinkedHashMap<>();
+        if (from < 0 || from >= size()) return page;
+        for (int row = row(from); row < rows.size() && page.size() < count; row = deleted.nextClearBit(row + 1)) {
+            page.put(rows.getOrderId(row), rows.get(row));
+        }
+        return page;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            /** The next row to return. */
+            private int row = deleted.nextClearBit(0);
+            /** The modification count the iteration started at. */
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return row < rows.size();
+            }
+
+            @Override
+            public Order next() {
+                if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                Order order = rows.get(row);
+                row = deleted.nextClearBit(row + 1);
+                return order;
+            }
+        };
+    }
+
+    /**
+     * Returns the rows, including the deleted ones; scans that read the columns directly must skip
+     * the rows for which {@link #isDeleted(int)} holds.
+     * @return the arena holding the rows
+     */
+    public OrderArena getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns whether a row holds a deleted order.
+     * @param row the row
+     * @return {@code true} if the order was deleted
+     */
+    public boolean isDeleted(int row) {
+        return deleted.get(row);
+    }
+
+    /** Drops the deleted rows; ids are kept. */
+    public void compact() {
+        if (deletedCount == 0) return;
+        rows = liveRows();
+        deleted.clear();
+        deletedCount = 0;
+        rebuildTree(Math.max(16, rows.size()));
+        modCount++;
+    }
+
+    /**
+     * Returns a copy of the live orders as they are now, with their ids and the next id, e.g. to write
+     * them out without holding up changes to this table. Costs a copy of the columns, O(n) in orders and items.
+     * @return a new table that does not share storage with this one
+     */
+    public OrderTable copy() {
+        OrderTable copy = new OrderTable(liveRows(), 1);
+        copy.reserveIds(nextId);
+        return copy;
+    }
+
+    /**
+     * Copies the live rows into a new arena, with their ids and charged prices.
+     * @return the new arena
+     */
+    private OrderArena liveRows() {
+        OrderArena live = new OrderArena(rows.getCatalog());
+        int[] items = new int[16];
+        int[] prices = new int[16];
+        for (int row = deleted.nextClearBit(0); row < rows.size(); row = deleted.nextClearBit(row + 1)) {
+            int start = rows.getItemStart(row);
+            int count = rows.getItemEnd(row) - start;
+            if (items.length < count) {
+                items = new int[count];
+                prices = new int[count];
+            }
+            for (int j = 0; j < count; j++) {
+                items[j] = rows.getItem(start + j);
+                prices[j] = rows.getPrice(start + j);
+            }
+            live.add(rows.getEpochDay(row), rows.getValue(row), items, prices, 0, count);
+            live.setOrderId(live.size() - 1, rows.getOrderId(row));
+        }
+        return live;
+    }
+
+    /**
+     * Marks a row deleted and compacts the table once enough rows are.
+     * @param row the row of a live order
+     * @return the deleted order
+     */
+    private Order removeRow(int row) {
+        Order order = rows.get(row);
+        deleted.set(row);
+        deletedCount++;
+        for (int i = row + 1; i < tree.length; i += i & -i) {
+            tree[i]--;
+        }
+        modCount++;
+        if (4 * deletedCount > rows.size()) compact();
+        return order;
+    }
+
+    /**
+     * Returns the row holding the order at a position.
+     * @param index the position of the order
+     * @return the row
+     * @throws IndexOutOfBoundsException if there is no order at that position
+     */
+    private int row(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        int row = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            if (row + step < tree.length && tree[row + step] <= index) {
+                row += step;
+                index -= tree[row];
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Returns the row of the order with an id, by binary search over the id column.
+     * @param id the order id
+     * @return the row, or -1 if there is no such order
+     */
+    private int rowOf(long id) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = rows.getOrderId(middle);
+            if (middleId < id) low = middle + 1;
+            else if (middleId > id) high = middle - 1;
+            else return deleted.get(middle) ? -1 : middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuilds the Fenwick tree over the current rows in linear time.
+     * @param capacity the number of rows the tree must cover
+     */
+    private void rebuildTree(int capacity) {
+        tree = new int[Integer.highestOneBit(Math.max(1, capacity - 1)) * 2 + 1];
+        for (int row = 0; row < rows.size(); row++) {
+            if (!deleted.get(row)) tree[row + 1] = 1;
+        }
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+}
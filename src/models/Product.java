@@ -6,6 +6,8 @@ public abstract class Product {
     private String name;
     /** The price of the product in RON. */
     private int price;
+    /** The dense id assigned by the {@link ProductCatalog}, or {@code -1} if not catalogued. */
+    private int id = -1;
 
     /**
      * Creates a new {@code Product} with the specified name and price.
@@ -33,6 +35,22 @@ public abstract class Product {
         return price;
     }
 
+    /**
+     * Returns the dense catalog id of this product.
+     * @return the product's id, or {@code -1} if it was never added to a catalog
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the dense catalog id of this product.
+     * @param id the id assigned by the catalog
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns a string representation of the product.
      * @return a string describing the product
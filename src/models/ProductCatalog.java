@@ -0,0 +1,180 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An indexed collection of the products on the menu. Each product receives a dense integer id
+ * and names are resolved through a hash index in constant time.
+ * <p>
+ * The catalog is read through an immutable snapshot that {@link #reload(List)} replaces atomically,
+ * so readers never lock and never see a half-built menu. Ids are stable across reloads: a product
+ * keeps the id of its name, a new product gets the next free id, and a product dropped from the menu
+ * keeps its id and stays resolvable, so stored orders still refer to it, but it is no longer on the menu.
+ * Product prices belong to the snapshot that published them; orders keep the value they were charged.
+ */
+public class ProductCatalog {
+    /** The current snapshot. */
+    private volatile Snapshot snapshot = new Snapshot(new Product[0], 0, new HashMap<>(), new boolean[0], new ArrayList<>());
+
+    /**
+     * Adds a product to the catalog and assigns it the next free id. Meant for building a catalog
+     * before it is shared; a shared catalog changes through {@link #reload(List)}.
+     * @param product the product to add
+     * @throws IllegalArgumentException if a product with the same name is already catalogued
+     */
+    public synchronized void add(Product product) {
+        Snapshot current = snapshot;
+        if (current.byName.containsKey(product.getName()))
+            throw new IllegalArgumentException("Duplicate product name: " + product.getName());
+        int id = current.size;
+        Product[] byId = current.byId.length > id ? current.byId : Arrays.copyOf(current.byId, Math.max(16, 2 * id));
+        boolean[] onMenu = current.onMenu.length > id ? current.onMenu : Arrays.copyOf(current.onMenu, byId.length);
+        product.setId(id);
+        byId[id] = product;
+        onMenu[id] = true;
+        current.byName.put(product.getName(), product);
+        current.menu.add(product);
+        snapshot = new Snapshot(byId, id + 1, current.byName, onMenu, current.menu);
+    }
+
+    /**
+     * Replaces the menu with a new list of products in O(menu) time, publishing a new snapshot atomically.
+     * @param products the products of the new menu, in menu order; their ids are assigned here
+     * @throws IllegalArgumentException if two products share a name
+     */
+    public synchronized void reload(List<Product> products) {
+        Snapshot current = snapshot;
+        Map<String, Product> byName = new HashMap<>(current.byName);
+        Product[] byId = Arrays.copyOf(current.byId, current.size + products.size());
+        boolean[] onMenu = new boolean[byId.length];
+        List<Product> menu = new ArrayList<>(products.size());
+        int size = current.size;
+        for (Product product : products) {
+            Product previous = byName.get(product.getName());
+            if (previous != null && onMenu[previous.getId()])
+                throw new IllegalArgumentException("Duplicate product name: " + product.getName());
+            int id = previous != null ? previous.getId() : size++;
+            product.setId(id);
+            byId[id] = product;
+            onMenu[id] = true;
+            byName.put(product.getName(), product);
+            menu.add(product);
+        }
+        snapshot = new Snapshot(byId, size, byName, onMenu, menu);
+    }
+
+    /**
+     * Returns the product with the given name, on the menu or not.
+     * @param name the name of the product
+     * @return the matching product, or {@code null} if there is none
+     */
+    public Product get(String name) {
+        return snapshot.byName.get(name);
+    }
+
+    /**
+     * Returns the product with the given name, cataloguing it as a {@link RetiredItem} that is not on
+     * the menu if it is unknown. Used to read stored orders of products dropped from the menu file.
+     * @param name the name of the product
+     * @return the matching product
+     */
+    public Product resolve(String name) {
+        Product product = get(name);
+        return product != null ? product : retire(name);
+    }
+
+    /**
+     * Catalogues an unknown product as a {@link RetiredItem}, publishing a new snapshot.
+     * @param name the name of the product
+     * @return the catalogued product
+     */
+    private synchronized Product retire(String name) {
+        Snapshot current = snapshot;
+        Product product = current.byName.get(name);
+        if (product != null) return product;
+        product = new RetiredItem(name);
+        product.setId(current.size);
+        Map<String, Product> byName = new HashMap<>(current.byName);
+        byName.put(name, product);
+        Product[] byId = Arrays.copyOf(current.byId, current.size + 1);
+        byId[current.size] = product;
+        boolean[] onMenu = Arrays.copyOf(current.onMenu, byId.length);
+        snapshot = new Snapshot(byId, current.size + 1, byName, onMenu, current.menu);
+        return product;
+    }
+
+    /**
+     * Returns the product with the given id, on the menu or not.
+     * @param id the dense id of the product
+     * @return the product with that id
+     * @throws IndexOutOfBoundsException if no product has that id
+     */
+    public Product get(int id) {
+        Snapshot current = snapshot;
+        if (id < 0 || id >= current.size) throw new IndexOutOfBoundsException("Index: " + id + ", Size: " + current.size);
+        return current.byId[id];
+    }
+
+    /**
+     * Returns whether a product is on the current menu, i.e. whether it can be ordered.
+     * @param product the product
+     * @return {@code true} if the product is on the menu
+     */
+    public boolean isOnMenu(Product product) {
+        Snapshot current = snapshot;
+        int id = product.getId();
+        return id >= 0 && id < current.size && current.onMenu[id] && current.byId[id] == product;
+    }
+
+    /**
+     * Returns the number of product ids, including those of products no longer on the menu,
+     * which sizes arrays indexed by product id.
+     * @return the catalog size
+     */
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * Returns the products on the menu in menu order.
+     * @return an unmodifiable list of the products on the menu
+     */
+    public List<Product> getProducts() {
+        return Collections.unmodifiableList(snapshot.menu);
+    }
+
+    /** An immutable view of the catalog, published as a whole. */
+    private static class Snapshot {
+        /** The products indexed by id; only the first {@link #size} slots are in use. */
+        private final Product[] byId;
+        /** The number of ids in use. */
+        private final int size;
+        /** The products indexed by their name. */
+        private final Map<String, Product> byName;
+        /** Whether each product is on the menu, indexed like {@link #byId}. */
+        private final boolean[] onMenu;
+        /** The products on the menu, in menu order. */
+        private final List<Product> menu;
+
+        /**
+         * Creates a new {@code Snapshot}.
+         * @param byId   the products indexed by id
+         * @param size   the number of ids in use
+         * @param byName the products indexed by their name
+         * @param onMenu whether each product is on the menu
+         * @param menu   the products on the menu, in menu order
+         */
+        Snapshot(Product[] byId, int size, Map<String, Product> byName, boolean[] onMenu, List<Product> menu) {
+            this.byId = byId;
+            this.size = size;
+            this.byName = byName;
+            this.onMenu = onMenu;
+            this.menu = menu;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package models;
+
+/**
+ * A product named by stored orders but no longer on the menu file, so that its details are unknown.
+ * It keeps its name and catalog id so the orders holding it can still be read, and has no price.
+ */
+public class RetiredItem extends Product {
+    /**
+     * Creates a new {@code RetiredItem}.
+     * @param name the name of the product
+     */
+    public RetiredItem(String name) {
+        super(name, 0);
+    }
+
+    /**
+     * Returns a string representation of the retired item.
+     * @return a string containing the item's name
+     */
+    @Override
+    public String toString() {
+        return getName() + "; No longer on the menu";
+    }
+}
@@ -0,0 +1,16 @@
+package models;
+
+import java.util.function.Consumer;
+
+/**
+ * Identified orders held as a run of {@link OrderTable} segments, such as a lazily loaded history followed by
+ * the orders in memory. Scanning them a segment at a time reads each segment's rows directly, instead of
+ * finding the segment of every position again.
+ */
+public interface SegmentedOrders extends IdentifiedOrders {
+    /**
+     * Passes every segment, in list order, to an action. The action must not change the orders.
+     * @param action the action to run on each segment
+     */
+    void forEachSegment(Consumer<OrderTable> action);
+}
@@ -0,0 +1,228 @@
+package reports;
+
+import models.Order;
+import models.OrderArena;
+import models.Product;
+import models.ProductCatalog;
+import java.util.*;
+
+/**
+ * Basket analytics over a set of orders: the units sold and revenue per product, the average basket
+ * size and value, and a {@link PairCounts} matrix of how many orders held each pair of products, which
+ * backs the "frequently bought together" suggestions. Adding or removing an order costs
+ * O(items + distinct products^2), so the analytics are kept up to date as orders arrive, and partial
+ * analytics over disjoint sets of orders can be merged, so they can be computed in parallel partitions.
+ */
+public class BasketAnalytics {
+    /** The catalog the product ids refer to. */
+    private ProductCatalog products;
+    /** The number of orders. */
+    private long orderCount;
+    /** The number of items over all orders. */
+    private long itemCount;
+    /** The total value of all orders. */
+    private long totalValue;
+    /** The units sold per product, indexed by product id. */
+    private long[] productUnits;
+    /** The revenue per product, indexed by product id. */
+    private long[] productRevenue;
+    /** The number of orders holding each pair of products. */
+    private PairCounts pairs;
+    /** The distinct products of the order being applied. */
+    private int[] distinct = new int[16];
+    /** The order stamp of the last order each product was seen in, indexed by product id. */
+    private int[] seen;
+    /** The stamp of the order being applied. */
+    private int stamp;
+
+    /**
+     * Creates new, empty {@code BasketAnalytics}.
+     * @param products the catalog the orders' products belong to
+     */
+    public BasketAnalytics(ProductCatalog products) {
+        this.products = products;
+        this.productUnits = new long[products.size()];
+        this.productRevenue = new long[products.size()];
+        this.pairs = new PairCounts(products.size());
+        this.seen = new int[products.size()];
+    }
+
+    /**
+     * Adds an order to the analytics.
+     * @param order the order that was placed
+     */
+    public void add(Order order) {
+        apply(order, 1);
+    }
+
+    /**
+     * Removes an order from the analytics.
+     * @param order the order that was deleted
+     */
+    public void remove(Order order) {
+        apply(order, -1);
+    }
+
+    /**
+     * Adds an order held in an arena, without materializing it.
+     * @param orders the arena
+     * @param index  the position of the order in the arena
+     */
+    public void add(OrderArena orders, int index) {
+        int start = orders.getItemStart(index);
+        int end = orders.getItemEnd(index);
+        int count = beginOrder(orders.getValue(index), end - start, 1);
+        for (int j = start; j < end; j++) {
+            count = addItem(orders.getItem(j), orders.getPrice(j), count, 1);
+        }
+        endOrder(count, 1);
+    }
+
+    /**
+     * Adds the analytics of another, disjoint set of orders over the same catalog to these.
+     * @param other the analytics to add
+     */
+    public void merge(BasketAnalytics other) {
+        orderCount += other.orderCount;
+        itemCount += other.itemCount;
+        totalValue += other.totalValue;
+        if (other.productUnits.length > productUnits.length) grow(other.productUnits.length);
+        for (int id = 0; id < other.productUnits.length; id++) {
+            productUnits[id] += other.productUnits[id];
+            productRevenue[id] += other.productRevenue[id];
+        }
+        pairs.merge(other.pairs);
+    }
+
+    /**
+     * Returns the number of orders.
+     * @return the order count
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Returns the average number of items per order.
+     * @return the average basket size, 0 without orders
+     */
+    public double getAverageBasketSize() {
+        return orderCount == 0 ? 0 : (double) itemCount / orderCount;
+    }
+
+    /**
+     * Returns the average order value.
+     * @return the average basket value, 0 without orders
+     */
+    public double getAverageBasketValue() {
+        return orderCount == 0 ? 0 : (double) totalValue / orderCount;
+    }
+
+    /**
+     * Returns the revenue of every product that sold.
+     * @return a map of product names to their revenue, highest first
+     */
+    public Map<String, Long> getRevenueByProduct() {
+        Map<String, Long> revenue = new LinkedHashMap<>();
+        for (int id : TopK.highestScores(productRevenue, productRevenue.length)) {
+            revenue.put(products.get(id).getName(), productRevenue[id]);
+        }
+        return revenue;
+    }
+
+    /**
+     * Returns the products most often bought in the same order as a product.
+     * @param product the product
+     * @param limit   the maximum number of products to return
+     * @return a map of product names to the number of orders holding both products, highest first
+     */
+    public Map<String, Long> getBoughtTogether(Product product, int limit) {
+        Map<String, Long> partners = new LinkedHashMap<>();
+        for (int id : pairs.topPartners(product.getId(), limit)) {
+            partners.put(products.get(id).getName(), pairs.get(product.getId(), id));
+        }
+        return partners;
+    }
+
+    /**
+     * Returns the number of orders holding each pair of products.
+     * @return the co-occurrence matrix
+     */
+    public PairCounts getPairs() {
+        return pairs;
+    }
+
+    /**
+     * Adds or removes an order.
+     * @param order the order
+     * @param sign  1 to add the order, -1 to remove it
+     */
+    private void apply(Order order, int sign) {
+        List<Product> items = order.getProducts();
+        int count = beginOrder(order.getValue(), items.size(), sign);
+        for (int i = 0; i < items.size(); i++) {
+            count = addItem(items.get(i).getId(), order.getPrice(i), count, sign);
+        }
+        endOrder(count, sign);
+    }
+
+    /**
+     * Counts an order's totals and starts collecting its distinct products.
+     * @param value the order value
+     * @param items the number of items
+     * @param sign  1 to add the order, -1 to remove it
+     * @return the number of distinct products collected so far, 0
+     */
+    private int beginOrder(long value, int items, int sign) {
+        orderCount += sign;
+        itemCount += sign * items;
+        totalValue += sign * value;
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Counts an item and collects its product if the order has not held it yet.
+     * @param id    the product id of the item
+     * @param price the unit price charged for the item
+     * @param count the number of distinct products collected so far
+     * @param sign  1 to add the order, -1 to remove it
+     * @return the number of distinct products collected
+     */
+    private int addItem(int id, int price, int count, int sign) {
+        if (id >= productUnits.length) grow(Math.max(id + 1, products.size()));
+        productUnits[id] += sign;
+        productRevenue[id] += sign * price;
+        if (seen[id] == stamp) return count;
+        seen[id] = stamp;
+        if (count == distinct.length) distinct = Arrays.copyOf(distinct, 2 * count);
+        distinct[count] = id;
+        return count + 1;
+    }
+
+    /**
+     * Grows the per-product arrays to hold products added by a menu reload.
+     * @param size the number of product ids to hold
+     */
+    private void grow(int size) {
+        productUnits = Arrays.copyOf(productUnits, size);
+        productRevenue = Arrays.copyOf(productRevenue, size);
+        seen = Arrays.copyOf(seen, size);
+    }
+
+    /**
+     * Counts every pair of an order's distinct products.
+     * @param count the number of distinct products
+     * @param sign  1 to add the order, -1 to remove it
+     */
+    private void endOrder(int count, int sign) {
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                pairs.add(distinct[i], distinct[j], sign);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package reports;
+
+import models.Order;
+import models.Product;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of the orders partitioned by day. Each day keeps its order count, revenue and units sold
+ * and revenue per product in a sorted map, so range queries cost O(log days + days in range) and
+ * reports come out in date order. Per-product totals are stored densely by product id, which costs
+ * 8 bytes per product for every day that has orders; the arrays grow when a menu reload adds products.
+ */
+public class DateIndex {
+    /** The number of product ids seen so far, which sizes new per-day product arrays. */
+    private int productCount;
+    /** The totals of each day that has at least one order. */
+    private TreeMap<LocalDate, Day> days = new TreeMap<>();
+
+    /**
+     * Creates a new, empty {@code DateIndex}.
+     * @param productCount the number of products in the catalog
+     */
+    public DateIndex(int productCount) {
+        this.productCount = productCount;
+    }
+
+    /**
+     * Adds an order to its day.
+     * @param order the order that was placed
+     */
+    public void add(Order order) {
+        Day day = days.computeIfAbsent(order.getDate(), d -> new Day());
+        day.orders++;
+        day.revenue += order.getValue();
+        List<Product> items = order.getProducts();
+        for (int i = 0; i < items.size(); i++) {
+            int id = items.get(i).getId();
+            if (id >= day.productCounts.length) day.grow(id + 1);
+            day.productCounts[id]++;
+            day.productRevenue[id] += order.getPrice(i);
+        }
+    }
+
+    /**
+     * Removes an order from its day, dropping the day once it has no orders left.
+     * @param order the order that was deleted
+     */
+    public void remove(Order order) {
+        Day day = days.get(order.getDate());
+        if (day == null) return;
+        if (--day.orders == 0) {
+            days.remove(order.getDate());
+            return;
+        }
+        day.revenue -= order.getValue();
+        List<Product> items = order.getProducts();
+        for (int i = 0; i < items.size(); i++) {
+            day.productCounts[items.get(i).getId()]--;
+            day.productRevenue[items.get(i).getId()] -= order.getPrice(i);
+        }
+    }
+
+    /**
+     * Returns the revenue per day over a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return a map of dates to total sales values, in date order
+     */
+    public NavigableMap<LocalDate, Integer> getSalesReport(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Integer> sales = new TreeMap<>();
+        for (Map.Entry<LocalDate, Day> entry : range(from, to).entrySet()) {
+            sales.put(entry.getKey(), entry.getValue().revenue);
+        }
+        return sales;
+    }
+
+    /**
+     * Returns the total revenue over a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the total value of the orders in the range
+     */
+    public long getRevenue(LocalDate from, LocalDate to) {
+        long revenue = 0;
+        for (Day day : range(from, to).values()) {
+            revenue += day.revenue;
+        }
+        return revenue;
+    }
+
+    /**
+     * Returns the number of orders over a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the number of orders in the range
+     */
+    public long getOrderCount(LocalDate from, LocalDate to) {
+        long count = 0;
+        for (Day day : range(from, to).values()) {
+            count += day.orders;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the units sold per product over a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the units sold, indexed by product id
+     */
+    public long[] getProductCounts(LocalDate from, LocalDate to) {
+        long[] counts = new long[productCount];
+        for (Day day : range(from, to).values()) {
+            for (int id = 0; id < day.productCounts.length; id++) {
+                counts[id] += day.productCounts[id];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the revenue per product over a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the revenue, indexed by product id
+     */
+    public long[] getProductRevenue(LocalDate from, LocalDate to) {
+        long[] revenue = new long[productCount];
+        for (Day day : range(from, to).values()) {
+            for (int id = 0; id < day.productRevenue.length; id++) {
+                revenue[id] += day.productRevenue[id];
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * Returns the days within a date range.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return a view of the days in the range
+     */
+    private NavigableMap<LocalDate, Day> range(LocalDate from, LocalDate to) {
+        if (days.isEmpty()) return days;
+        LocalDate first = from == null ? days.firstKey() : from;
+        LocalDate last = to == null ? days.lastKey() : to;
+        if (first.isAfter(last)) return new TreeMap<>();
+        return days.subMap(first, true, last, true);
+    }
+
+    /** The totals of a single day. */
+    private class Day {
+        /** The number of orders placed that day. */
+        private int orders;
+        /** The total value of the orders placed that day. */
+        private int revenue;
+        /** The units sold per product that day, indexed by product id. */
+        private int[] productCounts = new int[productCount];
+        /** The revenue per product that day, indexed by product id. */
+        private int[] productRevenue = new int[productCount];
+
+        /**
+         * Grows the per-product arrays to hold more product ids.
+         * @param size the number of product ids to hold
+         */
+        void grow(int size) {
+            productCount = Math.max(productCount, size);
+            productCounts = Arrays.copyOf(productCounts, productCount);
+            productRevenue = Arrays.copyOf(productRevenue, productCount);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package reports;
+
+/** The nutritional values of a {@link models.FoodItem}, in the order they are listed on the menu. */
+public enum Nutrient {
+    /** The energy, in kilocalories. */
+    CALORIES("calories"),
+    /** The proteins, in grams. */
+    PROTEINS("proteins"),
+    /** The carbohydrates, in grams. */
+    CARBOHYDRATES("carbohydrates"),
+    /** The fats, in grams. */
+    FATS("fats");
+
+    /** The name of the nutrient, e.g. as a JSON key. */
+    private final String name;
+
+    /**
+     * Creates a new {@code Nutrient}.
+     * @param name the name of the nutrient
+     */
+    Nutrient(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
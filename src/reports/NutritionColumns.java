@@ -0,0 +1,57 @@
+package reports;
+
+import models.DrinkItem;
+import models.FoodItem;
+import models.Product;
+import models.ProductCatalog;
+
+/**
+ * The nutrition of every catalogued product in struct-of-arrays form: one {@code double[]} column per
+ * {@link Nutrient}, a 0/1 column each for drinks and alcoholic drinks, and the food category of each
+ * product, all indexed by product id. Products without nutrition or that are not drinks hold zeros, so a
+ * scan sums the columns by id without branching on the product type or following each product to its
+ * values array. Built in O(catalog) from the products as they are when the scan starts, so a menu reload
+ * is picked up by the next scan; ids catalogued after that are left out.
+ */
+final class NutritionColumns {
+    /** The category ordinal of a product that is not food. */
+    static final byte NOT_FOOD = -1;
+
+    /** The value of each nutrient per product, indexed by nutrient ordinal, then by product id. */
+    final double[][] values;
+    /** 1 for drinks, 0 otherwise, indexed by product id. */
+    final int[] drinks;
+    /** 1 for alcoholic drinks, 0 otherwise, indexed by product id. */
+    final int[] alcoholic;
+    /** The category ordinal of each food product, or {@link #NOT_FOOD}, indexed by product id. */
+    final byte[] categories;
+    /** The number of product ids the columns cover. */
+    final int size;
+
+    /**
+     * Builds the columns of every product in a catalog.
+     * @param products the catalog
+     */
+    NutritionColumns(ProductCatalog products) {
+        size = products.size();
+        values = new double[Nutrient.values().length][size];
+        drinks = new int[size];
+        alcoholic = new int[size];
+        categories = new byte[size];
+        for (int id = 0; id < size; id++) {
+            Product product = products.get(id);
+            categories[id] = NOT_FOOD;
+            if (product instanceof FoodItem) {
+                FoodItem food = (FoodItem) product;
+                categories[id] = (byte) food.getCategory().ordinal();
+                double[] nutrition = food.getNutritionalValues();
+                for (int n = 0; n < Math.min(nutrition.length, values.length); n++) {
+                    values[n][id] = nutrition[n];
+                }
+            } else if (product instanceof DrinkItem) {
+                drinks[id] = 1;
+                alcoholic[id] = ((DrinkItem) product).isAlcoholFree() ? 0 : 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package reports;
+
+import models.Category;
+import models.Order;
+import models.OrderArena;
+import models.Product;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The nutrition and drink totals of a set of orders: per-day nutrient totals and alcohol share, per-category
+ * units and nutrient totals, and the distribution of each nutrient per order. Orders are summed through
+ * {@link NutritionColumns} into primitive arrays indexed by day, by product id or, for the distributions,
+ * by the whole amount of a nutrient in an order, so the per-order percentiles are exact and the category
+ * totals are derived from the units per product when asked for. Reports over disjoint sets of orders can
+ * be merged, so they are computed in parallel partitions by
+ * {@link ReportEngine#analyzeNutrition(java.util.List, LocalDate, LocalDate, boolean)}.
+ * Drinks and retired products carry no nutrients; the alcohol share is the share of drink units that are alcoholic.
+ */
+public class NutritionReport {
+    /** The number of nutrients. */
+    private static final int NUTRIENTS = Nutrient.values().length;
+    /** The largest amount of a nutrient the distributions tell apart; larger order totals count as this amount. */
+    private static final int MAX_AMOUNT = 1 << 20;
+
+    /** The nutrition of the products. */
+    private NutritionColumns columns;
+    /** The number of orders. */
+    private long orderCount;
+    /** The epoch day of index 0 of the daily arrays. */
+    private long firstDay;
+    /** The number of orders per day, indexed by {@code epochDay - firstDay}. */
+    private int[] dailyOrders = new int[0];
+    /** The nutrient totals per day, indexed by nutrient ordinal, then like {@link #dailyOrders}. */
+    private double[][] dailyTotals = new double[NUTRIENTS][0];
+    /** The drink units sold per day, indexed like {@link #dailyOrders}. */
+    private int[] dailyDrinks = new int[0];
+    /** The alcoholic drink units sold per day, indexed like {@link #dailyOrders}. */
+    private int[] dailyAlcoholic = new int[0];
+    /** The units sold per product, indexed by product id. */
+    private long[] productUnits;
+    /**
+     * The number of orders holding each whole amount of a nutrient, rounded, indexed by nutrient ordinal,
+     * then by amount; grown to the largest amount seen, up to {@value #MAX_AMOUNT}.
+     */
+    private int[][] perOrder = new int[NUTRIENTS][0];
+    /** The total of each nutrient over every order, indexed by nutrient ordinal. */
+    private double[] totals = new double[NUTRIENTS];
+    /** The nutrient totals of the order being added. */
+    private double[] order = new double[NUTRIENTS];
+    /** The drink units of the order being added. */
+    private int orderDrinks;
+    /** The alcoholic drink units of the order being added. */
+    private int orderAlcoholic;
+
+    /**
+     * Creates a new, empty {@code NutritionReport}.
+     * @param columns the nutrition of the products
+     */
+    NutritionReport(NutritionColumns columns) {
+        this.columns = columns;
+        this.productUnits = new long[columns.size];
+    }
+
+    /**
+     * Adds an order.
+     * @param order the order
+     */
+    void add(Order order) {
+        for (Product p : order.getProducts()) {
+            addItem(p.getId());
+        }
+        endOrder(order.getDate().toEpochDay());
+    }
+
+    /**
+     * Adds an order held in an arena, without materializing it.
+     * @param orders the arena
+     * @param index  the position of the order in the arena
+     */
+    void add(OrderArena orders, int index) {
+        int end = orders.getItemEnd(index);
+        for (int j = orders.getItemStart(index); j < end; j++) {
+            addItem(orders.getItem(j));
+        }
+        endOrder(orders.getEpochDay(index));
+    }
+
+    /**
+     * Adds one item to the order being added.
+     * @param id the product id of the item
+     */
+    private void addItem(int id) {
+        if (id >= columns.size) return;
+        productUnits[id]++;
+        for (int n = 0; n < NUTRIENTS; n++) {
+            order[n] += columns.values[n][id];
+        }
+        orderDrinks += columns.drinks[id];
+        orderAlcoholic += columns.alcoholic[id];
+    }
+
+    /**
+     * Ends the order being added, adding its totals to its day and to the per-order distributions.
+     * @param epochDay the date of the order
+     */
+    private void endOrder(long epochDay) {
+        int day = dayIndex(epochDay);
+        orderCount++;
+        dailyOrders[day]++;
+        dailyDrinks[day] += orderDrinks;
+        dailyAlcoholic[day] += orderAlcoholic;
+        orderDrinks = 0;
+        orderAlcoholic = 0;
+        for (int n = 0; n < NUTRIENTS; n++) {
+            dailyTotals[n][day] += order[n];
+            totals[n] += order[n];
+            int amount = Math.min((int) (order[n] + 0.5), MAX_AMOUNT);
+            if (amount >= perOrder[n].length)
+                perOrder[n] = Arrays.copyOf(perOrder[n], Math.max(amount + 1, 2 * perOrder[n].length));
+            perOrder[n][amount]++;
+            order[n] = 0;
+        }
+    }
+
+    /**
+     * Adds the totals of another partition, built from the same columns, to these totals.
+     * @param other the report to merge in
+     */
+    void merge(NutritionReport other) {
+        orderCount += other.orderCount;
+        if (other.dailyOrders.length > 0) {
+            dayIndex(other.firstDay);
+            dayIndex(other.firstDay + other.dailyOrders.length - 1);
+            int shift = (int) (other.firstDay - firstDay);
+            for (int i = 0; i < other.dailyOrders.length; i++) {
+                dailyOrders[shift + i] += other.dailyOrders[i];
+                dailyDrinks[shift + i] += other.dailyDrinks[i];
+                dailyAlcoholic[shift + i] += other.dailyAlcoholic[i];
+            }
+            for (int n = 0; n < NUTRIENTS; n++) {
+                for (int i = 0; i < other.dailyOrders.length; i++) {
+                    dailyTotals[n][shift + i] += other.dailyTotals[n][i];
+                }
+            }
+        }
+        for (int id = 0; id < productUnits.length; id++) {
+            productUnits[id] += other.productUnits[id];
+        }
+        for (int n = 0; n < NUTRIENTS; n++) {
+            totals[n] += other.totals[n];
+            int[] counts = other.perOrder[n];
+            if (counts.length > perOrder[n].length) perOrder[n] = Arrays.copyOf(perOrder[n], counts.length);
+            for (int amount = 0; amount < counts.length; amount++) {
+                perOrder[n][amount] += counts[amount];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of orders.
+     * @return the order count
+     */
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Returns the number of orders of every day that has orders.
+     * @return a map of dates to order counts, in date order
+     */
+    public NavigableMap<LocalDate, Integer> getDailyOrders() {
+        NavigableMap<LocalDate, Integer> orders = new TreeMap<>();
+        for (int i = 0; i < dailyOrders.length; i++) {
+            if (dailyOrders[i] > 0) orders.put(LocalDate.ofEpochDay(firstDay + i), dailyOrders[i]);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns the total of a nutrient over the orders of every day that has orders.
+     * @param nutrient the nutrient
+     * @return a map of dates to totals, in date order
+     */
+    public NavigableMap<LocalDate, Double> getDailyTotals(Nutrient nutrient) {
+        double[] totals = dailyTotals[nutrient.ordinal()];
+        NavigableMap<LocalDate, Double> daily = new TreeMap<>();
+        for (int i = 0; i < dailyOrders.length; i++) {
+            if (dailyOrders[i] > 0) daily.put(LocalDate.ofEpochDay(firstDay + i), totals[i]);
+        }
+        return daily;
+    }
+
+    /**
+     * Returns the share of drink units that are alcoholic on every day that has orders.
+     * @return a map of dates to shares between 0 and 1, 0 on days without drinks, in date order
+     */
+    public NavigableMap<LocalDate, Double> getDailyAlcoholShare() {
+        NavigableMap<LocalDate, Double> shares = new TreeMap<>();
+        for (int i = 0; i < dailyOrders.length; i++) {
+            if (dailyOrders[i] > 0) shares.put(LocalDate.ofEpochDay(firstDay + i), share(dailyAlcoholic[i], dailyDrinks[i]));
+        }
+        return shares;
+    }
+
+    /**
+     * Returns the share of drink units that are alcoholic over every order.
+     * @return the share between 0 and 1, or 0 if no drink was sold
+     */
+    public double getAlcoholShare() {
+        long alcoholic = 0;
+        long drinks = 0;
+        for (int i = 0; i < dailyDrinks.length; i++) {
+            alcoholic += dailyAlcoholic[i];
+            drinks += dailyDrinks[i];
+        }
+        return share(alcoholic, drinks);
+    }
+
+    /**
+     * Returns the units sold of every food category.
+     * @return a map of categories to units
+     */
+    public Map<Category, Long> getCategoryUnits() {
+        long[] units = new long[Category.values().length];
+        for (int id = 0; id < productUnits.length; id++) {
+            byte category = columns.categories[id];
+            if (category != NutritionColumns.NOT_FOOD) units[category] += productUnits[id];
+        }
+        Map<Category, Long> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, units[category.ordinal()]);
+        }
+        return byCategory;
+    }
+
+    /**
+     * Returns the total of a nutrient over the items of every food category.
+     * @param nutrient the nutrient
+     * @return a map of categories to totals
+     */
+    public Map<Category, Double> getCategoryTotals(Nutrient nutrient) {
+        double[] values = columns.values[nutrient.ordinal()];
+        double[] totals = new double[Category.values().length];
+        for (int id = 0; id < productUnits.length; id++) {
+            byte category = columns.categories[id];
+            if (category != NutritionColumns.NOT_FOOD) totals[category] += productUnits[id] * values[id];
+        }
+        Map<Category, Double> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, totals[category.ordinal()]);
+        }
+        return byCategory;
+    }
+
+    /**
+     * Returns the mean of a nutrient per order.
+     * @param nutrient the nutrient
+     * @return the mean of the order totals, or 0 if there are no orders
+     */
+    public double getMeanPerOrder(Nutrient nutrient) {
+        return orderCount == 0 ? 0 : totals[nutrient.ordinal()] / orderCount;
+    }
+
+    /**
+     * Returns the amount of a nutrient below or at which a percentage of the orders fall.
+     * @param nutrient   the nutrient
+     * @param percentile the percentage, between 0 and 100
+     * @return the percentile of the order totals, rounded to whole units, or 0 if there are no orders
+     */
+    public long getPercentilePerOrder(Nutrient nutrient, double percentile) {
+        int[] counts = perOrder[nutrient.ordinal()];
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * orderCount));
+        long seen = 0;
+        for (int amount = 0; amount < counts.length; amount++) {
+            seen += counts[amount];
+            if (seen >= target) return amount;
+        }
+        return getMaxPerOrder(nutrient);
+    }
+
+    /**
+     * Returns the largest amount of a nutrient in one order.
+     * @param nutrient the nutrient
+     * @return the maximum of the order totals, rounded to whole units, or 0 if there are no orders
+     */
+    public long getMaxPerOrder(Nutrient nutrient) {
+        int[] counts = perOrder[nutrient.ordinal()];
+        for (int amount = counts.length - 1; amount > 0; amount--) {
+            if (counts[amount] > 0) return amount;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the ratio of a part to a whole, or 0 if the whole is empty.
+     * @param part  the part
+     * @param whole the whole
+     * @return the ratio
+     */
+    private static double share(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+
+    /**
+     * Returns the array index of a day, at least doubling the daily arrays if the day is outside them.
+     * @param epochDay the day
+     * @return the index of the day in the daily arrays
+     */
+    private int dayIndex(long epochDay) {
+        if (dailyOrders.length == 0) {
+            firstDay = epochDay;
+            resize(0, 1);
+        } else if (epochDay < firstDay || epochDay >= firstDay + dailyOrders.length) {
+            long from = firstDay;
+            long to = firstDay + dailyOrders.length;
+            if (epochDay < from) from = Math.min(epochDay, from - dailyOrders.length);
+            else to = Math.max(epochDay + 1, to + dailyOrders.length);
+            resize((int) (firstDay - from), (int) (to - from));
+            firstDay = from;
+        }
+        return (int) (epochDay - firstDay);
+    }
+
+    /**
+     * Copies the daily arrays into new arrays.
+     * @param shift  the index in the new arrays of the current first day
+     * @param length the length of the new arrays
+     */
+    private void resize(int shift, int length) {
+        dailyOrders = shifted(dailyOrders, shift, length);
+        dailyDrinks = shifted(dailyDrinks, shift, length);
+        dailyAlcoholic = shifted(dailyAlcoholic, shift, length);
+        for (int n = 0; n < NUTRIENTS; n++) {
+            double[] totals = new double[length];
+            System.arraycopy(dailyTotals[n], 0, totals, shift, dailyTotals[n].length);
+            dailyTotals[n] = totals;
+        }
+    }
+
+    /**
+     * Copies an array into a new, longer array.
+     * @param array  the array
+     * @param shift  the index in the new array of the first element
+     * @param length the length of the new array
+     * @return the new array
+     */
+    private static int[] shifted(int[] array, int shift, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, shift, array.length);
+        return copy;
+    }
+}
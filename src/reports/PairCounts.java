@@ -0,0 +1,184 @@
+package reports;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A sparse, symmetric matrix of counts keyed by pairs of product ids, such as the number of orders
+ * in which two products were bought together. Only the upper triangle is stored: each product has a
+ * row holding its partners with a higher id, an open-addressing hash table of primitive slots that is
+ * only allocated once the product has such a partner. The matrix therefore takes memory in proportion
+ * to the pairs actually seen rather than to the square of the menu, and counting a pair touches a
+ * single slot. Each slot packs the partner id, plus one, into its high half and the count into its low
+ * half, so an update is one probe and one add on one cache line. The rows grow when a menu reload
+ * adds products.
+ */
+public class PairCounts {
+    /** The rows, indexed by product id; {@code null} for products without a partner of higher id. */
+    private Row[] rows;
+
+    /**
+     * Creates a new, empty {@code PairCounts}.
+     * @param products the number of product ids
+     */
+    public PairCounts(int products) {
+        this.rows = new Row[products];
+    }
+
+    /**
+     * Adds to the count of a pair. Counts must not go negative.
+     * @param a     the id of one product
+     * @param b     the id of the other product, different from {@code a}
+     * @param delta the amount to add, negative to subtract
+     */
+    public void add(int a, int b, int delta) {
+        int low = Math.min(a, b);
+        if (low >= rows.length) rows = Arrays.copyOf(rows, Math.max(low + 1, 2 * rows.length));
+        Row row = rows[low];
+        if (row == null) rows[low] = row = new Row();
+        row.add(Math.max(a, b), delta);
+    }
+
+    /**
+     * Returns the count of a pair.
+     * @param a the id of one product
+     * @param b the id of the other product
+     * @return the count, 0 if the pair was never seen
+     */
+    public long get(int a, int b) {
+        int low = Math.min(a, b);
+        Row row = low < rows.length ? rows[low] : null;
+        return row == null ? 0 : row.get(Math.max(a, b));
+    }
+
+    /**
+     * Adds the counts of another matrix over the same products to this one.
+     * @param other the matrix to add
+     */
+    public void merge(PairCounts other) {
+        for (int a = 0; a < other.rows.length; a++) {
+            Row row = other.rows[a];
+            if (row == null) continue;
+            for (long slot : row.slots) {
+                if (slot != 0) add(a, Row.key(slot), Row.count(slot));
+            }
+        }
+    }
+
+    /**
+     * Returns the partners of a product with the highest counts, breaking ties by the lower id.
+     * Reads the product's row and one slot of each row of a lower id.
+     * @param product the id of the product
+     * @param limit   the maximum number of partners to return
+     * @return at most {@code limit} partner ids with a positive count, highest count first
+     */
+    public List<Integer> topPartners(int product, int limit) {
+        TopK<long[]> top = new TopK<>(limit, (x, y) -> {
+            int byCount = Long.compare(y[1], x[1]);
+            return byCount != 0 ? byCount : Long.compare(x[0], y[0]);
+        });
+        for (int a = 0; a < Math.min(product, rows.length); a++) {
+            long count = rows[a] == null ? 0 : rows[a].get(product);
+            if (count > 0) top.offer(new long[] {a, count});
+        }
+        if (product < rows.length && rows[product] != null) {
+            for (long slot : rows[product].slots) {
+                if (slot != 0 && Row.count(slot) > 0) top.offer(new long[] {Row.key(slot), Row.count(slot)});
+            }
+        }
+        return top.result().stream().map(pair -> (int) pair[0]).toList();
+    }
+
+    /**
+     * Returns the number of pairs with a positive count.
+     * @return the pair count
+     */
+    public long size() {
+        long size = 0;
+        for (Row row : rows) {
+            if (row == null) continue;
+            for (long slot : row.slots) {
+                if (slot != 0 && Row.count(slot) > 0) size++;
+            }
+        }
+        return size;
+    }
+
+    /** The partners of one product: an open-addressing hash table of packed slots with linear probing. */
+    private static class Row {
+        /** The slots, 0 when empty; the length is a power of two. */
+        private long[] slots = new long[4];
+        /** The number of occupied slots. */
+        private int size;
+
+        /**
+         * Adds to the count of a partner.
+         * @param key   the partner id
+         * @param delta the amount to add
+         */
+        void add(int key, int delta) {
+            int index = index(key);
+            if (slots[index] == 0) {
+                if (2 * (size + 1) > slots.length) {
+                    grow();
+                    index = index(key);
+                }
+                slots[index] = (long) (key + 1) << 32;
+                size++;
+            }
+            slots[index] += delta;
+        }
+
+        /**
+         * Returns the count of a partner.
+         * @param key the partner id
+         * @return the count, 0 if the partner was never seen
+         */
+        long get(int key) {
+            long slot = slots[index(key)];
+            return slot == 0 ? 0 : count(slot);
+        }
+
+        /**
+         * Finds the slot of a partner, or the empty slot where it would go.
+         * @param key the partner id
+         * @return the index of the slot
+         */
+        private int index(int key) {
+            int mask = slots.length - 1;
+            int hash = key * 0x9E3779B9;
+            int index = (hash ^ hash >>> 16) & mask;
+            while (slots[index] != 0 && key(slots[index]) != key) {
+                index = index + 1 & mask;
+            }
+            return index;
+        }
+
+        /** Doubles the table and rehashes the partners. */
+        private void grow() {
+            long[] old = slots;
+            slots = new long[2 * old.length];
+            for (long slot : old) {
+                if (slot != 0) slots[index(key(slot))] = slot;
+            }
+        }
+
+        /**
+         * Returns the partner id of an occupied slot.
+         * @param slot the slot
+         * @return the partner id
+         */
+        static int key(long slot) {
+            return (int) (slot >>> 32) - 1;
+        }
+
+        /**
+         * Returns the count of an occupied slot.
+         * @param slot the slot
+         * @return the count
+         */
+        static int count(long slot) {
+            return (int) slot;
+        }
+    }
+}
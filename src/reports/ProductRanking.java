@@ -0,0 +1,9 @@
+package reports;
+
+/** The measures by which best-selling products can be ranked. */
+public enum ProductRanking {
+    /** Rank by the number of units sold. */
+    UNITS,
+    /** Rank by the revenue in RON the product brought in. */
+    REVENUE
+}
@@ -0,0 +1,84 @@
+package reports;
+
+import metrics.Counter;
+import metrics.MetricsRegistry;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A size-bounded cache of report results keyed by the report and its parameters. Every result is tagged
+ * with the version of the orders it was computed from, a counter the order store increases on each change;
+ * once the version moves on every entry is stale, so the cache is emptied and results are recomputed on
+ * demand. Between changes a repeated report costs one hash lookup. The least recently used entry is
+ * evicted when the cache is full. Cached results are shared, so callers must not modify them.
+ */
+public class ReportCache {
+    /** The maximum number of entries. */
+    private int capacity;
+    /** The order version the entries were computed from. */
+    private long version = -1;
+    /** The cached results by key, in access order. */
+    private LinkedHashMap<Object, Object> entries;
+    /** The number of lookups answered from the cache. */
+    private Counter hits;
+    /** The number of lookups that computed the result. */
+    private Counter misses;
+
+    /**
+     * Creates a new, empty {@code ReportCache}.
+     * @param name     the prefix of the hit and miss counters in the default {@link MetricsRegistry}
+     * @param capacity the maximum number of entries, or 0 to disable caching
+     */
+    public ReportCache(String name, int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                return size() > ReportCache.this.capacity;
+            }
+        };
+        this.hits = MetricsRegistry.getDefault().counter(name + ".hits");
+        this.misses = MetricsRegistry.getDefault().counter(name + ".misses");
+    }
+
+    /**
+     * Returns the cached result for a key, computing and caching it if it is missing or stale.
+     * The version must be read before the result is computed, so a change during the computation
+     * leaves the entry stale rather than wrongly current; a caller behind the latest version bypasses the cache.
+     * @param key      the report and its parameters; must implement {@code equals} and {@code hashCode}
+     * @param version  the current order version
+     * @param computer computes the result
+     * @param <T>      the type of the result
+     * @return the result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, long version, Supplier<T> computer) {
+        synchronized (this) {
+            if (version > this.version) {
+                entries.clear();
+                this.version = version;
+            }
+            Object cached = version == this.version ? entries.get(key) : null;
+            if (cached != null) {
+                hits.increment();
+                return (T) cached;
+            }
+        }
+        misses.increment();
+        T result = computer.get();
+        synchronized (this) {
+            if (version == this.version && capacity > 0) entries.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Changes the maximum number of entries, dropping every entry.
+     * @param capacity the maximum number of entries, or 0 to disable caching
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        entries.clear();
+    }
+}
@@ -0,0 +1,496 @@
+package reports;
+
+import models.Order;
+import models.OrderArena;
+import models.OrderTable;
+import models.Product;
+import models.ProductCatalog;
+import models.SegmentedOrders;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Computes the sales and best-seller reports, the {@link BasketAnalytics} and the {@link NutritionReport}
+ * by scanning a list of orders, either on the calling thread or split into partitions on a {@link ForkJoinPool}.
+ * Each partition accumulates into primitive arrays, a day-indexed revenue array and a product-id-indexed
+ * unit array, which are merged pairwise once the partitions are done. An {@link OrderArena} is scanned
+ * through its columns, without materializing its orders, and so is an {@link OrderTable}, whose ranges
+ * are rows rather than positions, skipping the deleted ones. {@link SegmentedOrders} are scanned a segment
+ * at a time, each segment as an {@code OrderTable}, and the totals of the segments are merged.
+ */
+public class ReportEngine {
+    /** The default number of orders below which a partition is scanned without splitting. */
+    public static final int DEFAULT_PARTITION_SIZE = 64 * 1024;
+
+    /** The catalog the product ids refer to. */
+    private ProductCatalog products;
+    /** The pool that scans the partitions in parallel mode. */
+    private ForkJoinPool pool;
+    /** The number of orders below which a partition is scanned without splitting. */
+    private int partitionSize;
+
+    /**
+     * Creates a new {@code ReportEngine} using the common pool.
+     * @param products the catalog the orders' products belong to
+     */
+    public ReportEngine(ProductCatalog products) {
+        this(products, ForkJoinPool.commonPool(), DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * Creates a new {@code ReportEngine}.
+     * @param products      the catalog the orders' products belong to
+     * @param pool          the pool that scans the partitions in parallel mode
+     * @param partitionSize the number of orders below which a partition is not split further
+     */
+    public ReportEngine(ProductCatalog products, ForkJoinPool pool, int partitionSize) {
+        this.products = products;
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    /**
+     * Generates a sales report mapping each date to the total sales value.
+     * @param orders   the orders to scan
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return a map of dates to total sales values, in date order
+     */
+    public NavigableMap<LocalDate, Integer> generateSalesReport(List<Order> orders, boolean parallel) {
+        return generateSalesReport(orders, null, null, parallel);
+    }
+
+    /**
+     * Generates a sales report over a date range.
+     * @param orders   the orders to scan
+     * @param from     the first day of the range, or {@code null} for no lower bound
+     * @param to       the last day of the range, or {@code null} for no upper bound
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return a map of dates to total sales values, in date order
+     */
+    public NavigableMap<LocalDate, Integer> generateSalesReport(List<Order> orders, LocalDate from, LocalDate to,
+                                                                boolean parallel) {
+        Partial totals = scan(orders, from, to, parallel);
+        NavigableMap<LocalDate, Integer> sales = new TreeMap<>();
+        for (int i = 0; i < totals.dailyOrders.length; i++) {
+            if (totals.dailyOrders[i] > 0) sales.put(LocalDate.ofEpochDay(totals.firstDay + i), totals.dailySales[i]);
+        }
+        return sales;
+    }
+
+    /**
+     * Generates a list of the products with the most units sold.
+     * @param orders   the orders to scan
+     * @param limit    the maximum number of products to return
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return a map of product names to their sales counts, best seller first
+     */
+    public Map<String, Long> generateBestSellers(List<Order> orders, int limit, boolean parallel) {
+        return generateBestSellers(orders, limit, ProductRanking.UNITS, null, null, parallel);
+    }
+
+    /**
+     * Generates a list of best-selling products over a date range.
+     * @param orders   the orders to scan
+     * @param limit    the maximum number of products to return
+     * @param ranking  the measure to rank the products by
+     * @param from     the first day of the range, or {@code null} for no lower bound
+     * @param to       the last day of the range, or {@code null} for no upper bound
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return a map of product names to their units sold or revenue, best seller first
+     */
+    public Map<String, Long> generateBestSellers(List<Order> orders, int limit, ProductRanking ranking,
+                                                 LocalDate from, LocalDate to, boolean parallel) {
+        long[] scores = scoreProducts(orders, ranking, from, to, parallel);
+        Map<String, Long> bestSellers = new LinkedHashMap<>();
+        for (int id : TopK.highestScores(scores, limit)) {
+            bestSellers.put(products.get(id).getName(), scores[id]);
+        }
+        return bestSellers;
+    }
+
+    /**
+     * Computes the units sold or revenue of every product over a date range.
+     * @param orders   the orders to scan
+     * @param ranking  the measure to compute
+     * @param from     the first day of the range, or {@code null} for no lower bound
+     * @param to       the last day of the range, or {@code null} for no upper bound
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return the scores, indexed by product id
+     */
+    public long[] scoreProducts(List<Order> orders, ProductRanking ranking, LocalDate from, LocalDate to,
+                                boolean parallel) {
+        Partial totals = scan(orders, from, to, parallel);
+        return ranking == ProductRanking.UNITS ? totals.productCounts : totals.productRevenue;
+    }
+
+    /**
+     * Computes the basket analytics of the given orders.
+     * @param orders   the orders to scan
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return the analytics, which can then be kept up to date incrementally
+     */
+    public BasketAnalytics analyzeBaskets(List<Order> orders, boolean parallel) {
+        if (!(orders instanceof SegmentedOrders)) return run(new BasketTask(orders, 0, rows(orders)), parallel);
+        BasketAnalytics analytics = new BasketAnalytics(products);
+        forEachSegment(orders, s -> new BasketTask(s, 0, rows(s)), parallel, analytics::merge);
+        return analytics;
+    }
+
+    /**
+     * Computes the nutrition and drink totals of the given orders that fall in a date range. The nutrition of
+     * the products is first laid out as {@link NutritionColumns}, one array per nutrient indexed by product id,
+     * so the scan sums array slots by id instead of visiting product objects.
+     * @param orders   the orders to scan
+     * @param from     the first day of the range, or {@code null} for no lower bound
+     * @param to       the last day of the range, or {@code null} for no upper bound
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return the nutrition report
+     */
+    public NutritionReport analyzeNutrition(List<Order> orders, LocalDate from, LocalDate to, boolean parallel) {
+        NutritionColumns columns = new NutritionColumns(products);
+        long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        if (!(orders instanceof SegmentedOrders)) {
+            return run(new NutritionTask(orders, columns, 0, rows(orders), fromDay, toDay), parallel);
+        }
+        NutritionReport report = new NutritionReport(columns);
+        forEachSegment(orders, s -> new NutritionTask(s, columns, 0, rows(s), fromDay, toDay), parallel, report::merge);
+        return report;
+    }
+
+    /**
+     * Accumulates the totals of the given orders that fall in a date range.
+     * @param orders   the orders to scan
+     * @param from     the first day of the range, or {@code null} for no lower bound
+     * @param to       the last day of the range, or {@code null} for no upper bound
+     * @param parallel whether to scan the orders in parallel partitions
+     * @return the accumulated totals
+     */
+    private Partial scan(List<Order> orders, LocalDate from, LocalDate to, boolean parallel) {
+        long fromDay = from == null ? Long.MIN_VALUE : from.toEpochDay();
+        long toDay = to == null ? Long.MAX_VALUE : to.toEpochDay();
+        if (!(orders instanceof SegmentedOrders)) {
+            return run(new ScanTask(orders, 0, rows(orders), fromDay, toDay), parallel);
+        }
+        Partial totals = new Partial();
+        forEachSegment(orders, s -> new ScanTask(s, 0, rows(s), fromDay, toDay), parallel, totals::merge);
+        return totals;
+    }
+
+    /**
+     * Scans the segments of segmented orders one after another, each split into partitions like a whole list.
+     * @param orders   the {@link SegmentedOrders} to scan
+     * @param task     creates the task scanning a segment
+     * @param parallel whether to scan each segment in parallel partitions
+     * @param merge    merges the result of a segment into the totals
+     * @param <T>      the type of the result of a segment
+     */
+    private <T> void forEachSegment(List<Order> orders, Function<OrderTable, RecursiveTask<T>> task, boolean parallel,
+                                    Consumer<T> merge) {
+        ((SegmentedOrders) orders).forEachSegment(segment -> merge.accept(run(task.apply(segment), parallel)));
+    }
+
+    /**
+     * Runs a scan task on the calling thread or on the pool.
+     * @param task     the task
+     * @param parallel whether to run it on the pool, splitting it into partitions
+     * @param <T>      the type of the result
+     * @return the result of the task
+     */
+    private <T> T run(RecursiveTask<T> task, boolean parallel) {
+        return parallel ? pool.invoke(task) : task.invoke();
+    }
+
+    /**
+     * Returns the number of rows a scan of an order list covers: the rows of an {@link OrderTable}, deleted
+     * ones included, or the orders of any other list.
+     * @param orders the orders to scan
+     * @return the end of the range to scan
+     */
+    private static int rows(List<Order> orders) {
+        return orders instanceof OrderTable ? ((OrderTable) orders).getRows().size() : orders.size();
+    }
+
+    /** Primitive per-partition totals. */
+    private class Partial {
+        /** The epoch day of index 0 of the daily arrays. */
+        private long firstDay;
+        /** The total order value per day, indexed by {@code epochDay - firstDay}. */
+        private int[] dailySales = new int[0];
+        /** The number of orders per day, indexed like {@link #dailySales}. */
+        private int[] dailyOrders = new int[0];
+        /** The units sold per product, indexed by product id. */
+        private long[] productCounts = new long[products.size()];
+        /** The revenue per product, indexed by product id. */
+        private long[] productRevenue = new long[products.size()];
+
+        /**
+         * Adds an order to the totals.
+         * @param order the order to add
+         */
+        void add(Order order) {
+            addOrder(order.getDate().toEpochDay(), order.getValue());
+            List<Product> items = order.getProducts();
+            for (int i = 0; i < items.size(); i++) {
+                addItem(items.get(i).getId(), order.getPrice(i));
+            }
+        }
+
+        /**
+         * Adds the date and value of an order to the daily totals.
+         * @param epochDay the date of the order
+         * @param value    the value of the order
+         */
+        void addOrder(long epochDay, int value) {
+            int day = dayIndex(epochDay);
+            dailySales[day] += value;
+            dailyOrders[day]++;
+        }
+
+        /**
+         * Adds one unit of a product to the product totals.
+         * @param id    the product id of the item sold
+         * @param price the unit price charged for it
+         */
+        void addItem(int id, int price) {
+            if (id >= productCounts.length) grow(id + 1);
+            productCounts[id]++;
+            productRevenue[id] += price;
+        }
+
+        /**
+         * Adds the totals of another partition to these totals.
+         * @param other the totals to merge in
+         */
+        void merge(Partial other) {
+            if (other.dailyOrders.length > 0) {
+                dayIndex(other.firstDay);
+                dayIndex(other.firstDay + other.dailyOrders.length - 1);
+                int shift = (int) (other.firstDay - firstDay);
+                for (int i = 0; i < other.dailyOrders.length; i++) {
+                    dailySales[shift + i] += other.dailySales[i];
+                    dailyOrders[shift + i] += other.dailyOrders[i];
+                }
+            }
+            if (other.productCounts.length > productCounts.length) grow(other.productCounts.length);
+            for (int id = 0; id < other.productCounts.length; id++) {
+                productCounts[id] += other.productCounts[id];
+                productRevenue[id] += other.productRevenue[id];
+            }
+        }
+
+        /**
+         * Grows the product totals to hold products added by a menu reload during the scan.
+         * @param size the number of product ids to hold
+         */
+        void grow(int size) {
+            productCounts = Arrays.copyOf(productCounts, size);
+            productRevenue = Arrays.copyOf(productRevenue, size);
+        }
+
+        /**
+         * Returns the array index of a day, at least doubling the daily arrays if the day is outside them.
+         * @param epochDay the day
+         * @return the index of the day in the daily arrays
+         */
+        private int dayIndex(long epochDay) {
+            if (dailyOrders.length == 0) {
+                firstDay = epochDay;
+                dailySales = new int[1];
+                dailyOrders = new int[1];
+            } else if (epochDay < firstDay || epochDay >= firstDay + dailyOrders.length) {
+                long from = firstDay;
+                long to = firstDay + dailyOrders.length;
+                if (epochDay < from) from = Math.min(epochDay, from - dailyOrders.length);
+                else to = Math.max(epochDay + 1, to + dailyOrders.length);
+                int length = (int) (to - from);
+                int shift = (int) (firstDay - from);
+                int[] sales = new int[length];
+                int[] counts = new int[length];
+                System.arraycopy(dailySales, 0, sales, shift, dailySales.length);
+                System.arraycopy(dailyOrders, 0, counts, shift, dailyOrders.length);
+                firstDay = from;
+                dailySales = sales;
+                dailyOrders = counts;
+            }
+            return (int) (epochDay - firstDay);
+        }
+    }
+
+    /** Scans a range of the order list, splitting it in halves while it is larger than a partition. */
+    private class ScanTask extends RecursiveTask<Partial> {
+        /** The orders being scanned. */
+        private List<Order> orders;
+        /** The first index of the range. */
+        private int from;
+        /** The index just past the range. */
+        private int to;
+        /** The first epoch day of the orders included. */
+        private long fromDay;
+        /** The last epoch day of the orders included. */
+        private long toDay;
+
+        /**
+         * Creates a new {@code ScanTask}.
+         * @param orders  the orders being scanned
+         * @param from    the first index of the range
+         * @param to      the index just past the range
+         * @param fromDay the first epoch day of the orders included
+         * @param toDay   the last epoch day of the orders included
+         */
+        ScanTask(List<Order> orders, int from, int to, long fromDay, long toDay) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > partitionSize && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                ScanTask right = new ScanTask(orders, middle, to, fromDay, toDay);
+                right.fork();
+                Partial left = new ScanTask(orders, from, middle, fromDay, toDay).compute();
+                left.merge(right.join());
+                return left;
+            }
+            Partial partial = new Partial();
+            OrderTable table = orders instanceof OrderTable ? (OrderTable) orders : null;
+            if (table != null || orders instanceof OrderArena) {
+                OrderArena arena = table != null ? table.getRows() : (OrderArena) orders;
+                for (int i = from; i < to; i++) {
+                    if (table != null && table.isDeleted(i)) continue;
+                    long day = arena.getEpochDay(i);
+                    if (day < fromDay || day > toDay) continue;
+                    partial.addOrder(day, arena.getValue(i));
+                    for (int j = arena.getItemStart(i); j < arena.getItemEnd(i); j++) {
+                        partial.addItem(arena.getItem(j), arena.getPrice(j));
+                    }
+                }
+                return partial;
+            }
+            for (int i = from; i < to; i++) {
+                Order order = orders.get(i);
+                long day = order.getDate().toEpochDay();
+                if (day >= fromDay && day <= toDay) partial.add(order);
+            }
+            return partial;
+        }
+    }
+
+    /** Computes the basket analytics of a range of the order list, split like a {@link ScanTask}. */
+    private class BasketTask extends RecursiveTask<BasketAnalytics> {
+        /** The orders being scanned. */
+        private List<Order> orders;
+        /** The first index of the range. */
+        private int from;
+        /** The index just past the range. */
+        private int to;
+
+        /**
+         * Creates a new {@code BasketTask}.
+         * @param orders the orders being scanned
+         * @param from   the first index of the range
+         * @param to     the index just past the range
+         */
+        BasketTask(List<Order> orders, int from, int to) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BasketAnalytics compute() {
+            if (to - from > partitionSize && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                BasketTask right = new BasketTask(orders, middle, to);
+                right.fork();
+                BasketAnalytics left = new BasketTask(orders, from, middle).compute();
+                left.merge(right.join());
+                return left;
+            }
+            BasketAnalytics analytics = new BasketAnalytics(products);
+            OrderTable table = orders instanceof OrderTable ? (OrderTable) orders : null;
+            if (table != null || orders instanceof OrderArena) {
+                OrderArena arena = table != null ? table.getRows() : (OrderArena) orders;
+                for (int i = from; i < to; i++) {
+                    if (table == null || !table.isDeleted(i)) analytics.add(arena, i);
+                }
+                return analytics;
+            }
+            for (int i = from; i < to; i++) {
+                analytics.add(orders.get(i));
+            }
+            return analytics;
+        }
+    }
+
+    /** Computes the nutrition report of a range of the order list, split like a {@link ScanTask}. */
+    private class NutritionTask extends RecursiveTask<NutritionReport> {
+        /** The orders being scanned. */
+        private List<Order> orders;
+        /** The nutrition of the products. */
+        private NutritionColumns columns;
+        /** The first index of the range. */
+        private int from;
+        /** The index just past the range. */
+        private int to;
+        /** The first epoch day of the orders included. */
+        private long fromDay;
+        /** The last epoch day of the orders included. */
+        private long toDay;
+
+        /**
+         * Creates a new {@code NutritionTask}.
+         * @param orders  the orders being scanned
+         * @param columns the nutrition of the products
+         * @param from    the first index of the range
+         * @param to      the index just past the range
+         * @param fromDay the first epoch day of the orders included
+         * @param toDay   the last epoch day of the orders included
+         */
+        NutritionTask(List<Order> orders, NutritionColumns columns, int from, int to, long fromDay, long toDay) {
+            this.orders = orders;
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        @Override
+        protected NutritionReport compute() {
+            if (to - from > partitionSize && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                NutritionTask right = new NutritionTask(orders, columns, middle, to, fromDay, toDay);
+                right.fork();
+                NutritionReport left = new NutritionTask(orders, columns, from, middle, fromDay, toDay).compute();
+                left.merge(right.join());
+                return left;
+            }
+            NutritionReport report = new NutritionReport(columns);
+            OrderTable table = orders instanceof OrderTable ? (OrderTable) orders : null;
+            if (table != null || orders instanceof OrderArena) {
+                OrderArena arena = table != null ? table.getRows() : (OrderArena) orders;
+                for (int i = from; i < to; i++) {
+                    if (table != null && table.isDeleted(i)) continue;
+                    long day = arena.getEpochDay(i);
+                    if (day >= fromDay && day <= toDay) report.add(arena, i);
+                }
+                return report;
+            }
+            for (int i = from; i < to; i++) {
+                Order order = orders.get(i);
+                long day = order.getDate().toEpochDay();
+                if (day >= fromDay && day <= toDay) report.add(order);
+            }
+            return report;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package reports;
+
+/** The ways in which the sales and best-seller reports can be produced. */
+public enum ReportMode {
+    /** Read the reports from the continuously maintained {@link SalesAggregates}. */
+    INCREMENTAL,
+    /** Scan the full order history on the calling thread. */
+    SEQUENTIAL,
+    /** Scan the full order history in parallel partitions. */
+    PARALLEL
+}
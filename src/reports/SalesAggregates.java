@@ -0,0 +1,183 @@
+package reports;
+
+import models.Order;
+import models.Product;
+import models.ProductCatalog;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Continuously maintained sales aggregates: a {@link DateIndex} of the daily totals and the units sold
+ * and revenue per product over the whole history. Adding or removing an order costs O(items + log days),
+ * so the sales report is read in time proportional to the number of days and the best sellers in
+ * O(products log k), independent of the order history.
+ */
+public class SalesAggregates {
+    /** The catalog the product ids refer to. */
+    private ProductCatalog products;
+    /** The daily totals. */
+    private DateIndex dateIndex;
+    /** The units sold per product, indexed by product id. */
+    private long[] productCounts;
+    /** The revenue per product, indexed by product id. */
+    private long[] productRevenue;
+
+    /**
+     * Creates new {@code SalesAggregates} over the given orders.
+     * @param products the catalog the orders' products belong to
+     * @param orders   the orders to aggregate initially
+     */
+    public SalesAggregates(ProductCatalog products, List<Order> orders) {
+        this.products = products;
+        this.productCounts = new long[products.size()];
+        this.productRevenue = new long[products.size()];
+        this.dateIndex = new DateIndex(products.size());
+        for (Order o : orders) {
+            add(o);
+        }
+    }
+
+    /**
+     * Adds an order to the aggregates.
+     * @param order the order that was placed
+     */
+    public void add(Order order) {
+        dateIndex.add(order);
+        List<Product> items = order.getProducts();
+        for (int i = 0; i < items.size(); i++) {
+            int id = items.get(i).getId();
+            if (id >= productCounts.length) grow();
+            productCounts[id]++;
+            productRevenue[id] += order.getPrice(i);
+        }
+    }
+
+    /**
+     * Removes an order from the aggregates.
+     * @param order the order that was deleted
+     */
+    public void remove(Order order) {
+        dateIndex.remove(order);
+        List<Product> items = order.getProducts();
+        for (int i = 0; i < items.size(); i++) {
+            productCounts[items.get(i).getId()]--;
+            productRevenue[items.get(i).getId()] -= order.getPrice(i);
+        }
+    }
+
+    /**
+     * Returns the total order value per day.
+     * @return a map of dates to total sales values, in date order
+     */
+    public NavigableMap<LocalDate, Integer> getSalesReport() {
+        return dateIndex.getSalesReport(null, null);
+    }
+
+    /**
+     * Returns the best-selling products.
+     * @param limit   the maximum number of products to return
+     * @param ranking the measure to rank the products by
+     * @return a map of product names to their units sold or revenue, best seller first
+     */
+    public Map<String, Long> getBestSellers(int limit, ProductRanking ranking) {
+        return rank(limit, ranking == ProductRanking.UNITS ? productCounts : productRevenue);
+    }
+
+    /**
+     * Returns the best-selling products over a date range.
+     * @param limit   the maximum number of products to return
+     * @param ranking the measure to rank the products by
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @return a map of product names to their units sold or revenue, best seller first
+     */
+    public Map<String, Long> getBestSellers(int limit, ProductRanking ranking, LocalDate from, LocalDate to) {
+        if (from == null && to == null) return getBestSellers(limit, ranking);
+        return rank(limit, ranking == ProductRanking.UNITS
+                ? dateIndex.getProductCounts(from, to) : dateIndex.getProductRevenue(from, to));
+    }
+
+    /**
+     * Returns the total order value per day over a date range, adding in the daily totals of orders
+     * that are not part of these aggregates, such as history kept on disk.
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @param history the daily totals of the other orders
+     * @return a map of dates to total sales values, in date order
+     */
+    public NavigableMap<LocalDate, Integer> getSalesReport(LocalDate from, LocalDate to, List<DateIndex> history) {
+        NavigableMap<LocalDate, Integer> sales = dateIndex.getSalesReport(from, to);
+        for (DateIndex index : history) {
+            index.getSalesReport(from, to).forEach((date, value) -> sales.merge(date, value, Integer::sum));
+        }
+        return sales;
+    }
+
+    /**
+     * Returns the best-selling products over a date range, adding in the daily totals of orders
+     * that are not part of these aggregates, such as history kept on disk.
+     * @param limit   the maximum number of products to return
+     * @param ranking the measure to rank the products by
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @param history the daily totals of the other orders
+     * @return a map of product names to their units sold or revenue, best seller first
+     */
+    public Map<String, Long> getBestSellers(int limit, ProductRanking ranking, LocalDate from, LocalDate to,
+                                            List<DateIndex> history) {
+        return rank(limit, getProductScores(ranking, from, to, history));
+    }
+
+    /**
+     * Returns the units sold or revenue of every product over a date range, adding in the daily totals
+     * of orders that are not part of these aggregates. The cost depends on the number of days and
+     * products, not on the number of orders.
+     * @param ranking the measure to return
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @param history the daily totals of the other orders
+     * @return a new array of the scores, indexed by product id and sized to the catalog
+     */
+    public long[] getProductScores(ProductRanking ranking, LocalDate from, LocalDate to, List<DateIndex> history) {
+        long[] scores = Arrays.copyOf(from == null && to == null
+                ? (ranking == ProductRanking.UNITS ? productCounts : productRevenue)
+                : (ranking == ProductRanking.UNITS
+                        ? dateIndex.getProductCounts(from, to) : dateIndex.getProductRevenue(from, to)), products.size());
+        for (DateIndex index : history) {
+            long[] partial = ranking == ProductRanking.UNITS
+                    ? index.getProductCounts(from, to) : index.getProductRevenue(from, to);
+            for (int id = 0; id < partial.length; id++) {
+                scores[id] += partial[id];
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the daily totals.
+     * @return the date index
+     */
+    public DateIndex getDateIndex() {
+        return dateIndex;
+    }
+
+    /** Grows the per-product arrays to the size of the catalog, which a menu reload may have extended. */
+    private void grow() {
+        productCounts = Arrays.copyOf(productCounts, products.size());
+        productRevenue = Arrays.copyOf(productRevenue, products.size());
+    }
+
+    /**
+     * Ranks the products by a score.
+     * @param limit  the maximum number of products to return
+     * @param scores the scores, indexed by product id
+     * @return a map of product names to their scores, best first
+     */
+    public Map<String, Long> rank(int limit, long[] scores) {
+        Map<String, Long> bestSellers = new LinkedHashMap<>();
+        for (int id : TopK.highestScores(scores, limit)) {
+            bestSellers.put(products.get(id).getName(), scores[id]);
+        }
+        return bestSellers;
+    }
+}
@@ -0,0 +1,73 @@
+package reports;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the {@code k} best elements of a sequence in O(n log k) time by keeping them in a
+ * bounded heap whose head is the worst element retained so far.
+ * @param <T> the type of the ranked elements
+ */
+public class TopK<T> {
+    /** The maximum number of elements retained. */
+    private int k;
+    /** The ranking order; elements that compare lower rank higher. */
+    private Comparator<? super T> order;
+    /** The retained elements, worst first. */
+    private PriorityQueue<T> heap;
+
+    /**
+     * Creates a new {@code TopK}. The comparator must be a total order for the result to be
+     * deterministic, so callers should break ties on a unique key.
+     * @param k     the maximum number of elements retained
+     * @param order the ranking order; elements that compare lower rank higher
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        this.k = k;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.max(1, k), order.reversed());
+    }
+
+    /**
+     * Offers an element to the selection.
+     * @param element the element to rank
+     */
+    public void offer(T element) {
+        if (k <= 0) return;
+        if (heap.size() < k) {
+            heap.add(element);
+        } else if (order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(element);
+        }
+    }
+
+    /**
+     * Returns the retained elements.
+     * @return at most {@code k} elements, best first
+     */
+    public List<T> result() {
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * Selects the ids with the highest positive scores, breaking ties by the lower id.
+     * @param scores the scores, indexed by id
+     * @param k      the maximum number of ids to select
+     * @return at most {@code k} ids, best first
+     */
+    public static List<Integer> highestScores(long[] scores, int k) {
+        TopK<Integer> top = new TopK<>(k, (a, b) -> {
+            int byScore = Long.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Integer.compare(a, b);
+        });
+        for (int id = 0; id < scores.length; id++) {
+            if (scores[id] > 0) top.offer(id);
+        }
+        return top.result();
+    }
+}
@@ -0,0 +1,523 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import exceptions.InvalidOrderIndex;
+import export.ExportFormat;
+import export.ExportKind;
+import export.OrderExporter;
+import menu.MenuManager;
+import metrics.MetricsRegistry;
+import models.Category;
+import models.Order;
+import models.Product;
+import reports.Nutrient;
+import reports.NutritionReport;
+import reports.ProductRanking;
+import reports.ReportCache;
+import utils.ThreadPools;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import static utils.Constants.BEST_SELLERS_LIMIT;
+import static utils.Constants.BOUGHT_TOGETHER_LIMIT;
+import static utils.Constants.ORDERS_PAGE_SIZE;
+
+/**
+ * An embedded HTTP server on the loopback interface that exposes the {@link MenuManager} operations
+ * to POS terminals and kitchen displays. Every request is handled on its own thread (a virtual thread
+ * where the JDK supports them) and responses are streamed with chunked encoding.
+ * <ul>
+ *     <li>{@code GET /menu} lists the products on the menu;</li>
+ *     <li>{@code POST /menu/reload} reloads the menu file and returns the number of products on the menu;</li>
+ *     <li>{@code GET /orders[?page=&size=]} lists a page of orders with their ids, 20 per page by default;</li>
+ *     <li>{@code POST /orders} adds an order whose body holds product names separated by spaces or commas
+ *     and returns its id;</li>
+ *     <li>{@code DELETE /orders/{id}} deletes the order with an id;</li>
+ *     <li>{@code GET /reports/sales[?from=&to=&shards=]} returns the sales report;</li>
+ *     <li>{@code GET /reports/best-sellers[?limit=&ranking=units|revenue&from=&to=&shards=]} returns the best sellers;</li>
+ *     <li>{@code GET /reports/baskets} returns the average basket and the revenue per product;</li>
+ *     <li>{@code GET /reports/bought-together?product=[&limit=]} returns the products most often ordered
+ *     with a product;</li>
+ *     <li>{@code GET /reports/nutrition[?from=&to=]} returns the nutrient distributions per order, the nutrient
+ *     totals per food category, and the nutrient totals and alcohol share of every day;</li>
+ *     <li>{@code GET /export/{orders|sales|best-sellers|products}[?format=csv|jsonl&from=&to=&limit=&ranking=]}
+ *     streams an export of the orders or a report computed from them, gzip-compressed if the client accepts it;</li>
+ *     <li>{@code GET /metrics} returns a snapshot of the {@link MetricsRegistry}.</li>
+ * </ul>
+ * The {@code shards} parameter is a comma-separated list of the shards to report on, all of them by default.
+ * Report responses are cached per query until the next order change or menu reload.
+ */
+public class OrderHttpServer implements AutoCloseable {
+    /** The maximum number of cached report responses. */
+    private static final int CACHE_LIMIT = 256;
+
+    /** The manager whose operations are exposed. */
+    private MenuManager manager;
+    /** The underlying server. */
+    private HttpServer server;
+    /** The executor running the request handlers. */
+    private ExecutorService executor;
+    /** The cached report responses, by path and query. */
+    private ReportCache reportCache = new ReportCache("http.reportCache", CACHE_LIMIT);
+
+    /**
+     * Creates a new {@code OrderHttpServer} bound to the loopback interface.
+     * @param manager the manager whose operations are exposed; its input files must already be read
+     * @param port    the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public OrderHttpServer(MenuManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = ThreadPools.newPerTaskExecutor("http");
+        server.setExecutor(executor);
+        server.createContext("/menu", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/menu")) handle(exchange, "GET", this::listMenu);
+            else handle(exchange, "POST", this::reloadMenu);
+        });
+        server.createContext("/orders", exchange -> {
+            boolean collection = exchange.getRequestURI().getPath().equals("/orders");
+            if (!collection) handle(exchange, "DELETE", this::deleteOrder);
+            else if (exchange.getRequestMethod().equals("GET")) handle(exchange, "GET", this::listOrders);
+            else handle(exchange, "POST", this::addOrder);
+        });
+        server.createContext("/reports/sales", exchange -> handle(exchange, "GET", this::salesReport));
+        server.createContext("/reports/best-sellers", exchange -> handle(exchange, "GET", this::bestSellers));
+        server.createContext("/reports/baskets", exchange -> handle(exchange, "GET", this::baskets));
+        server.createContext("/reports/bought-together", exchange -> handle(exchange, "GET", this::boughtTogether));
+        server.createContext("/reports/nutrition", exchange -> handle(exchange, "GET", this::nutrition));
+        server.createContext("/export/", exchange -> handle(exchange, "GET", this::export));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+    }
+
+    /** Starts accepting requests. */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops the server, waiting at most a second for requests in flight. */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /** A request handler that may fail with an error mapped to a status code. */
+    private interface Handler {
+        /**
+         * Handles a request.
+         * @param exchange the request and response
+         * @throws IOException if the response cannot be written
+         */
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Checks the method, runs a handler and maps failures to error responses.
+     * @param exchange the request and response
+     * @param method   the method the handler accepts
+     * @param handler  the handler to run
+     */
+    private void handle(HttpExchange exchange, String method, Handler handler) {
+        try (exchange) {
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    sendError(exchange, 405, "Method not allowed");
+                } else {
+                    handler.handle(exchange);
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, e.toString());
+            }
+        } catch (IOException e) {
+            // The client went away; there is nobody left to report to.
+        }
+    }
+
+    /**
+     * Streams the menu as a JSON array.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void listMenu(HttpExchange exchange) throws IOException {
+        try (Writer out = startJson(exchange, 200)) {
+            out.write('[');
+            boolean first = true;
+            for (Product p : manager.getProducts().getProducts()) {
+                if (!first) out.write(',');
+                first = false;
+                out.write("{\"id\":" + p.getId() + ",\"name\":" + quote(p.getName()) + ",\"price\":" + p.getPrice() + "}");
+            }
+            out.write("]\n");
+        }
+    }
+
+    /**
+     * Reloads the menu file.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void reloadMenu(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/menu/reload")) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        int count = manager.reloadMenu();
+        try (Writer out = startJson(exchange, 200)) {
+            out.write("{\"products\":" + count + "}\n");
+        }
+    }
+
+    /**
+     * Streams a page of orders as a JSON array of ids and orders.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void listOrders(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        int page = query.containsKey("page") ? Integer.parseInt(query.get("page")) : 0;
+        int size = query.containsKey("size") ? Integer.parseInt(query.get("size")) : ORDERS_PAGE_SIZE;
+        if (page < 0 || size <= 0) throw new IllegalArgumentException("page must not be negative and size must be positive");
+        Map<Long, Order> orders = manager.getOrderPage(page, size);
+        try (Writer out = startJson(exchange, 200)) {
+            out.write('[');
+            boolean first = true;
+            for (Map.Entry<Long, Order> entry : orders.entrySet()) {
+                if (!first) out.write(',');
+                first = false;
+                out.write("{\"id\":" + entry.getKey() + ",\"order\":" + quote(entry.getValue().toString()) + "}");
+            }
+            out.write("]\n");
+        }
+    }
+
+    /**
+     * Adds the order described by the request body.
+     * @param exchange the request and response
+     * @throws IOException if the request cannot be read or the response written
+     */
+    private void addOrder(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Order order = new Order(LocalDate.now());
+        for (String name : body.trim().split("[\\s,]+")) {
+            if (name.isEmpty()) continue;
+            Product product = manager.getProducts().get(name);
+            if (product == null || !manager.getProducts().isOnMenu(product))
+                throw new IllegalArgumentException("Unknown product: " + name);
+            order.add(product);
+        }
+        if (order.getProducts().isEmpty()) throw new IllegalArgumentException("An order needs at least one product");
+        long id = manager.addOrder(order);
+        try (Writer out = startJson(exchange, 201)) {
+            out.write("{\"id\":" + id + "}\n");
+        }
+    }
+
+    /**
+     * Deletes the order with the id given in the path.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void deleteOrder(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        long id;
+        try {
+            id = Long.parseLong(path.substring("/orders/".length()));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        Order order;
+        try {
+            order = manager.deleteOrderById(id);
+        } catch (InvalidOrderIndex e) {
+            sendError(exchange, 404, e.getMessage());
+            return;
+        }
+        try (Writer out = startJson(exchange, 200)) {
+            out.write("{\"deleted\":" + quote(order.toString()) + "}\n");
+        }
+    }
+
+    /**
+     * Streams the sales report as a JSON object of dates to values.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void salesReport(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        sendReport(exchange, () -> {
+            Map<LocalDate, Integer> sales = manager.generateSalesReport(date(query, "from"), date(query, "to"),
+                    shards(query));
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<LocalDate, Integer> entry : sales.entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            }
+            return sb.append("}\n").toString();
+        });
+    }
+
+    /**
+     * Streams the best sellers as a JSON array of name and score pairs, best first.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void bestSellers(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : BEST_SELLERS_LIMIT;
+        ProductRanking ranking = ProductRanking.valueOf(query.getOrDefault("ranking", "units").toUpperCase());
+        sendReport(exchange, () -> {
+            Map<String, Long> bestSellers = manager.generateBestSellers(limit, ranking,
+                    date(query, "from"), date(query, "to"), shards(query));
+            StringBuilder sb = new StringBuilder("[");
+            for (Map.Entry<String, Long> entry : bestSellers.entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append("{\"name\":").append(quote(entry.getKey())).append(",\"value\":").append(entry.getValue()).append('}');
+            }
+            return sb.append("]\n").toString();
+        });
+    }
+
+    /**
+     * Streams the basket analytics as a JSON object holding the average basket size and value and the
+     * revenue per product, highest first.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void baskets(HttpExchange exchange) throws IOException {
+        sendReport(exchange, () -> {
+            StringBuilder sb = new StringBuilder("{\"averageSize\":").append(manager.getAverageBasketSize())
+                    .append(",\"averageValue\":").append(manager.getAverageBasketValue()).append(",\"revenue\":[");
+            boolean first = true;
+            for (Map.Entry<String, Long> entry : manager.getRevenueByProduct().entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                sb.append("{\"name\":").append(quote(entry.getKey())).append(",\"value\":").append(entry.getValue()).append('}');
+            }
+            return sb.append("]}\n").toString();
+        });
+    }
+
+    /**
+     * Streams the products most often ordered with a product as a JSON array of name and order count pairs.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void boughtTogether(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        String product = query.get("product");
+        if (product == null) throw new IllegalArgumentException("product is required");
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : BOUGHT_TOGETHER_LIMIT;
+        sendReport(exchange, () -> {
+            StringBuilder sb = new StringBuilder("[");
+            for (Map.Entry<String, Long> entry : manager.getBoughtTogether(product, limit).entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append("{\"name\":").append(quote(entry.getKey())).append(",\"orders\":").append(entry.getValue()).append('}');
+            }
+            return sb.append("]\n").toString();
+        });
+    }
+
+    /**
+     * Streams the nutrition report as a JSON object holding the order count, the overall alcohol share,
+     * the mean, percentiles and maximum of each nutrient per order, the units and nutrient totals of each
+     * food category, and an array of the days with their order count, nutrient totals and alcohol share.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void nutrition(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        sendReport(exchange, () -> {
+            NutritionReport report = manager.generateNutritionReport(date(query, "from"), date(query, "to"));
+            StringBuilder sb = new StringBuilder("{\"orders\":").append(report.getOrderCount())
+                    .append(",\"alcoholShare\":").append(report.getAlcoholShare()).append(",\"perOrder\":{");
+            for (Nutrient nutrient : Nutrient.values()) {
+                if (nutrient.ordinal() > 0) sb.append(',');
+                sb.append('"').append(nutrient).append("\":{\"mean\":").append(report.getMeanPerOrder(nutrient))
+                        .append(",\"p50\":").append(report.getPercentilePerOrder(nutrient, 50))
+                        .append(",\"p90\":").append(report.getPercentilePerOrder(nutrient, 90))
+                        .append(",\"p99\":").append(report.getPercentilePerOrder(nutrient, 99))
+                        .append(",\"max\":").append(report.getMaxPerOrder(nutrient)).append('}');
+            }
+            sb.append("},\"categories\":{");
+            Map<Category, Long> units = report.getCategoryUnits();
+            for (Category category : Category.values()) {
+                if (category.ordinal() > 0) sb.append(',');
+                sb.append('"').append(category).append("\":{\"units\":").append(units.get(category));
+                for (Nutrient nutrient : Nutrient.values()) {
+                    sb.append(",\"").append(nutrient).append("\":").append(report.getCategoryTotals(nutrient).get(category));
+                }
+                sb.append('}');
+            }
+            sb.append("},\"days\":[");
+            List<Map<LocalDate, Double>> totals = new ArrayList<>();
+            for (Nutrient nutrient : Nutrient.values()) {
+                totals.add(report.getDailyTotals(nutrient));
+            }
+            Map<LocalDate, Double> alcoholShare = report.getDailyAlcoholShare();
+            boolean first = true;
+            for (Map.Entry<LocalDate, Integer> day : report.getDailyOrders().entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                sb.append("{\"date\":\"").append(day.getKey()).append("\",\"orders\":").append(day.getValue());
+                for (Nutrient nutrient : Nutrient.values()) {
+                    sb.append(",\"").append(nutrient).append("\":").append(totals.get(nutrient.ordinal()).get(day.getKey()));
+                }
+                sb.append(",\"alcoholShare\":").append(alcoholShare.get(day.getKey())).append('}');
+            }
+            return sb.append("]}\n").toString();
+        });
+    }
+
+    /**
+     * Streams an export named in the path, pulling the orders only as fast as the client reads the response.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void export(HttpExchange exchange) throws IOException {
+        ExportKind kind = ExportKind.parse(exchange.getRequestURI().getPath().substring("/export/".length()));
+        Map<String, String> query = query(exchange);
+        ExportFormat format = ExportFormat.parse(query.getOrDefault("format", "csv"));
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : BEST_SELLERS_LIMIT;
+        ProductRanking ranking = ProductRanking.valueOf(query.getOrDefault("ranking", "units").toUpperCase());
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = accepted != null && accepted.contains("gzip");
+        OrderExporter exporter = new OrderExporter(manager.getProducts());
+        exporter.setFormat(format, gzip);
+        exporter.setRange(date(query, "from"), date(query, "to"));
+        exporter.setBestSellers(limit, ranking);
+        exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+        if (gzip) exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody(); Stream<Order> orders = manager.streamOrders()) {
+            exporter.export(kind, orders.iterator(), out);
+        }
+    }
+
+    /**
+     * Sends a snapshot of the default metrics registry as a JSON object.
+     * @param exchange the request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void metrics(HttpExchange exchange) throws IOException {
+        try (Writer out = startJson(exchange, 200)) {
+            out.write(MetricsRegistry.getDefault().toJson());
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Sends a report, from the cache if no order changed since it was generated.
+     * @param exchange  the request and response
+     * @param generator generates the report body
+     * @throws IOException if the response cannot be written
+     */
+    private void sendReport(HttpExchange exchange, java.util.function.Supplier<String> generator) throws IOException {
+        String key = exchange.getRequestURI().getPath() + "?" + exchange.getRequestURI().getRawQuery();
+        byte[] body = reportCache.get(key, manager.getVersion(),
+                () -> generator.get().getBytes(StandardCharsets.UTF_8));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Sends the headers of a streamed JSON response and returns a writer for its body.
+     * @param exchange the request and response
+     * @param status   the status code
+     * @return a buffered writer over the response body
+     * @throws IOException if the headers cannot be sent
+     */
+    private static Writer startJson(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends an error response.
+     * @param exchange the request and response
+     * @param status   the status code
+     * @param message  the error message
+     * @throws IOException if the response cannot be written
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (Writer out = startJson(exchange, status)) {
+            out.write("{\"error\":" + quote(message) + "}\n");
+        }
+    }
+
+    /**
+     * Parses the query string of a request.
+     * @param exchange the request
+     * @return the query parameters by name
+     */
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Returns a date query parameter.
+     * @param query the query parameters
+     * @param name  the parameter name
+     * @return the parsed date, or {@code null} if the parameter is absent
+     */
+    private static LocalDate date(Map<String, String> query, String name) {
+        return query.containsKey(name) ? LocalDate.parse(query.get(name)) : null;
+    }
+
+    /**
+     * Returns the shards query parameter.
+     * @param query the query parameters
+     * @return the comma-separated shard names, or {@code null} if the parameter is absent
+     */
+    private static List<String> shards(Map<String, String> query) {
+        return query.containsKey("shards") ? List.of(query.get("shards").split(",")) : null;
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     * @param text the text to quote
+     * @return the JSON literal
+     */
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,91 @@
+package service;
+
+import models.Order;
+import models.Product;
+import models.ProductCatalog;
+import utils.ThreadPools;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToLongFunction;
+
+/**
+ * Takes orders from any number of concurrent producers, such as tills, tablets or a load generator.
+ * Every submission is handled on its own thread (a virtual thread where the JDK supports them):
+ * the products are resolved through the catalog and the order is handed to a sink that stores it and
+ * returns its id, e.g. the {@code MenuManager}, which journals and aggregates it and applies concurrent
+ * submissions in batches. The future of a submission completes with the id the sink assigned.
+ */
+public class OrderIntakeService implements AutoCloseable {
+    /** The catalog used to resolve the ordered products. */
+    private ProductCatalog products;
+    /** The function every accepted order is handed to, returning the id it stored the order under. */
+    private ToLongFunction<Order> sink;
+    /** The executor running the submission handlers. */
+    private ExecutorService executor;
+
+    /**
+     * Creates a new {@code OrderIntakeService}.
+     * @param products the catalog used to resolve the ordered products
+     * @param sink     the thread-safe function every accepted order is handed to, returning the order's id
+     */
+    public OrderIntakeService(ProductCatalog products, ToLongFunction<Order> sink) {
+        this.products = products;
+        this.sink = sink;
+        this.executor = ThreadPools.newPerTaskExecutor("order-intake");
+    }
+
+    /**
+     * Submits an order for today given by product names.
+     * @param productNames the names of the ordered products
+     * @return a future completed with the order id, or exceptionally with an
+     *         {@link IllegalArgumentException} if the order is empty or names an unknown product
+     */
+    public CompletableFuture<Long> submit(List<String> productNames) {
+        return CompletableFuture.supplyAsync(() -> {
+            Order order = new Order(LocalDate.now());
+            for (String name : productNames) {
+                Product product = products.get(name);
+                if (product == null || !products.isOnMenu(product))
+                    throw new IllegalArgumentException("Unknown product: " + name);
+                order.add(product);
+            }
+            return accept(order);
+        }, executor);
+    }
+
+    /**
+     * Submits an order for today given by product ids.
+     * @param productIds the ids of the ordered products
+     * @return a future completed with the order id, or exceptionally with an
+     *         {@link IllegalArgumentException} if the order is empty or holds an unknown id
+     */
+    public CompletableFuture<Long> submit(int[] productIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            Order order = new Order(LocalDate.now());
+            for (int id : productIds) {
+                if (id < 0 || id >= products.size() || !products.isOnMenu(products.get(id)))
+                    throw new IllegalArgumentException("Unknown product id: " + id);
+                order.add(products.get(id));
+            }
+            return accept(order);
+        }, executor);
+    }
+
+    /** Stops accepting submissions; handlers already running complete. */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Hands an order to the sink.
+     * @param order the validated order
+     * @return the id the sink assigned to the order
+     */
+    private long accept(Order order) {
+        if (order.getProducts().isEmpty()) throw new IllegalArgumentException("An order needs at least one product");
+        return sink.applyAsLong(order);
+    }
+}
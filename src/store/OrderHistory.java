@@ -0,0 +1,654 @@
+package store;
+
+import file.MappedOrdersFile;
+import file.TextFile;
+import models.Order;
+import models.OrderArena;
+import models.OrderTable;
+import models.ProductCatalog;
+import reports.DateIndex;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The cold part of an orders file: every order dated before a cutoff, left on disk and paged in on demand.
+ * <p>
+ * The file must be in date order, as the application keeps it by appending today's orders. Opening a
+ * history binary-searches the file for the first line dated on or after the cutoff, which is where the
+ * hot orders start, and cuts the lines before it into newline-aligned segments whose first and last
+ * dates and ids are read from their end lines; no order is parsed. A segment is parsed when an order in it is
+ * read or deleted, or when a report covers its dates, and the parsed segments are kept in a cache
+ * bounded to the least recently used few. Each segment's daily totals outlive its eviction, so
+ * repeated reports over cold dates do not parse the segment again.
+ * <p>
+ * A cold order keeps the id stored at the end of its line, so ids survive the file being rewritten and
+ * reopened. A file written before ids were stored must be given its ids first, with
+ * {@link TextFile#copyWithIds(String)}, so that opening it reads no more than the end lines of its segments.
+ * Deleting an order only marks it.
+ */
+public class OrderHistory {
+    /** The default target size of a segment in bytes. */
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    /** The default maximum number of parsed segments kept in memory. */
+    public static final int DEFAULT_CACHE_SIZE = 8;
+    /** The size of the buffer used to probe and scan the file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** The number of bytes read from the end of a line to find its date and id. */
+    private static final int TAIL_SIZE = 40;
+
+    /** The name of the orders file. */
+    private String name;
+    /** The catalog used to resolve product names. */
+    private ProductCatalog products;
+    /** The first day of the hot orders. */
+    private LocalDate cutoff;
+    /** The target size of a segment in bytes. */
+    private int segmentSize;
+    /** The channel the file is probed through. */
+    private FileChannel channel;
+    /** The size of the file. */
+    private long size;
+    /** The offset of the first hot order. */
+    private long hotStart;
+    /** The cold segments, in file order. */
+    private List<Segment> segments = new ArrayList<>();
+    /** The number of cold orders, or -1 until counted along with the segment offsets. */
+    private int count = -1;
+    /** The parsed segments, least recently used first. */
+    private LinkedHashMap<Segment, OrderTable> cache;
+    /** The buffer used to probe and scan the file. */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Opens the history of an orders file with the default segment and cache sizes.
+     * @param name     the name of the orders file
+     * @param products the catalog used to resolve product names
+     * @param cutoff   the first day of the hot orders
+     */
+    public OrderHistory(String name, ProductCatalog products, LocalDate cutoff) {
+        this(name, products, cutoff, DEFAULT_SEGMENT_SIZE, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Opens the history of an orders file.
+     * @param name        the name of the orders file
+     * @param products    the catalog used to resolve product names
+     * @param cutoff      the first day of the hot orders
+     * @param segmentSize the target size of a segment in bytes
+     * @param cacheSize   the maximum number of parsed segments kept in memory
+     * @throws IllegalArgumentException if the file is not in date order or its cold orders do not store ids
+     */
+    public OrderHistory(String name, ProductCatalog products, LocalDate cutoff, int segmentSize, int cacheSize) {
+        this.name = name;
+        this.products = products;
+        this.cutoff = cutoff;
+        this.segmentSize = segmentSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Segment, OrderTable> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        open();
+    }
+
+    /**
+     * Parses the hot orders, those from the cutoff on.
+     * @return an {@link OrderArena} holding the hot orders
+     */
+    public synchronized OrderArena readHotOrders() {
+        return new MappedOrdersFile(name).readOrders(products, hotStart, size);
+    }
+
+    /**
+     * Returns the first day of the hot orders.
+     * @return the cutoff date
+     */
+    public LocalDate getCutoff() {
+        return cutoff;
+    }
+
+    /**
+     * Returns the number of cold segments.
+     * @return the segment count
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the number of parsed segments held in memory.
+     * @return the cached segment count
+     */
+    public synchronized int getCachedSegmentCount() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of cold orders. The orders of segments that were never parsed are counted
+     * by scanning their lines, once per segment.
+     * @return the cold order count
+     */
+    public synchronized int size() {
+        countOrders();
+        return count;
+    }
+
+    /**
+     * Returns the id of the last cold line, deleted or not, which every hot order's id exceeds.
+     * @return the highest cold order id, or 0 if there are no cold orders
+     */
+    public synchronized long getLastId() {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).lastId;
+    }
+
+    /**
+     * Returns a cold order, parsing its segment if needed.
+     * @param index the position of the order among the cold orders
+     * @return the order
+     * @throws IndexOutOfBoundsException if there is no cold order at that position
+     */
+    public synchronized Order get(int index) {
+        Segment segment = segments.get(locate(index));
+        return load(segment).get(index - segment.offset);
+    }
+
+    /**
+     * Returns the id of a cold order, parsing its segment if needed.
+     * @param index the position of the order among the cold orders
+     * @return the order id
+     * @throws IndexOutOfBoundsException if there is no cold order at that position
+     */
+    public synchronized long getId(int index) {
+        Segment segment = segments.get(locate(index));
+        return load(segment).getId(index - segment.offset);
+    }
+
+    /**
+     * Returns a page of consecutive cold orders with their ids, parsing only the segments the page covers.
+     * @param from  the position of the first order of the page among the cold orders
+     * @param count the maximum number of orders on the page
+     * @return a map of ids to orders, in list order; empty if {@code from} is past the cold orders
+     */
+    public synchronized Map<Long, Order> page(int from, int count) {
+        Map<Long, Order> page = new LinkedHashMap<>();
+        if (from < 0 || from >= size()) return page;
+        for (int i = locate(from); i < segments.size() && page.size() < count; i++) {
+            Segment segment = segments.get(i);
+            page.putAll(load(segment).page(Math.max(0, from - segment.offset), count - page.size()));
+        }
+        return page;
+    }
+
+    /**
+     * Passes the parsed orders of every cold segment, in file order, to an action, so that the cold orders
+     * can be scanned without locating each one. Only the segments that are cached stay in memory. The
+     * action must not change the orders.
+     * @param action the action to run on the orders of each segment
+     */
+    public synchronized void forEachSegment(Consumer<OrderTable> action) {
+        for (Segment segment : segments) {
+            action.accept(load(segment));
+        }
+    }
+
+    /**
+     * Returns the position of the cold order with an id, parsing the segment whose id range holds it.
+     * @param id the order id
+     * @return the position of the order among the cold orders, or -1 if there is no such order
+     */
+    public synchronized int positionOf(long id) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segments.get(middle).lastId < id) low = middle + 1;
+            else high = middle;
+        }
+        if (segments.isEmpty() || id > segments.get(low).lastId) return -1;
+        Segment segment = segments.get(low);
+        if (id < segment.firstId || segment.deleted.get((int) (id - segment.firstId))) return -1;
+        countOrders();
+        int index = load(segment).positionOf(id);
+        return index < 0 ? -1 : segment.offset + index;
+    }
+
+    /**
+     * Deletes a cold order, parsing its segment if needed. The deletion is kept in memory and replayed
+     * whenever the segment is parsed again; it reaches the file when the orders are next written out.
+     * @param index the position of the order among the cold orders
+     * @return the deleted order
+     * @throws IndexOutOfBoundsException if there is no cold order at that position
+     */
+    public synchronized Order remove(int index) {
+        int position = locate(index);
+        Segment segment = segments.get(position);
+        int local = index - segment.offset;
+        OrderTable orders = load(segment);
+        segment.deleted.set((int) (orders.getId(local) - segment.firstId));
+        Order order = orders.remove(local);
+        count--;
+        for (int i = position + 1; i < segments.size(); i++) {
+            segments.get(i).offset--;
+        }
+        segment.totals.remove(order);
+        return order;
+    }
+
+    /**
+     * Returns the daily totals of the cold segments that hold orders in a date range, parsing the
+     * segments whose totals are not known yet.
+     * @param from the first day of the range, or {@code null} for no lower bound
+     * @param to   the last day of the range, or {@code null} for no upper bound
+     * @return the totals of each overlapping segment, in file order
+     */
+    public synchronized List<DateIndex> getDateIndexes(LocalDate from, LocalDate to) {
+        List<DateIndex> indexes = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (from != null && segment.lastDay.isBefore(from)) continue;
+            if (to != null && segment.firstDay.isAfter(to)) continue;
+            if (segment.totals == null) load(segment);
+            indexes.add(segment.totals);
+        }
+        return indexes;
+    }
+
+    /**
+     * Captures the cold lines and their deletions as they are now, so that another thread can write them
+     * out while orders keep being deleted. Costs a copy of the deletion bits; nothing is read or parsed.
+     * @return the cold lines, without the orders deleted so far
+     */
+    public synchronized ColdLines snapshot() {
+        List<Segment> copies = new ArrayList<>();
+        for (Segment segment : segments) {
+            Segment copy = new Segment(segment.start, segment.end, segment.firstDay, segment.lastDay);
+            copy.firstId = segment.firstId;
+            copy.lastId = segment.lastId;
+            copy.deleted = (BitSet) segment.deleted.clone();
+            copies.add(copy);
+        }
+        return new ColdLines(name, copies);
+    }
+
+    /**
+     * Indexes the file again after it was rewritten with the same cold orders, minus the deleted ones,
+     * followed by the hot orders. Forgets the parsed segments and the deletions, which the new file holds;
+     * the orders keep their ids.
+     */
+    public synchronized void reopen() {
+        close();
+        segments.clear();
+        cache.clear();
+        count = -1;
+        open();
+    }
+
+    /**
+     * Indexes the file again after the cold lines of a {@link #snapshot()} were written to it, followed by
+     * the hot orders. Orders deleted since the snapshot are still in the new file, so they are marked
+     * deleted again; the orders keep their ids.
+     * @param written the snapshot the new file was written from
+     */
+    public synchronized void reopen(ColdLines written) {
+        List<Long> deletedSince = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            BitSet bits = (BitSet) segment.deleted.clone();
+            bits.andNot(written.segments.get(i).deleted);
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                deletedSince.add(segment.firstId + bit);
+            }
+        }
+        reopen();
+        for (long id : deletedSince) {
+            for (Segment segment : segments) {
+                if (id > segment.lastId) continue;
+                if (id >= segment.firstId) segment.deleted.set((int) (id - segment.firstId));
+                break;
+            }
+        }
+    }
+
+    /** Closes the file. */
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Opens the file, finds the first hot order and cuts the cold lines into segments, reading the
+     * dates and ids of their end lines.
+     * @throws IllegalArgumentException if the file is not in date order or its cold orders do not store ids
+     */
+    private void open() {
+        try {
+            channel = FileChannel.open(Path.of(name), StandardOpenOption.READ);
+            size = channel.size();
+            hotStart = findCutoff();
+            long start = 0;
+            LocalDate previous = LocalDate.MIN;
+            long previousId = 0;
+            while (start < hotStart) {
+                long end = start + segmentSize >= hotStart ? hotStart : lineEnd(start + segmentSize - 1) + 1;
+                long lastLine = lineStart(end - 1);
+                LocalDate first = dateOfLine(start);
+                LocalDate last = dateOfLine(lastLine);
+                if (first == null) first = previous;
+                if (last == null) last = first;
+                if (first.isBefore(previous) || last.isBefore(first))
+                    throw new IllegalArgumentException(name + " is not in date order");
+                Segment segment = new Segment(start, end, first, last);
+                segment.firstId = idOfLine(start);
+                segment.lastId = idOfLine(lastLine);
+                if (segment.firstId == 0 || segment.lastId == 0)
+                    throw new IllegalArgumentException(name + " holds orders without ids");
+                if (segment.firstId <= previousId || segment.lastId < segment.firstId)
+                    throw new IllegalArgumentException(name + " is not in id order");
+                segments.add(segment);
+                previous = last;
+                previousId = segment.lastId;
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Binary-searches the file for the first line dated on or after the cutoff.
+     * @return the offset of that line, or the file size if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private long findCutoff() throws IOException {
+        long lo = 0;
+        long hi = size;
+        while (lo < hi) {
+            long start = lineStart((lo + hi) >>> 1);
+            LocalDate date = dateOfLine(start);
+            if (date == null || date.isBefore(cutoff)) lo = lineEnd(start) + 1;
+            else hi = start;
+        }
+        return Math.min(lo, size);
+    }
+
+    /**
+     * Counts the cold orders and sets the offset of every segment, unless they are known already. Deletions
+     * keep both up to date from then on, and reopening the file forgets them.
+     */
+    private void countOrders() {
+        if (count >= 0) return;
+        int offset = 0;
+        for (Segment segment : segments) {
+            segment.offset = offset;
+            offset += count(segment) - segment.deleted.cardinality();
+        }
+        count = offset;
+    }
+
+    /**
+     * Finds the segment holding a cold order by binary search over the segment offsets.
+     * @param index the position of the order among the cold orders
+     * @return the position of the segment in {@link #segments}; its {@code offset} is the position of its first order
+     * @throws IndexOutOfBoundsException if there is no cold order at that position
+     */
+    private int locate(int index) {
+        countOrders();
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).offset <= index) low = middle;
+            else high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the parsed orders of a segment, parsing it and replaying its deletions if it is not cached.
+     * @param segment the segment
+     * @return the orders of the segment, with their ids
+     */
+    private OrderTable load(Segment segment) {
+        OrderTable orders = cache.get(segment);
+        if (orders != null) return orders;
+        OrderArena lines = new MappedOrdersFile(name).readOrders(products, segment.start, segment.end);
+        segment.lines = lines.size();
+        orders = new OrderTable(lines, segment.firstId);
+        for (int i = segment.deleted.nextSetBit(0); i >= 0; i = segment.deleted.nextSetBit(i + 1)) {
+            orders.removeById(segment.firstId + i);
+        }
+        if (segment.totals == null) {
+            segment.totals = new DateIndex(products.size());
+            for (Order o : orders) {
+                segment.totals.add(o);
+            }
+        }
+        cache.put(segment, orders);
+        return orders;
+    }
+
+    /**
+     * Returns the number of lines in a segment, deleted orders included, scanning them if it was never parsed.
+     * @param segment the segment
+     * @return the line count
+     */
+    private int count(Segment segment) {
+        if (segment.lines >= 0) return segment.lines;
+        try {
+            int lines = 0;
+            byte last = '\n';
+            long position = segment.start;
+            while (position < segment.end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), segment.end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n' && last != '\n') lines++;
+                    last = b;
+                }
+                position += read;
+            }
+            if (last != '\n') lines++;
+            segment.lines = lines;
+            return lines;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the start of the line holding a byte.
+     * @param position the offset of the byte
+     * @return the offset of the first byte of its line
+     * @throws IOException if the file cannot be read
+     */
+    private long lineStart(long position) throws IOException {
+        while (position > 0) {
+            long from = Math.max(0, position - buffer.capacity());
+            buffer.clear();
+            buffer.limit((int) (position - from));
+            int read = channel.read(buffer, from);
+            for (int i = read - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') return from + i + 1;
+            }
+            position = from;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the end of the line holding a byte.
+     * @param position the offset of the byte
+     * @return the offset of the newline ending its line, or the file size for an unterminated last line
+     * @throws IOException if the file cannot be read
+     */
+    private long lineEnd(long position) throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return position + i;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the {@code yyyy-MM-dd} date near the end of a line, before its id if it has one.
+     * @param start the offset of the first byte of the line
+     * @return the date, or {@code null} if the line is too short to hold one
+     * @throws IOException if the file cannot be read
+     */
+    private LocalDate dateOfLine(long start) throws IOException {
+        String tail = tailOfLine(start);
+        int comma = tail.lastIndexOf(',');
+        if (!isDate(tail, comma + 1, tail.length())) {
+            int id = comma;
+            comma = tail.lastIndexOf(',', id - 1);
+            if (id < 0 || !isDate(tail, comma + 1, id)) return null;
+            return LocalDate.parse(tail.substring(comma + 1, id));
+        }
+        return LocalDate.parse(tail.substring(comma + 1));
+    }
+
+    /**
+     * Reads the id at the end of a line.
+     * @param start the offset of the first byte of the line
+     * @return the id, or 0 if the line ends with its date, as lines written before ids were stored do
+     * @throws IOException if the file cannot be read
+     */
+    private long idOfLine(long start) throws IOException {
+        String tail = tailOfLine(start);
+        int comma = tail.lastIndexOf(',');
+        if (comma < 0 || isDate(tail, comma + 1, tail.length())) return 0;
+        try {
+            return Long.parseLong(tail.substring(comma + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed order id in " + name + ": " + tail);
+        }
+    }
+
+    /**
+     * Reads the last bytes of a line, enough to hold its value, date and id fields.
+     * @param start the offset of the first byte of the line
+     * @return the end of the line, without its terminator
+     * @throws IOException if the file cannot be read
+     */
+    private String tailOfLine(long start) throws IOException {
+        long end = lineEnd(start);
+        byte[] bytes = new byte[TAIL_SIZE];
+        int length = (int) Math.min(bytes.length, end - start);
+        channel.read(ByteBuffer.wrap(bytes, 0, length), end - length);
+        if (length > 0 && bytes[length - 1] == '\r') length--;
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns whether a range of text has the {@code yyyy-MM-dd} shape of a date.
+     * @param text  the text
+     * @param start the offset of the range
+     * @param end   the offset just past the range
+     * @return {@code true} if the range is ten characters long with dashes in the date positions
+     */
+    private static boolean isDate(String text, int start, int end) {
+        return end - start == 10 && text.charAt(start + 4) == '-' && text.charAt(start + 7) == '-';
+    }
+
+    /**
+     * The cold lines of an orders file as of a {@link #snapshot()}, which can be copied into a new orders
+     * file without parsing them, e.g. when the file is rewritten in the background.
+     */
+    public static class ColdLines {
+        /** The name of the orders file. */
+        private String name;
+        /** The cold segments, with their deletions as of the snapshot. */
+        private List<Segment> segments;
+
+        /**
+         * Creates new {@code ColdLines}.
+         * @param name     the name of the orders file
+         * @param segments the cold segments, with their deletions as of the snapshot
+         */
+        ColdLines(String name, List<Segment> segments) {
+            this.name = name;
+            this.segments = segments;
+        }
+
+        /**
+         * Writes the cold lines that were not deleted to a new file, one segment in memory at a time, with
+         * their ids, so the file reads back under the same ids.
+         * @param target the name of the file to write, which is created or truncated
+         */
+        public void copyTo(String target) {
+            try (FileChannel in = FileChannel.open(Path.of(name), StandardOpenOption.READ);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(target)), BUFFER_SIZE)) {
+                for (Segment segment : segments) {
+                    ByteBuffer bytes = ByteBuffer.allocate((int) (segment.end - segment.start));
+                    while (bytes.hasRemaining()) {
+                        if (in.read(bytes, segment.start + bytes.position()) <= 0) break;
+                    }
+                    TextFile.copyLines(bytes.array(), bytes.position(), segment.firstId - 1,
+                            id -> !segment.deleted.get((int) (id - segment.firstId)), out);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /** A newline-aligned byte range of cold orders. */
+    private static class Segment {
+        /** The offset of the first line. */
+        private long start;
+        /** The offset just past the last line. */
+        private long end;
+        /** The date of the first order. */
+        private LocalDate firstDay;
+        /** The date of the last order. */
+        private LocalDate lastDay;
+        /** The number of lines, deleted orders included, or -1 until counted. */
+        private int lines = -1;
+        /** The position of the first order among the cold orders, once they are counted. */
+        private int offset;
+        /** The id of the first order. */
+        private long firstId;
+        /** The id of the last order. */
+        private long lastId;
+        /** The ids of the deleted orders, relative to {@link #firstId}. */
+        private BitSet deleted = new BitSet();
+        /** The daily totals, or {@code null} until the segment is first parsed. */
+        private DateIndex totals;
+
+        /**
+         * Creates a new {@code Segment}.
+         * @param start    the offset of the first line
+         * @param end      the offset just past the last line
+         * @param firstDay the date of the first order
+         * @param lastDay  the date of the last order
+         */
+        Segment(long start, long end, LocalDate firstDay, LocalDate lastDay) {
+            this.start = start;
+            this.end = end;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+        }
+    }
+}
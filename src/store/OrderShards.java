@@ -0,0 +1,148 @@
+package store;
+
+import file.MappedOrdersFile;
+import models.OrderArena;
+import models.ProductCatalog;
+import reports.ProductRanking;
+import reports.SalesAggregates;
+import utils.ThreadPools;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Read-only order files loaded as named shards, e.g. one per location or per month, all in the orders
+ * file format and over the same menu. The shards are parsed and aggregated in parallel, one per thread,
+ * and only their {@link SalesAggregates} are kept, so a shard costs memory in proportion to its days and
+ * products rather than its orders. Reports over several shards merge the per-shard daily totals and
+ * per-product scores, so their cost depends on the shards' days and products, not on their orders.
+ */
+public class OrderShards {
+    /** The catalog the shards' products belong to. */
+    private ProductCatalog products;
+    /** The shards by name, in load order. */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /**
+     * Creates a new, empty {@code OrderShards}.
+     * @param products the catalog the shards' products belong to
+     */
+    public OrderShards(ProductCatalog products) {
+        this.products = products;
+    }
+
+    /**
+     * Loads order files as shards in parallel, replacing any shards of the same names.
+     * @param files the names of the order files by shard name
+     */
+    public synchronized void load(Map<String, String> files) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors())),
+                ThreadPools.daemonThreads("shard-loader"));
+        try {
+            Map<String, Future<Shard>> loading = new LinkedHashMap<>();
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                loading.put(file.getKey(), executor.submit(() -> {
+                    OrderArena orders = new MappedOrdersFile(file.getValue()).readOrders(products);
+                    return new Shard(orders.size(), new SalesAggregates(products, orders));
+                }));
+            }
+            for (Map.Entry<String, Future<Shard>> shard : loading.entrySet()) {
+                shards.put(shard.getKey(), shard.getValue().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the names of the shards.
+     * @return the shard names, in load order
+     */
+    public synchronized Set<String> getNames() {
+        return new LinkedHashSet<>(shards.keySet());
+    }
+
+    /**
+     * Returns the number of orders in a shard.
+     * @param name the shard name
+     * @return the order count
+     * @throws IllegalArgumentException if there is no such shard
+     */
+    public synchronized int getOrderCount(String name) {
+        return shard(name).orderCount;
+    }
+
+    /**
+     * Adds the daily totals of some shards over a date range to a sales report.
+     * @param sales the sales report to add to, mapping dates to total sales values
+     * @param names the names of the shards to add
+     * @param from  the first day of the range, or {@code null} for no lower bound
+     * @param to    the last day of the range, or {@code null} for no upper bound
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    public synchronized void addSalesReport(Map<LocalDate, Integer> sales, Collection<String> names,
+                                            LocalDate from, LocalDate to) {
+        for (String name : names) {
+            shard(name).aggregates.getSalesReport(from, to, List.of())
+                    .forEach((date, value) -> sales.merge(date, value, Integer::sum));
+        }
+    }
+
+    /**
+     * Adds the units sold or revenue per product of some shards over a date range to an array of scores.
+     * @param scores  the scores to add to, indexed by product id and sized to the catalog
+     * @param names   the names of the shards to add
+     * @param ranking the measure to add
+     * @param from    the first day of the range, or {@code null} for no lower bound
+     * @param to      the last day of the range, or {@code null} for no upper bound
+     * @throws IllegalArgumentException if a shard does not exist
+     */
+    public synchronized void addProductScores(long[] scores, Collection<String> names, ProductRanking ranking,
+                                              LocalDate from, LocalDate to) {
+        for (String name : names) {
+            long[] partial = shard(name).aggregates.getProductScores(ranking, from, to, List.of());
+            for (int id = 0; id < partial.length; id++) {
+                scores[id] += partial[id];
+            }
+        }
+    }
+
+    /**
+     * Returns a shard.
+     * @param name the shard name
+     * @return the shard
+     * @throws IllegalArgumentException if there is no such shard
+     */
+    private Shard shard(String name) {
+        Shard shard = shards.get(name);
+        if (shard == null) throw new IllegalArgumentException("Unknown shard: " + name);
+        return shard;
+    }
+
+    /** The aggregates of one loaded order file. */
+    private static class Shard {
+        /** The number of orders in the file. */
+        private int orderCount;
+        /** The sales aggregates of the orders. */
+        private SalesAggregates aggregates;
+
+        /**
+         * Creates a new {@code Shard}.
+         * @param orderCount the number of orders in the file
+         * @param aggregates the sales aggregates of the orders
+         */
+        Shard(int orderCount, SalesAggregates aggregates) {
+            this.orderCount = orderCount;
+            this.aggregates = aggregates;
+        }
+    }
+}
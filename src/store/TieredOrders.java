@@ -0,0 +1,124 @@
+package store;
+
+import models.Order;
+import models.OrderTable;
+import models.SegmentedOrders;
+import java.util.AbstractList;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The order list of a lazily loaded orders file: the cold orders of an {@link OrderHistory}, paged in on
+ * demand, followed by the hot orders held in memory. New orders are appended to the hot orders, so
+ * adding one never parses the history; reading or deleting past the hot orders does.
+ * <p>
+ * Cold orders keep their {@link OrderHistory} ids and hot orders their {@link OrderTable} ids, which follow
+ * the last cold id. Both are stored with the orders, so they stay put when the history is reopened over a
+ * rewritten file and when the orders are loaded again.
+ * <p>
+ * Scans should go through {@link #forEachSegment(Consumer)} or {@link #page(int, int)}, which walk the history a
+ * segment at a time; {@link #get(int)} finds the segment of each position by binary search.
+ */
+public class TieredOrders extends AbstractList<Order> implements SegmentedOrders {
+    /** The cold orders. */
+    private OrderHistory history;
+    /** The hot orders. */
+    private OrderTable hot;
+
+    /**
+     * Creates a new {@code TieredOrders}.
+     * @param history the cold orders
+     * @param hot     the hot orders, which follow the cold ones, with ids above {@link OrderHistory#getLastId()}
+     */
+    public TieredOrders(OrderHistory history, OrderTable hot) {
+        this.history = history;
+        this.hot = hot;
+    }
+
+    /**
+     * Returns whether the order at a position is a cold one.
+     * @param index the position of the order
+     * @return {@code true} if the order is held by the history
+     */
+    public boolean isCold(int index) {
+        return index < history.size();
+    }
+
+    /**
+     * Returns the hot orders.
+     * @return the in-memory orders
+     */
+    public OrderTable getHot() {
+        return hot;
+    }
+
+    @Override
+    public Order get(int index) {
+        int cold = history.size();
+        return index < cold ? history.get(index) : hot.get(index - cold);
+    }
+
+    @Override
+    public int size() {
+        return history.size() + hot.size();
+    }
+
+    /**
+     * Appends an order to the hot orders.
+     * @param order the order to append
+     * @return {@code true}
+     */
+    @Override
+    public boolean add(Order order) {
+        hot.add(order);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public Order remove(int index) {
+        int cold = history.size();
+        modCount++;
+        return index < cold ? history.remove(index) : hot.remove(index - cold);
+    }
+
+    @Override
+    public long getId(int index) {
+        int cold = history.size();
+        return index < cold ? history.getId(index) : hot.getId(index - cold);
+    }
+
+    @Override
+    public int positionOf(long id) {
+        if (id <= history.getLastId()) return history.positionOf(id);
+        int index = hot.positionOf(id);
+        return index < 0 ? -1 : history.size() + index;
+    }
+
+    @Override
+    public long getNextId() {
+        return hot.getNextId();
+    }
+
+    @Override
+    public void reserveIds(long id) {
+        hot.reserveIds(id);
+    }
+
+    @Override
+    public Map<Long, Order> page(int from, int count) {
+        Map<Long, Order> page = history.page(Math.max(0, from), count);
+        if (page.size() < count) page.putAll(hot.page(Math.max(0, from - history.size()), count - page.size()));
+        return page;
+    }
+
+    /**
+     * Passes the segments of the history, then the hot orders, to an action.
+     * @param action the action to run on each segment
+     */
+    @Override
+    public void forEachSegment(Consumer<OrderTable> action) {
+        history.forEachSegment(action);
+        action.accept(hot);
+    }
+}
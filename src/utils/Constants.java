@@ -12,6 +12,7 @@ public class Constants {
             "Delete order",
             "Sales Report",
             "Best sellers",
+            "Basket analytics",
             "Press 0 to exit"
     };
 
@@ -21,8 +22,29 @@ public class Constants {
     public static final String DELETE_ORDER_HEADER = "Choose an order to delete...";
     public static final String DELETE_ORDER_FOOTER = "Press 0 to finish deleting orders...";
 
+    public static final int ORDERS_PAGE_SIZE = 20;
+    public static final String NEXT_PAGE = "n";
+    public static final String PREVIOUS_PAGE = "p";
+    public static final String ORDERS_PAGE_FOOTER = "Enter an order id to delete it, " + NEXT_PAGE + " for the next page or "
+            + PREVIOUS_PAGE + " for the previous one...";
+
     public static final String SALES_REPORT_HEADER = "Sales Report";
 
+    public static final int JOURNAL_COMPACTION_MIN_SIZE = 64 * 1024;
+
+    public static final int REPORT_CACHE_SIZE = 64;
+
+    public static final int KITCHEN_QUEUE_CAPACITY = 1024;
+    public static final int KITCHEN_AGING_SECONDS = 120;
+    public static final int KITCHEN_PREP_MILLIS = 50;
+
+    public static final int EXPORT_PAGE_SIZE = 4096;
+
+    public static final String LOCAL_SHARD = "local";
+
     public static final int BEST_SELLERS_LIMIT = 5;
     public static final String BEST_SELLERS_HEADER = "Best Sellers (Top " + BEST_SELLERS_LIMIT + ")";
+
+    public static final String BASKET_ANALYTICS_HEADER = "Basket Analytics";
+    public static final int BOUGHT_TOGETHER_LIMIT = 3;
 }
@@ -0,0 +1,39 @@
+package utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A utility class that creates the executors used by the concurrent services. */
+public class ThreadPools {
+    private ThreadPools() {}
+
+    /**
+     * Returns an executor that runs every task on its own thread. On a JDK with virtual threads
+     * the tasks run on virtual threads; otherwise they run on a cached pool of daemon threads.
+     * @param name the prefix of the thread names
+     * @return a new executor
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads(name));
+        }
+    }
+
+    /**
+     * Returns a factory of named daemon threads.
+     * @param name the prefix of the thread names
+     * @return a new thread factory
+     */
+    public static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
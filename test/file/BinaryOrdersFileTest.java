@@ -0,0 +1,60 @@
+package file;
+
+import models.OrderArena;
+import models.OrderTable;
+import models.ProductCatalog;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Checks that orders converted to the binary format keep their ids, including the gaps left by deleted
+ * orders, and that lines written before ids were stored are numbered by position as when read as text.
+ */
+public class BinaryOrdersFileTest {
+    /** The menu the orders are placed from. */
+    private static final List<String> MENU = List.of(
+            "food,soup,10,starter,100 5 10 2",
+            "food,steak,160,main_course,600 50 5 30",
+            "drink,beer,15,false,330 500");
+    /** Orders without ids followed by orders with ids, some deleted. */
+    private static final List<String> ORDERS = List.of(
+            "soup,2023-10-01", "steak beer,2023-10-02",
+            "beer,15,2023-10-03,5", "soup soup,20,2023-10-04,9", "steak,160,2023-10-05,10");
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("binary-orders");
+        TextFile menu = new TextFile(Files.write(directory.resolve("menu.txt"), MENU).toString());
+        menu.open();
+        ProductCatalog products = menu.readMenu();
+        TextFile text = new TextFile(Files.write(directory.resolve("orders.txt"), ORDERS).toString());
+        text.open();
+        OrderTable expected = new OrderTable(text.readOrders(products), 1);
+
+        BinaryOrdersFile binary = new BinaryOrdersFile(directory.resolve("orders.bin").toString());
+        binary.saveOrders(expected, products);
+        OrderArena read = binary.readOrders(products);
+        check(read.size() == expected.size(), "read " + read.size() + " orders, not " + expected.size());
+        for (int i = 0; i < read.size(); i++) {
+            check(read.getOrderId(i) == expected.getId(i), "order " + i + " has id " + read.getOrderId(i)
+                    + ", not " + expected.getId(i));
+            check(read.get(i).toString().equals(expected.get(i).toString()), "order " + i + " reads " + read.get(i));
+        }
+        check(new OrderTable(read, 1).getNextId() == 11, "the next id follows the last stored one");
+        System.out.println("BinaryOrdersFileTest passed");
+    }
+
+    /**
+     * Fails the test unless a condition holds.
+     * @param condition the condition
+     * @param message   the failure message
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
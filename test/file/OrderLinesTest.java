@@ -0,0 +1,177 @@
+package file;
+
+import models.Order;
+import models.OrderArena;
+import models.ProductCatalog;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks that every loader of the orders file reads odd but valid lines the same way, without cataloguing
+ * an empty product name, and rejects malformed lines.
+ */
+public class OrderLinesTest {
+    /** The menu the orders are placed from. */
+    private static final List<String> MENU = List.of(
+            "food,soup,10,starter,100 5 10 2",
+            "food,steak,160,main_course,600 50 5 30",
+            "drink,beer,15,false,330 500");
+    /** Valid lines with repeated, leading and trailing spaces, a blank line, CRLF and the legacy formats. */
+    private static final String VALID = "soup  beer,25,2023-10-01\n"
+            + " steak ,160,2023-10-02\n"
+            + "\n"
+            + "soup,2023-10-03\r\n"
+            + "beer soup ,2023-10-04,9\n"
+            + "beer,15,2023-10-05,12";
+    /** The orders the valid lines hold, with their ids. */
+    private static final List<String> EXPECTED = List.of(
+            "1 soup beer; Value: 25RON; Date: 2023-10-01",
+            "2 steak; Value: 160RON; Date: 2023-10-02",
+            "3 soup; Value: 10RON; Date: 2023-10-03",
+            "9 beer soup; Value: 25RON; Date: 2023-10-04",
+            "12 beer; Value: 15RON; Date: 2023-10-05");
+    /** Lines that every loader must reject. */
+    private static final List<String> MALFORMED = List.of(
+            ",,2023-10-01",
+            " ,10,2023-10-01",
+            "soup,,2023-10-01",
+            "soup",
+            "soup,10,2023-13-01",
+            "soup,ten,2023-10-01",
+            "soup,10,2023-10-01,x",
+            "soup,10,2023-10-01,5,6");
+
+    /** The directory holding the files of the check. */
+    private Path directory;
+    /** The catalog the lines are read against. */
+    private ProductCatalog products;
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        OrderLinesTest test = new OrderLinesTest();
+        test.readValidLines();
+        test.rejectMalformedLines();
+        System.out.println("OrderLinesTest passed");
+    }
+
+    /**
+     * Reads the valid lines with every loader.
+     * @throws Exception if a check fails
+     */
+    private void readValidLines() throws Exception {
+        start();
+        Path orders = write("orders.txt", VALID);
+        check(readText(orders).equals(EXPECTED), "TextFile reads " + readText(orders));
+        for (int chunkSize : new int[] {1, 16, MappedOrdersFile.DEFAULT_CHUNK_SIZE}) {
+            List<String> read = format(new MappedOrdersFile(orders.toString(), chunkSize, ForkJoinPool.commonPool())
+                    .readOrders(products));
+            check(read.equals(EXPECTED), "MappedOrdersFile in chunks of " + chunkSize + " reads " + read);
+        }
+        TextFile file = new TextFile(orders.toString());
+        file.open();
+        try (Stream<Order> stream = file.streamOrders(products)) {
+            List<String> streamed = stream.map(Order::toString).collect(Collectors.toList());
+            List<String> expected = new ArrayList<>();
+            EXPECTED.forEach(line -> expected.add(line.substring(line.indexOf(' ') + 1)));
+            check(streamed.equals(expected), "streamed " + streamed);
+        }
+        check(products.size() == MENU.size() && products.get("") == null, "no product named \"\" was catalogued");
+    }
+
+    /**
+     * Reads each malformed line with every loader.
+     * @throws Exception if a check fails
+     */
+    private void rejectMalformedLines() throws Exception {
+        for (String line : MALFORMED) {
+            start();
+            Path orders = write("orders.txt", "soup,10,2023-09-30\n" + line + "\n");
+            check(rejects(() -> readText(orders)), "TextFile accepts " + line);
+            check(rejects(() -> new MappedOrdersFile(orders.toString()).readOrders(products)),
+                    "MappedOrdersFile accepts " + line);
+            check(rejects(() -> new TextFile(null).readOrder(line, products)), "readOrder accepts " + line);
+            check(products.size() == MENU.size(), "reading " + line + " catalogued a product");
+        }
+    }
+
+    /**
+     * Starts a check over a new directory and menu.
+     * @throws Exception if the files cannot be written
+     */
+    private void start() throws Exception {
+        directory = Files.createTempDirectory("order-lines");
+        TextFile menu = new TextFile(write("menu.txt", String.join("\n", MENU)).toString());
+        menu.open();
+        products = menu.readMenu();
+    }
+
+    /**
+     * Writes a file of the current check.
+     * @param name    the name of the file
+     * @param content the content of the file
+     * @return its path
+     * @throws Exception if the file cannot be written
+     */
+    private Path write(String name, String content) throws Exception {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    /**
+     * Reads a file with {@link TextFile#readOrders(ProductCatalog)} and formats the orders.
+     * @param orders the path of the file
+     * @return the formatted orders with their ids
+     */
+    private List<String> readText(Path orders) {
+        TextFile file = new TextFile(orders.toString());
+        file.open();
+        return format(file.readOrders(products));
+    }
+
+    /**
+     * Formats the orders of an arena with their ids.
+     * @param arena the orders
+     * @return one {@code id order} string per order
+     */
+    private static List<String> format(OrderArena arena) {
+        List<String> orders = new ArrayList<>();
+        long previous = 0;
+        for (int i = 0; i < arena.size(); i++) {
+            long id = arena.getOrderId(i) == 0 ? previous + 1 : arena.getOrderId(i);
+            orders.add(id + " " + arena.get(i));
+            previous = id;
+        }
+        return orders;
+    }
+
+    /**
+     * Returns whether an action is rejected with an {@link IllegalArgumentException}.
+     * @param action the action
+     * @return {@code true} if it threw one
+     */
+    private static boolean rejects(Runnable action) {
+        try {
+            action.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Fails the test unless a condition holds.
+     * @param condition the condition
+     * @param message   the failure message
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
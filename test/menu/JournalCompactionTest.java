@@ -0,0 +1,103 @@
+package menu;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import static menu.MenuFixture.check;
+import static menu.MenuFixture.order;
+import static menu.MenuFixture.snapshot;
+import static utils.Constants.JOURNAL_COMPACTION_MIN_SIZE;
+
+/**
+ * Checks that journal compactions, which run in the background while orders keep being added and deleted,
+ * lose no change: after adding and deleting orders concurrently, with and without a hot window, a restart
+ * reads back exactly the orders that were left, under the same ids, and the journal stays below half the
+ * orders file.
+ */
+public class JournalCompactionTest {
+    /** The number of orders in the orders file before the check. */
+    private static final int COLD_ORDERS = 3000;
+    /** The number of orders added by each writer. */
+    private static final int ADDED_ORDERS = 3000;
+    /** The number of threads adding orders. */
+    private static final int WRITERS = 2;
+
+    /** The files of the current check. */
+    private MenuFixture fixture;
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        new JournalCompactionTest().changeWhileCompacting(0);
+        new JournalCompactionTest().changeWhileCompacting(2);
+        System.out.println("JournalCompactionTest passed");
+    }
+
+    /**
+     * Adds orders on several threads while another deletes every third of the old orders and of the
+     * added ones, then restarts.
+     * @param hotDays the hot window, or 0 to load every order
+     * @throws Exception if a check fails
+     */
+    private void changeWhileCompacting(int hotDays) throws Exception {
+        fixture = new MenuFixture("compaction");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < COLD_ORDERS; i++) {
+            lines.add((i % 2 == 0 ? "soup beer" : "steak") + "," + LocalDate.of(2023, 1, 1).plusDays(i / 10));
+        }
+        Files.write(fixture.path("orders.txt"), lines);
+        MenuManager manager = fixture.start(hotDays);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < ADDED_ORDERS; i++) {
+                    long id = manager.addOrder(order(manager, i % 2 == 0 ? "soup" : "beer"));
+                    if (id % 3 == 0) delete(manager, id);
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            for (long id = 3; id <= COLD_ORDERS; id += 3) {
+                delete(manager, id);
+            }
+        }));
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int expected = COLD_ORDERS + WRITERS * ADDED_ORDERS;
+        expected -= expected / 3;
+        check(manager.getOrderCount() == expected, "orders left: " + manager.getOrderCount() + ", not " + expected);
+        Map<Long, String> before = snapshot(manager);
+        long journal = Files.size(fixture.path("orders.journal"));
+        long limit = Math.max(JOURNAL_COMPACTION_MIN_SIZE, Files.size(fixture.path("orders.txt")) / 2);
+        check(journal <= limit + 16 * 1024, "journal compacted in the background, " + journal + " bytes left");
+        manager.saveOrders();
+
+        MenuManager restarted = fixture.start(hotDays);
+        check(snapshot(restarted).equals(before), "a restart reads back the same orders");
+        restarted.compactJournal();
+        check(snapshot(restarted).equals(before), "a compaction keeps the orders");
+        restarted.saveOrders();
+        check(snapshot(fixture.start(hotDays)).equals(before), "a compacted file reads back the same orders");
+    }
+
+    /**
+     * Deletes an order by id, failing the check if there is no such order.
+     * @param manager the manager
+     * @param id      the order id
+     */
+    private static void delete(MenuManager manager, long id) {
+        try {
+            manager.deleteOrderById(id);
+        } catch (Exception e) {
+            throw new AssertionError("could not delete order " + id, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package menu;
+
+import models.Order;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The files and helpers shared by the checks of a {@link MenuManager}: a directory holding a three-product
+ * menu, managers started over it, and the orders they hold.
+ */
+final class MenuFixture {
+    /** The menu the orders are placed from. */
+    static final List<String> MENU = List.of(
+            "food,soup,10,starter,100 5 10 2",
+            "food,steak,160,main_course,600 50 5 30",
+            "drink,beer,15,false,330 500");
+
+    /** The directory holding the files of the check. */
+    private final Path directory;
+
+    /**
+     * Creates a new directory holding {@link #MENU} as {@code menu.txt}.
+     * @param prefix the prefix of the directory name
+     * @throws IOException if the directory or the menu cannot be written
+     */
+    MenuFixture(String prefix) throws IOException {
+        directory = Files.createTempDirectory(prefix);
+        Files.write(path("menu.txt"), MENU);
+    }
+
+    /**
+     * Returns the path of a file of the check.
+     * @param name the name of the file
+     * @return its path
+     */
+    Path path(String name) {
+        return directory.resolve(name);
+    }
+
+    /**
+     * Returns the path of a file of the check as a string.
+     * @param name the name of the file
+     * @return its path
+     */
+    String file(String name) {
+        return path(name).toString();
+    }
+
+    /**
+     * Starts a manager over the menu, orders and journal of the check.
+     * @param hotDays the hot window, or 0 to load every order
+     * @return the manager
+     */
+    MenuManager start(int hotDays) {
+        MenuManager manager = new MenuManager();
+        manager.setHotWindow(hotDays);
+        manager.readInputFiles(file("menu.txt"), file("orders.txt"), file("orders.journal"));
+        return manager;
+    }
+
+    /**
+     * Returns every order of a manager by id.
+     * @param manager the manager
+     * @return the orders, formatted, by id
+     */
+    static Map<Long, String> snapshot(MenuManager manager) {
+        Map<Long, String> orders = new LinkedHashMap<>();
+        manager.getOrderPage(0, Integer.MAX_VALUE).forEach((id, o) -> orders.put(id, o.toString()));
+        return orders;
+    }
+
+    /**
+     * Creates an order dated today.
+     * @param manager the manager whose products are ordered
+     * @param name    the name of its only product
+     * @return the order
+     */
+    static Order order(MenuManager manager, String name) {
+        Order order = new Order(LocalDate.now());
+        order.add(manager.getProducts().get(name));
+        return order;
+    }
+
+    /**
+     * Fails the check unless a condition holds.
+     * @param condition the condition
+     * @param message   the failure message
+     */
+    static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}
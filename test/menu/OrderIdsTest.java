@@ -0,0 +1,116 @@
+package menu;
+
+import exceptions.InvalidOrderIndex;
+import file.MappedOrdersFile;
+import file.OrderJournal;
+import file.TextFile;
+import models.Order;
+import models.OrderTable;
+import models.ProductCatalog;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import static menu.MenuFixture.check;
+import static menu.MenuFixture.order;
+import static menu.MenuFixture.snapshot;
+
+/**
+ * Checks that order ids survive journal compaction and restarts, with and without a hot window, that
+ * deleting by id after a compaction deletes the order that had that id, and that an orders file written
+ * before ids were stored is given its ids on the first load without losing its journal.
+ */
+public class OrderIdsTest {
+    /** The files of the current check. */
+    private MenuFixture fixture;
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        new OrderIdsTest().deleteByIdAcrossCompaction(0);
+        new OrderIdsTest().deleteByIdAcrossCompaction(2);
+        new OrderIdsTest().storeIdsOnFirstLoad(0);
+        new OrderIdsTest().storeIdsOnFirstLoad(2);
+        System.out.println("OrderIdsTest passed");
+    }
+
+    /**
+     * Deletes an order, compacts the journal, then deletes another order by id and restarts.
+     * @param hotDays the hot window, or 0 to load every order
+     * @throws Exception if a check fails
+     */
+    private void deleteByIdAcrossCompaction(int hotDays) throws Exception {
+        fixture = new MenuFixture("order-ids");
+        String today = LocalDate.now().toString();
+        Files.write(fixture.path("orders.txt"), List.of(
+                "soup,2023-10-01", "steak,2023-10-01", "beer,2023-10-02", "soup steak,2023-10-03",
+                "soup beer," + today, "steak beer," + today));
+
+        MenuManager manager = fixture.start(hotDays);
+        Map<Long, String> before = snapshot(manager);
+        check(List.copyOf(before.keySet()).equals(List.of(1L, 2L, 3L, 4L, 5L, 6L)),
+                "ids are line numbers: " + before.keySet());
+        String fourth = before.get(4L);
+
+        manager.deleteOrderById(2);
+        manager.compactJournal();
+        Order deleted = manager.deleteOrderById(4);
+        check(deleted.toString().equals(fourth), "id 4 still names " + fourth + " but deleted " + deleted);
+        long added = manager.addOrder(order(manager, "steak"));
+        check(added == 7, "new order gets the next id, got " + added);
+        manager.deleteOrderById(added);
+        manager.compactJournal();
+        Map<Long, String> after = snapshot(manager);
+        manager.saveOrders();
+
+        MenuManager restarted = fixture.start(hotDays);
+        check(snapshot(restarted).equals(after), "ids survive a restart: " + snapshot(restarted) + " vs " + after);
+        long next = restarted.addOrder(order(restarted, "soup"));
+        check(next == 8, "deleted ids are not handed out again, got " + next);
+        try {
+            restarted.deleteOrderById(4);
+            check(false, "a deleted id is gone");
+        } catch (InvalidOrderIndex expected) {
+            // the order with id 4 was deleted before the restart
+        }
+        restarted.saveOrders();
+    }
+
+    /**
+     * Journals changes to a file without ids, as an older version left them, then loads it and restarts.
+     * @param hotDays the hot window, or 0 to load every order
+     * @throws Exception if a check fails
+     */
+    private void storeIdsOnFirstLoad(int hotDays) throws Exception {
+        fixture = new MenuFixture("order-ids");
+        String today = LocalDate.now().toString();
+        List<String> lines = List.of("soup,2023-10-01", "steak,2023-10-01", "beer,2023-10-02", "soup beer," + today);
+        Files.write(fixture.path("orders.txt"), List.of(lines.get(0), "", lines.get(1), lines.get(2), lines.get(3)));
+        TextFile menu = new TextFile(fixture.file("menu.txt"));
+        menu.open();
+        ProductCatalog products = menu.readMenu();
+        OrderJournal journal = new OrderJournal(fixture.file("orders.journal"), fixture.file("orders.txt"));
+        journal.recover();
+        journal.replay(new OrderTable(new MappedOrdersFile(fixture.file("orders.txt")).readOrders(products), 1),
+                products);
+        journal.appendRemove(2);
+        Order added = new Order(LocalDate.now());
+        added.add(products.get("steak"));
+        journal.appendAdd(5, added);
+        journal.close();
+
+        MenuManager manager = fixture.start(hotDays);
+        List<String> stored = Files.readAllLines(fixture.path("orders.txt"));
+        check(stored.size() == lines.size(), "blank lines dropped: " + stored);
+        for (int i = 0; i < lines.size(); i++) {
+            check(stored.get(i).equals(lines.get(i) + "," + (i + 1)), "line " + (i + 1) + " stores its id: " + stored);
+        }
+        Map<Long, String> expected = snapshot(manager);
+        check(List.copyOf(expected.keySet()).equals(List.of(1L, 3L, 4L, 5L)), "journal replayed: " + expected);
+        manager.saveOrders();
+        check(snapshot(fixture.start(hotDays)).equals(expected), "ids survive a restart");
+    }
+}
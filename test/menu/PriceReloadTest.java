@@ -0,0 +1,63 @@
+package menu;
+
+import reports.ProductRanking;
+import reports.ReportMode;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import static menu.MenuFixture.MENU;
+import static menu.MenuFixture.check;
+import static menu.MenuFixture.order;
+
+/**
+ * Checks that product revenue keeps the prices the orders were charged when the menu is reloaded with
+ * new prices, so removing an order placed before the reload takes back what it added in every report mode.
+ */
+public class PriceReloadTest {
+    /** The files of the current check. */
+    private MenuFixture fixture;
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        new PriceReloadTest().removeAfterReload(0);
+        new PriceReloadTest().removeAfterReload(2);
+        System.out.println("PriceReloadTest passed");
+    }
+
+    /**
+     * Places soup at 10, reloads the menu with soup at 100, places soup again and then deletes orders
+     * placed before the reload.
+     * @param hotDays the hot window, or 0 to load every order
+     * @throws Exception if a check fails
+     */
+    private void removeAfterReload(int hotDays) throws Exception {
+        fixture = new MenuFixture("price-reload");
+        Files.write(fixture.path("orders.txt"), List.of(
+                "soup,2023-10-01", "soup beer,2023-10-02", "steak,2023-10-03"));
+        MenuManager manager = fixture.start(hotDays);
+        manager.setReportCacheSize(0);
+        check(manager.getRevenueByProduct().get("soup") == 20, "soup sold twice at 10");
+
+        long early = manager.addOrder(order(manager, "soup"));
+        Files.write(fixture.path("menu.txt"),
+                List.of(MENU.get(0).replace(",10,", ",100,"), MENU.get(1), MENU.get(2)));
+        manager.reloadMenu();
+        long late = manager.addOrder(order(manager, "soup"));
+        check(manager.getOrderPage(0, Integer.MAX_VALUE).get(late).getValue() == 100, "soup now costs 100");
+
+        check(manager.deleteOrderById(early).getValue() == 10, "the early soup was charged 10");
+        manager.deleteOrderById(1);
+        Map<String, Long> expected = Map.of("soup", 110L, "steak", 160L, "beer", 15L);
+        for (ReportMode mode : ReportMode.values()) {
+            manager.setReportMode(mode);
+            Map<String, Long> revenue = manager.generateBestSellers(10, ProductRanking.REVENUE, null, null);
+            check(revenue.equals(expected), mode + " revenue " + revenue + ", expected " + expected);
+        }
+        check(manager.getRevenueByProduct().equals(expected), "basket revenue " + manager.getRevenueByProduct());
+        manager.saveOrders();
+    }
+}
@@ -0,0 +1,81 @@
+package service;
+
+import menu.MenuManager;
+import models.Order;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checks that orders submitted concurrently through a {@link MenuManager}'s intake service complete with
+ * the ids the manager stored them under, so a client can look up and delete the order it submitted.
+ */
+public class OrderIntakeServiceTest {
+    /** The number of orders submitted. */
+    private static final int ORDERS = 500;
+
+    /**
+     * Runs the checks.
+     * @param args unused
+     * @throws Exception if a check fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("intake");
+        Files.write(directory.resolve("menu.txt"), List.of(
+                "food,soup,10,starter,100 5 10 2",
+                "food,steak,160,main_course,600 50 5 30",
+                "drink,beer,15,false,330 500"));
+        Files.write(directory.resolve("orders.txt"), List.of("soup,2023-10-01", "steak beer,2023-10-01"));
+        MenuManager manager = new MenuManager();
+        manager.readInputFiles(directory.resolve("menu.txt").toString(), directory.resolve("orders.txt").toString(),
+                directory.resolve("orders.journal").toString());
+
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        List<List<String>> baskets = new ArrayList<>();
+        try (OrderIntakeService service = manager.startIntakeService()) {
+            for (int i = 0; i < ORDERS; i++) {
+                List<String> basket = i % 2 == 0 ? List.of("soup") : List.of("steak", "beer", "beer");
+                baskets.add(basket);
+                futures.add(service.submit(basket));
+            }
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < ORDERS; i++) {
+                long id = futures.get(i).join();
+                check(ids.add(id), "id " + id + " handed out twice");
+                Order order = manager.getOrderPage(0, Integer.MAX_VALUE).get(id);
+                check(order != null, "no order stored under id " + id);
+                check(names(order).equals(baskets.get(i)), "id " + id + " holds " + order + ", not " + baskets.get(i));
+            }
+            check(manager.getOrderCount() == ORDERS + 2, "every order is stored once: " + manager.getOrderCount());
+
+            long last = futures.get(ORDERS - 1).join();
+            check(names(manager.deleteOrderById(last)).equals(baskets.get(ORDERS - 1)), "deletes the submitted order");
+        }
+        manager.saveOrders();
+        System.out.println("OrderIntakeServiceTest passed");
+    }
+
+    /**
+     * Returns the product names of an order.
+     * @param order the order
+     * @return the names, in order
+     */
+    private static List<String> names(Order order) {
+        List<String> names = new ArrayList<>();
+        order.getProducts().forEach(p -> names.add(p.getName()));
+        return names;
+    }
+
+    /**
+     * Fails the test unless a condition holds.
+     * @param condition the condition
+     * @param message   the failure message
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+}